@@ -0,0 +1,81 @@
+package javactor.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javactor.akka.AkkaJavactorBuilder;
+import javactor.akka.JavactorUntypedActor;
+import lombok.RequiredArgsConstructor;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.japi.Creator;
+
+/**
+ * Base of the benchmarks, each of which compares javactors with equivalent
+ * raw {@link akka.actor.UntypedActor}s. Owns the actor system.
+ */
+@State(Scope.Benchmark)
+public abstract class ActorBenchmark
+{
+	@SuppressWarnings("serial")
+	@RequiredArgsConstructor
+	static private final class BenchmarkCreator implements Creator<JavactorUntypedActor>
+	{
+		private final Class<?> javactorClass;
+		private final boolean subscribeToEventStream;
+
+		@Override
+		public JavactorUntypedActor create() throws Exception
+		{
+			return AkkaJavactorBuilder.builder(javactorClass.newInstance())
+				.subscribeToEventStream(subscribeToEventStream)
+				.build();
+		}
+	}
+
+	protected ActorSystem system;
+
+	@Setup
+	public void createSystem()
+	{
+		system = ActorSystem.create("benchmark");
+	}
+
+	@TearDown
+	public void shutdownSystem()
+	{
+		system.shutdown();
+		system.awaitTermination();
+	}
+
+	protected ActorRef createJavactor(Class<?> javactorClass)
+	{
+		return createJavactor(javactorClass, false);
+	}
+
+	protected ActorRef createJavactor(Class<?> javactorClass, boolean subscribeToEventStream)
+	{
+		return system.actorOf(Props.create(new BenchmarkCreator(javactorClass,
+			subscribeToEventStream)));
+	}
+
+	protected ActorRef createRaw(Class<?> actorClass, Object... args)
+	{
+		return system.actorOf(Props.create(actorClass, args));
+	}
+
+	static protected void await(CountDownLatch done) throws InterruptedException,
+		TimeoutException
+	{
+		if ( !done.await(30, TimeUnit.SECONDS) )
+			throw new TimeoutException("Benchmark operation did not complete");
+	}
+}
@@ -0,0 +1,129 @@
+package javactor.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext;
+import javactor.JavactorContext.JavactorPreparer;
+import javactor.annot.Handle;
+import javactor.annot.PreStart;
+import lombok.Data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+
+/**
+ * Creation of short lived child actors, which stop themselves once started.
+ * Javactor children are created with the actor builder, i.e., through
+ * JavactorUntypedActor's creator. Each operation is one child started.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CreationBenchmark extends ActorBenchmark
+{
+	private static final int CHILDREN = 1000;
+
+	@Data
+	static public class Spawn {
+		private final CountDownLatch done;
+	}
+
+	static public class Spawner {
+		JavactorContext ctx;
+		private long nextId;
+		@Handle
+		public void handle(final Spawn spawn) {
+			for (int i = 0; i < CHILDREN; i++)
+			{
+				ctx.actorBuilder(Child.class, "child-"+(nextId++))
+					.preparer(new JavactorPreparer<Child>()
+					{
+						@Override
+						public void prepare(Child javactor)
+						{
+							javactor.done = spawn.getDone();
+						}
+					})
+					.build();
+			}
+		}
+	}
+	static public class Child {
+		JavactorContext ctx;
+		CountDownLatch done;
+		@PreStart
+		public void started() {
+			done.countDown();
+			ctx.stop(ctx.self());
+		}
+	}
+
+	static public class RawSpawner extends UntypedActor {
+		private long nextId;
+		@Override
+		public void onReceive(Object msg) {
+			if ( msg instanceof Spawn ) {
+				for (int i = 0; i < CHILDREN; i++)
+				{
+					context().actorOf(Props.create(RawChild.class, ((Spawn) msg).getDone()),
+						"child-"+(nextId++));
+				}
+			} else
+				unhandled(msg);
+		}
+	}
+	static public class RawChild extends UntypedActor {
+		private final CountDownLatch done;
+		public RawChild(CountDownLatch done) {
+			this.done = done;
+		}
+		@Override
+		public void preStart() {
+			done.countDown();
+			context().stop(getSelf());
+		}
+		@Override
+		public void onReceive(Object msg) {
+			unhandled(msg);
+		}
+	}
+
+	private ActorRef spawner;
+	private ActorRef rawSpawner;
+
+	@Setup
+	public void createActors()
+	{
+		spawner = createJavactor(Spawner.class);
+		rawSpawner = createRaw(RawSpawner.class);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CHILDREN)
+	public void javactor() throws Exception
+	{
+		run(spawner);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CHILDREN)
+	public void raw() throws Exception
+	{
+		run(rawSpawner);
+	}
+
+	private void run(ActorRef spawner) throws Exception
+	{
+		CountDownLatch done = new CountDownLatch(CHILDREN);
+		spawner.tell(new Spawn(done), ActorRef.noSender());
+		await(done);
+	}
+}
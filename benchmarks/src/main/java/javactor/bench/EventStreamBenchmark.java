@@ -0,0 +1,145 @@
+package javactor.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext;
+import javactor.annot.Handle;
+import lombok.Data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import akka.actor.ActorRef;
+import akka.actor.UntypedActor;
+
+/**
+ * One actor publishing to the event stream, with many subscribers. Each
+ * operation is one event published.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EventStreamBenchmark extends ActorBenchmark
+{
+	private static final int EVENTS = 10000;
+
+	@Data
+	static public class Publish {
+		private final CountDownLatch done;
+	}
+	static public class Event {
+		static final Event SHARED = new Event();
+	}
+	@Data
+	static public class Flush {
+		private final CountDownLatch done;
+	}
+	static public class RawEvent {
+		static final RawEvent SHARED = new RawEvent();
+	}
+	@Data
+	static public class RawFlush {
+		private final CountDownLatch done;
+	}
+
+	static public class Publisher {
+		JavactorContext ctx;
+		@Handle
+		public void handle(Publish publish) {
+			for (int i = 0; i < EVENTS; i++)
+			{
+				ctx.msg(Event.SHARED).fireAndForget();
+			}
+			ctx.msg(new Flush(publish.getDone())).fireAndForget();
+		}
+	}
+	static public class Subscriber {
+		int count;
+		@Handle
+		public void handle(Event event) {
+			count++;
+		}
+		@Handle
+		public void handle(Flush flush) {
+			flush.getDone().countDown();
+		}
+	}
+
+	static public class RawPublisher extends UntypedActor {
+		@Override
+		public void onReceive(Object msg) {
+			if ( msg instanceof Publish ) {
+				for (int i = 0; i < EVENTS; i++)
+				{
+					context().system().eventStream().publish(RawEvent.SHARED);
+				}
+				context().system().eventStream().publish(
+					new RawFlush(((Publish) msg).getDone()));
+			} else
+				unhandled(msg);
+		}
+	}
+	static public class RawSubscriber extends UntypedActor {
+		int count;
+		@Override
+		public void preStart() {
+			context().system().eventStream().subscribe(getSelf(), RawEvent.class);
+			context().system().eventStream().subscribe(getSelf(), RawFlush.class);
+		}
+		@Override
+		public void onReceive(Object msg) {
+			if ( msg instanceof RawEvent )
+				count++;
+			else if ( msg instanceof RawFlush )
+				((RawFlush) msg).getDone().countDown();
+			else
+				unhandled(msg);
+		}
+	}
+
+	@Param({ "1", "16", "128" })
+	private int numSubscribers;
+
+	private ActorRef publisher;
+	private ActorRef rawPublisher;
+
+	@Setup
+	public void createActors() throws Exception
+	{
+		publisher = createJavactor(Publisher.class);
+		rawPublisher = createRaw(RawPublisher.class);
+		for (int i = 0; i < numSubscribers; i++)
+		{
+			createJavactor(Subscriber.class, true);
+			createRaw(RawSubscriber.class);
+		}
+		/* Subscriptions are made asynchronously, in preStart */
+		Thread.sleep(1000);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void javactor() throws Exception
+	{
+		run(publisher);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void raw() throws Exception
+	{
+		run(rawPublisher);
+	}
+
+	private void run(ActorRef publisher) throws Exception
+	{
+		CountDownLatch done = new CountDownLatch(numSubscribers);
+		publisher.tell(new Publish(done), ActorRef.noSender());
+		await(done);
+	}
+}
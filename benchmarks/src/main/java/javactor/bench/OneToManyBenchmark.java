@@ -0,0 +1,126 @@
+package javactor.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext;
+import javactor.annot.Handle;
+import lombok.Data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import akka.actor.ActorRef;
+import akka.actor.UntypedActor;
+
+/**
+ * One actor sending messages round robin to many. Each operation is one
+ * message delivered.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OneToManyBenchmark extends ActorBenchmark
+{
+	private static final int MESSAGES = 100000;
+
+	@Data
+	static public class Burst {
+		private final ActorRef[] receivers;
+		private final CountDownLatch done;
+	}
+	@Data
+	static public class Work {
+		private final CountDownLatch done;
+	}
+
+	static public class Distributor {
+		JavactorContext ctx;
+		@Handle
+		public void handle(Burst burst) {
+			final ActorRef[] receivers = burst.getReceivers();
+			for (int i = 0; i < MESSAGES; i++)
+			{
+				ctx.msg(new Work(burst.getDone())).to(receivers[i % receivers.length])
+					.fireAndForget();
+			}
+		}
+	}
+	static public class Receiver {
+		@Handle
+		public void handle(Work work) {
+			work.getDone().countDown();
+		}
+	}
+
+	static public class RawDistributor extends UntypedActor {
+		@Override
+		public void onReceive(Object msg) {
+			if ( msg instanceof Burst ) {
+				final Burst burst = (Burst) msg;
+				final ActorRef[] receivers = burst.getReceivers();
+				for (int i = 0; i < MESSAGES; i++)
+				{
+					receivers[i % receivers.length].tell(new Work(burst.getDone()), getSelf());
+				}
+			} else
+				unhandled(msg);
+		}
+	}
+	static public class RawReceiver extends UntypedActor {
+		@Override
+		public void onReceive(Object msg) {
+			if ( msg instanceof Work )
+				((Work) msg).getDone().countDown();
+			else
+				unhandled(msg);
+		}
+	}
+
+	@Param({ "4", "64" })
+	private int numReceivers;
+
+	private ActorRef distributor;
+	private ActorRef[] receivers;
+	private ActorRef rawDistributor;
+	private ActorRef[] rawReceivers;
+
+	@Setup
+	public void createActors()
+	{
+		distributor = createJavactor(Distributor.class);
+		rawDistributor = createRaw(RawDistributor.class);
+		receivers = new ActorRef[numReceivers];
+		rawReceivers = new ActorRef[numReceivers];
+		for (int i = 0; i < numReceivers; i++)
+		{
+			receivers[i] = createJavactor(Receiver.class);
+			rawReceivers[i] = createRaw(RawReceiver.class);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES)
+	public void javactor() throws Exception
+	{
+		run(distributor, receivers);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES)
+	public void raw() throws Exception
+	{
+		run(rawDistributor, rawReceivers);
+	}
+
+	private void run(ActorRef distributor, ActorRef[] receivers) throws Exception
+	{
+		CountDownLatch done = new CountDownLatch(MESSAGES);
+		distributor.tell(new Burst(receivers, done), ActorRef.noSender());
+		await(done);
+	}
+}
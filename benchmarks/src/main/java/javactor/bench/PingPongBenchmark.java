@@ -0,0 +1,124 @@
+package javactor.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext;
+import javactor.annot.Handle;
+import lombok.Data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+
+import akka.actor.ActorRef;
+import akka.actor.UntypedActor;
+
+/**
+ * Round trips between two actors. Each operation is one round trip.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PingPongBenchmark extends ActorBenchmark
+{
+	private static final int ROUND_TRIPS = 10000;
+
+	@Data
+	static public class Start {
+		private final ActorRef ponger;
+		private final int roundTrips;
+		private final CountDownLatch done;
+	}
+	static public class Ping {
+		static final Ping SHARED = new Ping();
+	}
+
+	static public class Ponger {
+		JavactorContext ctx;
+		@Handle
+		public void handle(Ping ping) {
+			ctx.msg(ping).replyToSender().fireAndForget();
+		}
+	}
+	static public class Pinger {
+		JavactorContext ctx;
+		private Start start;
+		private int remaining;
+		@Handle
+		public void handle(Start start) {
+			this.start = start;
+			remaining = start.getRoundTrips();
+			ctx.msg(Ping.SHARED).to(start.getPonger()).fireAndForget();
+		}
+		@Handle
+		public void handle(Ping ping) {
+			if ( --remaining == 0 )
+				start.getDone().countDown();
+			else
+				ctx.msg(ping).to(start.getPonger()).fireAndForget();
+		}
+	}
+
+	static public class RawPonger extends UntypedActor {
+		@Override
+		public void onReceive(Object msg) {
+			getSender().tell(msg, getSelf());
+		}
+	}
+	static public class RawPinger extends UntypedActor {
+		private Start start;
+		private int remaining;
+		@Override
+		public void onReceive(Object msg) {
+			if ( msg instanceof Start ) {
+				start = (Start) msg;
+				remaining = start.getRoundTrips();
+				start.getPonger().tell(Ping.SHARED, getSelf());
+			} else if ( msg instanceof Ping ) {
+				if ( --remaining == 0 )
+					start.getDone().countDown();
+				else
+					start.getPonger().tell(msg, getSelf());
+			} else
+				unhandled(msg);
+		}
+	}
+
+	private ActorRef pinger;
+	private ActorRef ponger;
+	private ActorRef rawPinger;
+	private ActorRef rawPonger;
+
+	@Setup
+	public void createActors()
+	{
+		pinger = createJavactor(Pinger.class);
+		ponger = createJavactor(Ponger.class);
+		rawPinger = createRaw(RawPinger.class);
+		rawPonger = createRaw(RawPonger.class);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROUND_TRIPS)
+	public void javactor() throws Exception
+	{
+		run(pinger, ponger);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROUND_TRIPS)
+	public void raw() throws Exception
+	{
+		run(rawPinger, rawPonger);
+	}
+
+	private void run(ActorRef pinger, ActorRef ponger) throws Exception
+	{
+		CountDownLatch done = new CountDownLatch(1);
+		pinger.tell(new Start(ponger, ROUND_TRIPS, done), ActorRef.noSender());
+		await(done);
+	}
+}
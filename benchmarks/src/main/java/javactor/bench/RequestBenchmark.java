@@ -0,0 +1,148 @@
+package javactor.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext;
+import javactor.annot.Handle;
+import javactor.msg.TimeoutMsg;
+import lombok.Data;
+import scala.concurrent.duration.Duration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+
+import akka.actor.ActorRef;
+import akka.actor.Cancellable;
+import akka.actor.UntypedActor;
+
+/**
+ * Sequential requests, each with a timeout scheduled when sent and cancelled
+ * when the reply arrives. Each operation is one request and its reply.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RequestBenchmark extends ActorBenchmark
+{
+	private static final int REQUESTS = 10000;
+
+	@Data
+	static public class Start {
+		private final ActorRef replier;
+		private final CountDownLatch done;
+	}
+	static public class Request {
+		static final Request SHARED = new Request();
+	}
+	static public class Reply {
+		static final Reply SHARED = new Reply();
+	}
+
+	static public class Replier {
+		JavactorContext ctx;
+		@Handle
+		public void handle(Request request) {
+			ctx.msg(Reply.SHARED).replyToSender().fireAndForget();
+		}
+	}
+	static public class Requester {
+		JavactorContext ctx;
+		private Start start;
+		private int remaining;
+		@Handle
+		public void handle(Start start) {
+			this.start = start;
+			remaining = REQUESTS;
+			request();
+		}
+		@Handle
+		public void handle(Reply reply) {
+			if ( --remaining == 0 )
+				start.getDone().countDown();
+			else
+				request();
+		}
+		@Handle
+		public void handle(TimeoutMsg msg) {
+			throw new IllegalStateException("Timed out: "+msg);
+		}
+		private void request() {
+			ctx.msg(Request.SHARED).to(start.getReplier()).timeout(10, TimeUnit.SECONDS)
+				.request(Reply.class, "benchmark");
+		}
+	}
+
+	static public class RawReplier extends UntypedActor {
+		@Override
+		public void onReceive(Object msg) {
+			getSender().tell(Reply.SHARED, getSelf());
+		}
+	}
+	static public class RawRequester extends UntypedActor {
+		private Start start;
+		private int remaining;
+		private Cancellable timeout;
+		@Override
+		public void onReceive(Object msg) {
+			if ( msg instanceof Start ) {
+				start = (Start) msg;
+				remaining = REQUESTS;
+				request();
+			} else if ( msg instanceof Reply ) {
+				timeout.cancel();
+				if ( --remaining == 0 )
+					start.getDone().countDown();
+				else
+					request();
+			} else if ( msg instanceof TimeoutMsg ) {
+				throw new IllegalStateException("Timed out: "+msg);
+			} else
+				unhandled(msg);
+		}
+		private void request() {
+			start.getReplier().tell(Request.SHARED, getSelf());
+			timeout = context().system().scheduler().scheduleOnce(
+				Duration.create(10, TimeUnit.SECONDS), getSelf(), 
+				new TimeoutMsg("benchmark"), context().dispatcher(), getSelf());
+		}
+	}
+
+	private ActorRef requester;
+	private ActorRef replier;
+	private ActorRef rawRequester;
+	private ActorRef rawReplier;
+
+	@Setup
+	public void createActors()
+	{
+		requester = createJavactor(Requester.class);
+		replier = createJavactor(Replier.class);
+		rawRequester = createRaw(RawRequester.class);
+		rawReplier = createRaw(RawReplier.class);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS)
+	public void javactor() throws Exception
+	{
+		run(requester, replier);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS)
+	public void raw() throws Exception
+	{
+		run(rawRequester, rawReplier);
+	}
+
+	private void run(ActorRef requester, ActorRef replier) throws Exception
+	{
+		CountDownLatch done = new CountDownLatch(1);
+		requester.tell(new Start(replier, done), ActorRef.noSender());
+		await(done);
+	}
+}
@@ -0,0 +1,111 @@
+package javactor.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javactor.annot.Handle;
+import lombok.Data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import akka.actor.ActorRef;
+import akka.actor.UntypedActor;
+
+/**
+ * Messages whose class is a subtype, at the given depth, of the only handled
+ * message class. Each operation is one message handled.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SubtypeDispatchBenchmark extends ActorBenchmark
+{
+	private static final int MESSAGES = 100000;
+
+	static public class Depth0 {}
+	static public class Depth1 extends Depth0 {}
+	static public class Depth2 extends Depth1 {}
+	static public class Depth3 extends Depth2 {}
+	static public class Depth4 extends Depth3 {}
+	static public class Depth5 extends Depth4 {}
+	static public class Depth6 extends Depth5 {}
+	static public class Depth7 extends Depth6 {}
+	static public class Depth8 extends Depth7 {}
+	private static final Object[] MESSAGES_BY_DEPTH = { new Depth0(), new Depth1(), 
+		new Depth2(), new Depth3(), new Depth4(), new Depth5(), new Depth6(), 
+		new Depth7(), new Depth8() };
+
+	@Data
+	static public class Flush {
+		private final CountDownLatch done;
+	}
+
+	static public class Handler {
+		int count;
+		@Handle
+		public void handle(Depth0 msg) {
+			count++;
+		}
+		@Handle
+		public void handle(Flush msg) {
+			msg.getDone().countDown();
+		}
+	}
+	static public class RawHandler extends UntypedActor {
+		int count;
+		@Override
+		public void onReceive(Object msg) {
+			if ( msg instanceof Depth0 )
+				count++;
+			else if ( msg instanceof Flush )
+				((Flush) msg).getDone().countDown();
+			else
+				unhandled(msg);
+		}
+	}
+
+	@Param({ "0", "1", "4", "8" })
+	private int depth;
+
+	private Object msg;
+	private ActorRef handler;
+	private ActorRef rawHandler;
+
+	@Setup
+	public void createActors()
+	{
+		msg = MESSAGES_BY_DEPTH[depth];
+		handler = createJavactor(Handler.class);
+		rawHandler = createRaw(RawHandler.class);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES)
+	public void javactor() throws Exception
+	{
+		run(handler);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES)
+	public void raw() throws Exception
+	{
+		run(rawHandler);
+	}
+
+	private void run(ActorRef handler) throws Exception
+	{
+		for (int i = 0; i < MESSAGES; i++)
+		{
+			handler.tell(msg, ActorRef.noSender());
+		}
+		CountDownLatch done = new CountDownLatch(1);
+		handler.tell(new Flush(done), ActorRef.noSender());
+		await(done);
+	}
+}
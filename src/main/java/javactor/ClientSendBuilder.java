@@ -0,0 +1,34 @@
+package javactor;
+
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext.SendBuilder;
+
+/**
+ * Sends a message from outside of actors, e.g., via
+ * {@link javactor.akka.AkkaJavactorClient}. Unlike a {@link SendBuilder},
+ * there is no sender to reply to, nor an actor to handle the replies to
+ * requests, so replies are asked for instead. Must not be used once
+ * {@link #fireAndForget()} or {@link #ask(Class)} has been called.
+ */
+public interface ClientSendBuilder
+{
+	/**
+	 * If none is specified, will post to event stream (event bus)
+	 */
+	ClientSendBuilder to(Object to);
+	/**
+	 * Only when telling an actor, as the event stream does not retain the
+	 * sender, and the reply of an ask goes to its future
+	 */
+	ClientSendBuilder from(Object from);
+	/**
+	 * Only for {@link #ask(Class)}
+	 */
+	ClientSendBuilder timeout(long duration, TimeUnit timeUnit);
+	void fireAndForget();
+	/**
+	 * @see SendBuilder#ask(Class)
+	 */
+	<R> JavactorFuture<R> ask(Class<R> response);
+}
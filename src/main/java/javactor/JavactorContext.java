@@ -2,6 +2,7 @@ package javactor;
 
 import java.util.concurrent.TimeUnit;
 
+import javactor.annot.Priority;
 import lombok.Data;
 
 public interface JavactorContext
@@ -16,6 +17,48 @@ public interface JavactorContext
 		STOP,
 		ESCALATE
 	}
+	/**
+	 * What to do with a message sent to a full bounded mailbox
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Drop the oldest message in the mailbox to make room
+		 */
+		DROP_OLDEST,
+		/**
+		 * Drop the message
+		 */
+		DROP_NEWEST,
+		/**
+		 * Drop the message, and send the sender a 
+		 * {@link javactor.msg.MailboxOverflow}
+		 */
+		REJECT,
+		/**
+		 * Block the sender until there is room, dropping the message if there is
+		 * none within the push timeout
+		 */
+		BLOCK
+	}
+	/**
+	 * How a pool routes messages to its actors
+	 */
+	public enum Routing {
+		ROUND_ROBIN,
+		/**
+		 * To an idle actor, or else the one with the fewest queued messages
+		 */
+		SMALLEST_MAILBOX,
+		/**
+		 * Messages with the same {@link javactor.msg.HashKeyed#getHashKey()}
+		 * go to the same actor
+		 */
+		CONSISTENT_HASHING,
+		/**
+		 * To all actors, with only the first reply going back to the sender
+		 */
+		SCATTER_GATHER_FIRST_COMPLETED
+	}
 	/**
 	 * Implement in your Javactor a method that returns this type, and it will
 	 * be used to configure the supervisor strategy
@@ -62,6 +105,11 @@ public interface JavactorContext
 		private boolean loggingEnabled = true;
 		static public Builder builder() { return new Builder(); }
 	}
+	/**
+	 * Must not be used once {@link #fireAndForget()} or 
+	 * {@link #request(Class, Object)} has been called, as implementations may
+	 * reuse it.
+	 */
 	public interface SendBuilder {
 		/**
 		 * If none is specified, will post to event stream (event bus)
@@ -71,7 +119,26 @@ public interface JavactorContext
 		SendBuilder from(Object from);
 		SendBuilder timeout(long duration, TimeUnit timeUnit);
 		void fireAndForget();
-		void request(Class<?> response, Object requestInfo);
+		/**
+		 * If the message is {@link javactor.msg.Correlated}, the request is 
+		 * completed only by a correlated reply with the same correlation ID.
+		 * Otherwise, it is completed by the next message of the response class,
+		 * with concurrent requests for the same class completed oldest first.
+		 * Pending requests survive a restart of the actor: the new javactor
+		 * gets their replies, or {@link javactor.msg.TimeoutMsg}s.
+		 * 
+		 * @return the correlation ID of the message, or 
+		 * {@link javactor.msg.Correlated#NONE}
+		 */
+		long request(Class<?> response, Object requestInfo);
+		/**
+		 * Sends to the recipient, completing the returned future with its reply,
+		 * or with a {@link java.util.concurrent.TimeoutException} if there is
+		 * none within the timeout. Unlike {@link #request(Class, Object)}, the
+		 * reply does not go to a handle method, so this can be used from outside
+		 * of actors, e.g., via {@link javactor.akka.AkkaJavactorClient}.
+		 */
+		<R> JavactorFuture<R> ask(Class<R> response);
 	}
 	
 	public interface JavactorPreparer<T> {
@@ -90,9 +157,76 @@ public interface JavactorContext
 		 */
 		ActorBuilder<T> preparer(JavactorPreparer<T> preparer);
 		ActorBuilder<T> dispatcher(String dispatcherName);
+		/**
+		 * Bounds the actor's mailbox, which is unbounded by default. Dropped 
+		 * messages go to dead letters. Cannot be combined with a priority
+		 * mailbox, nor used for javactor classes with
+		 * {@link javactor.annot.Coalesce} methods.
+		 */
+		ActorBuilder<T> boundedMailbox(int capacity, OverflowPolicy overflowPolicy);
+		/**
+		 * @param pushTimeout how long {@link OverflowPolicy#BLOCK} blocks the
+		 * sender
+		 */
+		ActorBuilder<T> boundedMailbox(int capacity, OverflowPolicy overflowPolicy, 
+			long pushTimeout, TimeUnit timeUnit);
+		/**
+		 * Gives the actor a mailbox that orders messages by their
+		 * {@link javactor.annot.Priority}. Built-in control messages, e.g.,
+		 * {@link javactor.msg.TimeoutMsg}, are high priority. Cannot be combined
+		 * with a bounded mailbox, nor used for javactor classes with
+		 * {@link javactor.annot.Coalesce} methods.
+		 */
+		ActorBuilder<T> priorityMailbox();
+		/**
+		 * Overrides the priority of a message class, and its subclasses, for 
+		 * this actor, and gives it a priority mailbox
+		 */
+		ActorBuilder<T> priority(Class<?> msgClass, Priority.Level level);
 		Object build();
 	}
 	
+	/**
+	 * Builds a pool of actors of the same javactor class behind a single actor
+	 * ref, to which messages are sent as to any actor. With Akka, the actors
+	 * have the default mailbox, so {@link javactor.annot.Coalesce} methods do
+	 * not coalesce.
+	 */
+	public interface PoolBuilder<T> {
+		/**
+		 * Default is {@link Routing#ROUND_ROBIN}
+		 */
+		PoolBuilder<T> routing(Routing routing);
+		/**
+		 * For {@link Routing#SCATTER_GATHER_FIRST_COMPLETED}, how long to wait
+		 * for the first reply. Default is 
+		 * {@link JavactorContext#DEFAULT_REQUEST_TIMEOUT_MILLIS}.
+		 */
+		PoolBuilder<T> within(long duration, TimeUnit timeUnit);
+		/**
+		 * Grows the pool, up to upperBound actors, while its actors are busy,
+		 * and shrinks it, down to lowerBound, while they are idle.
+		 */
+		PoolBuilder<T> resizer(int lowerBound, int upperBound);
+		/**
+		 * As {@link ActorBuilder#factory(JavactorFactory)}, for each actor
+		 */
+		PoolBuilder<T> factory(JavactorFactory factory);
+		/**
+		 * As {@link ActorBuilder#preparer(JavactorPreparer)}, for each actor
+		 */
+		PoolBuilder<T> preparer(JavactorPreparer<T> preparer);
+		/**
+		 * As {@link ActorBuilder#dispatcher(String)}, for each actor
+		 */
+		PoolBuilder<T> dispatcher(String dispatcherName);
+		Object build();
+	}
+	
+	/**
+	 * Must not be used once {@link #go()} has been called, as implementations
+	 * may reuse it.
+	 */
 	public interface ScheduleBuilder {
 		/**
 		 * If none is specified, will post to event stream (event bus)
@@ -104,16 +238,70 @@ public interface JavactorContext
 		 */
 		ScheduleBuilder from(Object from);
 		ScheduleBuilder delay(long delay, TimeUnit timeUnit);
+		/**
+		 * Periodic messages with the same period share one timer, firing up to
+		 * 16 times a period, and are spread over the period, so each comes
+		 * first on the least busy firing from its delay to a period less a
+		 * sixteenth later
+		 */
 		ScheduleBuilder period(long period, TimeUnit timeUnit);
+		/**
+		 * For periodic messages, to come first on the first firing at or after
+		 * the delay, i.e., up to a sixteenth of the period late, or 20 
+		 * milliseconds for periods under 160 milliseconds, rather than spread
+		 */
+		ScheduleBuilder firstOnTime();
 		Cancellable go();
 	}
 
+	/**
+	 * The actor's timers, by key, each sending its message to the actor 
+	 * itself. Starting a timer with the key of an active one replaces it, and
+	 * the messages of replaced and cancelled timers are never handled, even if
+	 * already in the mailbox. Restarting or stopping the actor cancels its 
+	 * timers. Only for use by the actor itself.
+	 */
+	public interface Timers {
+		/**
+		 * Sends the message once, after the delay. Pushing back the timer of
+		 * an active key, e.g., for debouncing or idle timeouts, only updates it
+		 * in place.
+		 */
+		void startSingle(Object key, Object msg, long delay, TimeUnit timeUnit);
+		/**
+		 * Sends the message every period, starting a period from now, as
+		 * {@link ScheduleBuilder#firstOnTime()}
+		 */
+		void startPeriodic(Object key, Object msg, long period, TimeUnit timeUnit);
+		/**
+		 * @return whether the timer was active
+		 */
+		boolean cancel(Object key);
+		boolean isActive(Object key);
+		void cancelAll();
+	}
+
 	public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 
 		2 * 1000 * 60;//2 min
+	public static final long DEFAULT_MAILBOX_PUSH_TIMEOUT_MILLIS = 
+		10 * 1000;//10 sec
+	public static final int STASH_CAPACITY = 1000;
 	
 	<T> ActorBuilder<T> actorBuilder(Class<T> javactorClass, String actorName);
+	/**
+	 * Builds a pool of child actors. Their failures are handled by this 
+	 * actor's supervisor strategy; with Akka, it applies to the pool as a 
+	 * whole.
+	 */
+	<T> PoolBuilder<T> poolBuilder(Class<T> javactorClass, String poolName, 
+		int size);
 
 	ScheduleBuilder schedule(Object msg);
+	/**
+	 * Keyed timers, for timers that are restarted or cancelled often, without
+	 * tracking {@link Cancellable}s
+	 */
+	Timers timers();
 	
 	Object self();
 	Object sender();
@@ -125,5 +313,40 @@ public interface JavactorContext
 	 */
 	SendBuilder msg(Object msg);
 	void watch(Object actor);
+	/**
+	 * Handles the following messages with the {@link javactor.annot.Handle}
+	 * methods of the state, and those without a state, switching between
+	 * dispatch tables built once per javactor class. The state is not kept
+	 * across restarts.
+	 * 
+	 * @throws IllegalArgumentException if no Handle method has the state
+	 */
+	void become(String state);
+	/**
+	 * Back to the default state, handling the following messages only with
+	 * the {@link javactor.annot.Handle} methods without a state
+	 */
+	void unbecome();
+	/**
+	 * Sets aside the message being handled, with its sender, until 
+	 * {@link #unstashAll()}, e.g., while waiting for the reply to a request.
+	 * Only a message handled by a {@link javactor.annot.Handle} method can be
+	 * stashed. Stashed messages are handled again, by the new javactor, if the
+	 * actor restarts, and are dead letters if it stops.
+	 * 
+	 * @throws javactor.StashOverflowException if {@link #STASH_CAPACITY}
+	 * messages are already stashed
+	 */
+	void stash();
+	/**
+	 * Has the stashed messages handled, in the order they were stashed, right
+	 * after the message being handled and before any others
+	 */
+	void unstashAll();
+	/**
+	 * @return an ID unique among this actor's requests, for correlated request
+	 * messages
+	 */
+	long newCorrelationId();
 
 }
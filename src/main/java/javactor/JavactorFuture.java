@@ -0,0 +1,23 @@
+package javactor;
+
+import java.util.concurrent.Future;
+
+/**
+ * Result of an ask. Can be waited on like any {@link Future}, or given
+ * callbacks, so that callers need not block a thread per outstanding ask.
+ * Asks cannot be cancelled.
+ */
+public interface JavactorFuture<R> extends Future<R>
+{
+	/**
+	 * Called on whichever thread completes the future, or on the calling
+	 * thread if it has already completed. From within a javactor, do not touch
+	 * its state from a callback; send a message to self instead.
+	 */
+	public interface Callback<R> {
+		void onSuccess(R result);
+		void onFailure(Throwable failure);
+	}
+
+	void onComplete(Callback<? super R> callback);
+}
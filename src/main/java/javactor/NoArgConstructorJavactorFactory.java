@@ -0,0 +1,49 @@
+package javactor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Creates javactors with their public no arg constructor, through a
+ * {@link MethodHandle} looked up once per class and shared by all instances
+ * of the factory
+ */
+public class NoArgConstructorJavactorFactory implements JavactorFactory
+{
+	private static final MethodType CONSTRUCTOR_TYPE = 
+		MethodType.methodType(Object.class);
+
+	private static final ClassValue<MethodHandle> constructors = 
+		new ClassValue<MethodHandle>()
+	{
+		@Override
+		protected MethodHandle computeValue(Class<?> aClass)
+		{
+			try
+			{
+				return MethodHandles.publicLookup().unreflectConstructor(
+					aClass.getConstructor()).asType(CONSTRUCTOR_TYPE);
+			} catch (NoSuchMethodException | IllegalAccessException 
+				| SecurityException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+	};
+
+	@Override
+	public Object get(Class<?> aClass)
+	{
+		try
+		{
+			return (Object) constructors.get(aClass).invokeExact();
+		} catch (RuntimeException | Error e)
+		{
+			throw e;
+		} catch (Throwable t)
+		{
+			throw new RuntimeException(t);
+		}
+	}
+}
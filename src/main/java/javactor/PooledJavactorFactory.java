@@ -0,0 +1,121 @@
+package javactor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import javactor.annot.Reset;
+import javactor.dispatch.MethodInvoker;
+import lombok.extern.java.Log;
+
+/**
+ * Reuses the javactors of stopped actors for new actors of the same class,
+ * for short lived actors, e.g., one per job, whose construction would
+ * otherwise be a noticeable part of their lifetime. Only javactors of classes
+ * with a {@link Reset} method are reused; it is called as each is released.
+ * Others, and any needed while none are pooled, are created by the delegate.
+ * Up to maxPooledPerClass javactors of each class are kept. Thread safe.
+ */
+@Log
+public class PooledJavactorFactory implements RecyclingJavactorFactory
+{
+	public static final int DEFAULT_MAX_POOLED_PER_CLASS = 64;
+
+	static private final class Pool
+	{
+		/**
+		 * Null if the class has no {@link Reset} method
+		 */
+		private final MethodInvoker reset;
+		private final ConcurrentLinkedQueue<Object> idle = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger size = new AtomicInteger();
+
+		private Pool(MethodInvoker reset)
+		{
+			this.reset = reset;
+		}
+	}
+
+	private final JavactorFactory delegate;
+	private final int maxPooledPerClass;
+	private final ClassValue<Pool> pools = new ClassValue<Pool>()
+	{
+		@Override
+		protected Pool computeValue(Class<?> javactorClass)
+		{
+			return new Pool(resetMethod(javactorClass));
+		}
+	};
+
+	public PooledJavactorFactory()
+	{
+		this(new NoArgConstructorJavactorFactory(), DEFAULT_MAX_POOLED_PER_CLASS);
+	}
+
+	public PooledJavactorFactory(JavactorFactory delegate, int maxPooledPerClass)
+	{
+		this.delegate = delegate;
+		this.maxPooledPerClass = maxPooledPerClass;
+	}
+
+	private static MethodInvoker resetMethod(Class<?> javactorClass)
+	{
+		for (Class<?> c = javactorClass; c != null && c != Object.class; 
+			c = c.getSuperclass())
+		{
+			for (Method method : c.getDeclaredMethods())
+			{
+				if ( !method.isAnnotationPresent(Reset.class) )
+					continue;
+				if ( method.getParameterTypes().length > 0 )
+					throw new RuntimeException("@Reset method "+method+
+						" has parameters.");
+				return MethodInvoker.of(method);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Object get(Class<?> aClass)
+	{
+		final Pool pool = pools.get(aClass);
+		final Object javactor = pool.idle.poll();
+		if ( javactor != null ) {
+			pool.size.decrementAndGet();
+			return javactor;
+		}
+		return delegate.get(aClass);
+	}
+
+	@Override
+	public void release(Object javactor)
+	{
+		final Pool pool = pools.get(javactor.getClass());
+		if ( pool.reset == null )
+			return;
+		if ( pool.size.incrementAndGet() > maxPooledPerClass ) {
+			pool.size.decrementAndGet();
+			return;
+		}
+		try
+		{
+			pool.reset.invoke(javactor);
+		} catch (Exception e)
+		{
+			pool.size.decrementAndGet();
+			log.log(Level.WARNING, "Reset of "+javactor+" failed, so not reusing it", e);
+			return;
+		}
+		pool.idle.offer(javactor);
+	}
+
+	/**
+	 * Of the class, for monitoring
+	 */
+	public int getNumPooled(Class<?> javactorClass)
+	{
+		return pools.get(javactorClass).size.get();
+	}
+}
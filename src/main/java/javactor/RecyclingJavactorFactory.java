@@ -0,0 +1,14 @@
+package javactor;
+
+/**
+ * A factory that takes back the javactors of its actors once they are done
+ * with them, so that it may hand them out again
+ */
+public interface RecyclingJavactorFactory extends JavactorFactory
+{
+	/**
+	 * Called once the actor has stopped, or restarted with a new javactor, and
+	 * will not touch the javactor again
+	 */
+	void release(Object javactor);
+}
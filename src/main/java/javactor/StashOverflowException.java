@@ -0,0 +1,14 @@
+package javactor;
+
+/**
+ * Thrown by {@link JavactorContext#stash()} when the stash is full, to be
+ * handled by the actor's supervisor
+ */
+@SuppressWarnings("serial")
+public class StashOverflowException extends RuntimeException
+{
+	public StashOverflowException(String message)
+	{
+		super(message);
+	}
+}
@@ -0,0 +1,55 @@
+package javactor.akka;
+
+import javactor.metrics.JavactorMetrics;
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+
+/**
+ * Where the javactors of an actor system report their metrics. None by
+ * default. Javactors started before the metrics are set do not report.
+ */
+public class ActorMetricsExtension implements Extension
+{
+	static private class Id extends AbstractExtensionId<ActorMetricsExtension> 
+		implements ExtensionIdProvider
+	{
+		@Override
+		public Id lookup()
+		{
+			return ID;
+		}
+
+		@Override
+		public ActorMetricsExtension createExtension(ExtendedActorSystem system)
+		{
+			return new ActorMetricsExtension();
+		}
+	}
+	private static final Id ID = new Id();
+
+	private volatile JavactorMetrics metrics;
+
+	static public ActorMetricsExtension get(ActorSystem system)
+	{
+		return ID.get(system);
+	}
+
+	/**
+	 * @return null if none
+	 */
+	public JavactorMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * @param metrics null for none
+	 */
+	public void setMetrics(JavactorMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+}
@@ -0,0 +1,65 @@
+package javactor.akka;
+
+import java.util.concurrent.TimeoutException;
+
+import javactor.JavactorFuture;
+import javactor.util.JavactorPromise;
+import scala.concurrent.Future;
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.OnComplete;
+import akka.pattern.AskTimeoutException;
+import akka.pattern.Patterns;
+import akka.util.Timeout;
+
+/**
+ * Asks by way of Akka's {@link Patterns#ask}, which receives the reply on a
+ * temporary, promise backed actor ref, rather than creating an actor per ask
+ */
+final class AkkaAsker
+{
+	private AkkaAsker() {}
+
+	static <R> JavactorFuture<R> ask(ActorSystem system, ActorRef to, Object msg, 
+		final Class<R> response, FiniteDuration timeout)
+	{
+		final AskMetrics metrics = AskMetrics.get(system);
+		final JavactorPromise<R> promise = new JavactorPromise<>();
+		metrics.started();
+		final Future<Object> future;
+		try
+		{
+			future = Patterns.ask(to, msg, new Timeout(timeout));
+		} catch (RuntimeException e)
+		{
+			metrics.failed();
+			throw e;
+		}
+		future.onComplete(new OnComplete<Object>()
+		{
+			@Override
+			public void onComplete(Throwable failure, Object reply)
+			{
+				if ( failure instanceof AskTimeoutException ) {
+					metrics.timedOut();
+					final TimeoutException timeoutException = new TimeoutException(
+						failure.getMessage());
+					timeoutException.initCause(failure);
+					promise.fail(timeoutException);
+				} else if ( failure != null ) {
+					metrics.failed();
+					promise.fail(failure);
+				} else if ( !response.isInstance(reply) ) {
+					metrics.failed();
+					promise.fail(new ClassCastException("Expected reply of "+response
+						+" but got "+reply));
+				} else {
+					metrics.succeeded();
+					promise.succeed(response.cast(reply));
+				}
+			}
+		}, system.dispatcher());
+		return promise;
+	}
+}
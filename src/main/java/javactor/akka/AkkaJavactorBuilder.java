@@ -1,31 +1,12 @@
 package javactor.akka;
 
-import java.lang.reflect.InvocationTargetException;
-
 import javactor.JavactorFactory;
+import javactor.NoArgConstructorJavactorFactory;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
 public class AkkaJavactorBuilder
 {
-	private static final class NoArgConstructorJavactorFactory implements
-		JavactorFactory
-	{
-		@Override
-		public Object get(Class<?> aClass)
-		{
-			try
-			{
-				return aClass.getConstructor().newInstance();
-			} catch (InstantiationException | IllegalAccessException
-				| IllegalArgumentException | InvocationTargetException
-				| NoSuchMethodException | SecurityException e)
-			{
-				throw new RuntimeException(e);
-			}
-		}
-	}
-
 	private final Object target;
 	private JavactorFactory javactorFactory = new NoArgConstructorJavactorFactory();
 	private boolean subscribeToEventStream = true;
@@ -0,0 +1,99 @@
+package javactor.akka;
+
+import java.util.concurrent.TimeUnit;
+
+import javactor.ClientSendBuilder;
+import javactor.JavactorContext;
+import javactor.JavactorFuture;
+import lombok.RequiredArgsConstructor;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+
+/**
+ * Sends messages to javactors from code that is not itself a javactor, e.g.,
+ * <code>client.msg(new MyMsg()).to(someActor).ask(ReplyMsg.class)</code>.
+ * Thread safe.
+ */
+@RequiredArgsConstructor
+public class AkkaJavactorClient
+{
+	private final ActorSystem system;
+
+	public ClientSendBuilder msg(Object msg)
+	{
+		return new AkkaClientSendBuilder(msg);
+	}
+
+	public AskMetrics askMetrics()
+	{
+		return AskMetrics.get(system);
+	}
+
+	@RequiredArgsConstructor
+	private class AkkaClientSendBuilder implements ClientSendBuilder
+	{
+		private final Object msg;
+		private ActorRef to;
+		private ActorRef replyTo = ActorRef.noSender();
+		private boolean replyToSet;
+		private FiniteDuration timeout;
+
+		@Override
+		public ClientSendBuilder to(Object to)
+		{
+			this.to = (ActorRef) to;
+			return this;
+		}
+
+		@Override
+		public ClientSendBuilder from(Object from)
+		{
+			this.replyToSet = true;
+			this.replyTo = (ActorRef) from;
+			return this;
+		}
+
+		@Override
+		public ClientSendBuilder timeout(long duration, TimeUnit timeUnit)
+		{
+			this.timeout = Duration.create(duration, timeUnit);
+			return this;
+		}
+
+		/**
+		 * Checked as by the send builder of actors
+		 */
+		@Override
+		public void fireAndForget()
+		{
+			if ( timeout != null )
+				throw new IllegalArgumentException("Trying to fire and forget "
+					+ "with a non null timeout.");
+			if ( to == null ) {
+				if ( replyToSet )
+					throw new IllegalArgumentException("Trying to publish to "
+						+ "event bus with replyTo. Akka does not retain the sender "
+						+ "when posting to the event stream.");
+				JavactorEventBus.get(system).publish(msg);
+			}
+			else
+				to.tell(msg, replyTo);
+		}
+
+		@Override
+		public <R> JavactorFuture<R> ask(Class<R> response)
+		{
+			if ( to == null )
+				throw new IllegalArgumentException("Trying to ask the event "
+					+ "stream. An ask needs a recipient.");
+			if ( replyToSet )
+				throw new IllegalArgumentException("Trying to ask with replyTo. "
+					+ "The reply of an ask goes to its future.");
+			return AkkaAsker.ask(system, to, msg, response, timeout != null ? timeout
+				: Duration.create(JavactorContext.DEFAULT_REQUEST_TIMEOUT_MILLIS,
+					TimeUnit.MILLISECONDS));
+		}
+	}
+}
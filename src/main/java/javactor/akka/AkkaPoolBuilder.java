@@ -0,0 +1,145 @@
+package javactor.akka;
+
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext;
+import javactor.JavactorContext.JavactorPreparer;
+import javactor.JavactorContext.PoolBuilder;
+import javactor.JavactorContext.Routing;
+import javactor.JavactorFactory;
+import javactor.msg.HashKeyed;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.ActorContext;
+import akka.actor.Props;
+import akka.routing.ConsistentHashingPool;
+import akka.routing.ConsistentHashingRouter.ConsistentHashMapper;
+import akka.routing.DefaultResizer;
+import akka.routing.Pool;
+import akka.routing.Resizer;
+import akka.routing.RoundRobinPool;
+import akka.routing.ScatterGatherFirstCompletedPool;
+import akka.routing.SmallestMailboxPool;
+
+/**
+ * Builds pools as Akka pool routers, whose default supervisor strategy
+ * escalates routees' failures to the parent of the router
+ */
+final class AkkaPoolBuilder<T> implements PoolBuilder<T>
+{
+	@SuppressWarnings("serial")
+	private static final ConsistentHashMapper HASH_KEY_MAPPER =
+		new ConsistentHashMapper()
+	{
+		@Override
+		public Object hashKey(Object message)
+		{
+			return message instanceof HashKeyed ?
+				((HashKeyed) message).getHashKey() : null;
+		}
+	};
+
+	private final ActorContext context;
+	private final Class<T> javactorClass;
+	private final String poolName;
+	private final int size;
+	private final JavactorFactory defaultFactory;
+	private Routing routing = Routing.ROUND_ROBIN;
+	private FiniteDuration within = Duration.create(
+		JavactorContext.DEFAULT_REQUEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+	private Resizer resizer;
+	private JavactorFactory customFactory;
+	private JavactorPreparer<T> preparer;
+	private String dispatcherName;
+
+	AkkaPoolBuilder(ActorContext context, Class<T> javactorClass, String poolName,
+		int size, JavactorFactory defaultFactory)
+	{
+		if ( size < 1 )
+			throw new IllegalArgumentException("Pool size must be positive: "+size);
+		this.context = context;
+		this.javactorClass = javactorClass;
+		this.poolName = poolName;
+		this.size = size;
+		this.defaultFactory = defaultFactory;
+	}
+
+	@Override
+	public PoolBuilder<T> routing(Routing routing)
+	{
+		this.routing = routing;
+		return this;
+	}
+
+	@Override
+	public PoolBuilder<T> within(long duration, TimeUnit timeUnit)
+	{
+		this.within = Duration.create(duration, timeUnit);
+		return this;
+	}
+
+	@Override
+	public PoolBuilder<T> resizer(int lowerBound, int upperBound)
+	{
+		this.resizer = new DefaultResizer(lowerBound, upperBound);
+		return this;
+	}
+
+	@Override
+	public PoolBuilder<T> factory(JavactorFactory factory)
+	{
+		this.customFactory = factory;
+		return this;
+	}
+
+	@Override
+	public PoolBuilder<T> preparer(JavactorPreparer<T> preparer)
+	{
+		this.preparer = preparer;
+		return this;
+	}
+
+	@Override
+	public PoolBuilder<T> dispatcher(String dispatcherName)
+	{
+		this.dispatcherName = dispatcherName;
+		return this;
+	}
+
+	@Override
+	public Object build()
+	{
+		if ( defaultFactory == null )
+			throw new RuntimeException("createActor called but no "
+				+ "javactorFactory has been set");
+		Props routeeProps = Props.create(new JavactorUntypedActor.MyCreator<T>(
+			javactorClass, false, customFactory == null ? defaultFactory :
+				customFactory, defaultFactory, preparer));
+		if ( dispatcherName != null )
+			routeeProps = routeeProps.withDispatcher(dispatcherName);
+		return context.actorOf(pool().props(routeeProps), poolName);
+	}
+
+	private Pool pool()
+	{
+		switch ( routing ) {
+		case SMALLEST_MAILBOX:
+			final SmallestMailboxPool smallestMailbox = new SmallestMailboxPool(size);
+			return resizer == null ? smallestMailbox :
+				smallestMailbox.withResizer(resizer);
+		case CONSISTENT_HASHING:
+			final ConsistentHashingPool consistentHashing =
+				new ConsistentHashingPool(size).withHashMapper(HASH_KEY_MAPPER);
+			return resizer == null ? consistentHashing :
+				consistentHashing.withResizer(resizer);
+		case SCATTER_GATHER_FIRST_COMPLETED:
+			final ScatterGatherFirstCompletedPool scatterGather =
+				new ScatterGatherFirstCompletedPool(size, within);
+			return resizer == null ? scatterGather :
+				scatterGather.withResizer(resizer);
+		default:
+			final RoundRobinPool roundRobin = new RoundRobinPool(size);
+			return resizer == null ? roundRobin : roundRobin.withResizer(resizer);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package javactor.akka;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javactor.util.TickService;
+import scala.concurrent.ExecutionContext;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+import akka.actor.Scheduler;
+import akka.dispatch.ExecutionContexts;
+
+/**
+ * The {@link TickService} of an actor system, through which javactors'
+ * periodic messages to actors are scheduled, so that actors ticking with the
+ * same period share one Akka scheduler task, and are told a slot at a time
+ * over the period. Ticks run on the scheduler's thread, as they only tell
+ * actors.
+ */
+public class AkkaTickService extends TickService<akka.actor.Cancellable>
+	implements Extension
+{
+	static private class Id extends AbstractExtensionId<AkkaTickService>
+		implements ExtensionIdProvider
+	{
+		@Override
+		public Id lookup()
+		{
+			return ID;
+		}
+
+		@Override
+		public AkkaTickService createExtension(ExtendedActorSystem system)
+		{
+			return new AkkaTickService(system.scheduler());
+		}
+	}
+	private static final Id ID = new Id();
+
+	private static final ExecutionContext SAME_THREAD =
+		ExecutionContexts.fromExecutor(new Executor()
+		{
+			@Override
+			public void execute(Runnable command)
+			{
+				command.run();
+			}
+		});
+
+	private final Scheduler scheduler;
+
+	private AkkaTickService(Scheduler scheduler)
+	{
+		this.scheduler = scheduler;
+	}
+
+	static public AkkaTickService get(ActorSystem system)
+	{
+		return ID.get(system);
+	}
+
+	@Override
+	protected akka.actor.Cancellable startTimer(long tickNanos, Runnable tick)
+	{
+		final FiniteDuration interval = Duration.create(tickNanos, TimeUnit.NANOSECONDS);
+		return scheduler.schedule(interval, interval, tick, SAME_THREAD);
+	}
+
+	@Override
+	protected void stopTimer(akka.actor.Cancellable timer)
+	{
+		timer.cancel();
+	}
+
+	@Override
+	protected void deliver(Object msg, Object to, Object from)
+	{
+		((ActorRef) to).tell(msg, (ActorRef) from);
+	}
+}
@@ -0,0 +1,91 @@
+package javactor.akka;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+
+/**
+ * Counts of the asks made through javactor in an actor system
+ */
+public class AskMetrics implements Extension
+{
+	static private class Id extends AbstractExtensionId<AskMetrics> 
+		implements ExtensionIdProvider
+	{
+		@Override
+		public Id lookup()
+		{
+			return ID;
+		}
+
+		@Override
+		public AskMetrics createExtension(ExtendedActorSystem system)
+		{
+			return new AskMetrics();
+		}
+	}
+	private static final Id ID = new Id();
+
+	private final AtomicLong outstanding = new AtomicLong();
+	private final AtomicLong succeeded = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	static public AskMetrics get(ActorSystem system)
+	{
+		return ID.get(system);
+	}
+
+	/**
+	 * Asks still waiting for their reply
+	 */
+	public long getOutstanding()
+	{
+		return outstanding.get();
+	}
+
+	public long getSucceeded()
+	{
+		return succeeded.get();
+	}
+
+	public long getTimedOut()
+	{
+		return timedOut.get();
+	}
+
+	/**
+	 * Asks that got a reply of the wrong type, or could not be sent
+	 */
+	public long getFailed()
+	{
+		return failed.get();
+	}
+
+	void started()
+	{
+		outstanding.incrementAndGet();
+	}
+
+	void succeeded()
+	{
+		outstanding.decrementAndGet();
+		succeeded.incrementAndGet();
+	}
+
+	void timedOut()
+	{
+		outstanding.decrementAndGet();
+		timedOut.incrementAndGet();
+	}
+
+	void failed()
+	{
+		outstanding.decrementAndGet();
+		failed.incrementAndGet();
+	}
+}
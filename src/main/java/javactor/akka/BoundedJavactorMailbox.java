@@ -0,0 +1,140 @@
+package javactor.akka;
+
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext.OverflowPolicy;
+import javactor.msg.MailboxOverflow;
+import javactor.util.BoundedQueue;
+import javactor.util.BoundedQueue.Bounds;
+import javactor.util.BoundedQueue.OverflowSink;
+import scala.Option;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.DeadLetter;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+
+import com.typesafe.config.Config;
+
+/**
+ * The mailbox type of javactors built with
+ * {@link javactor.JavactorContext.ActorBuilder#boundedMailbox(int, OverflowPolicy)},
+ * configured as {@link #CONFIG_ID} in reference.conf. Akka creates a child's
+ * mailbox while the parent creates the child, so the builder hands its bounds
+ * to the mailbox type on the parent's thread. Actors created any other way get
+ * the bounds in the config.
+ */
+public class BoundedJavactorMailbox implements MailboxType
+{
+	public static final String CONFIG_ID = "javactor.bounded-mailbox";
+
+	private static final ThreadLocal<Bounds> childBounds = new ThreadLocal<>();
+
+	private final Bounds configuredBounds;
+
+	public BoundedJavactorMailbox(ActorSystem.Settings settings, Config config)
+	{
+		configuredBounds = new Bounds(config.getInt("mailbox-capacity"),
+			OverflowPolicy.valueOf(config.getString("overflow-policy")
+				.toUpperCase().replace('-', '_')),
+			config.getDuration("push-timeout", TimeUnit.NANOSECONDS));
+	}
+
+	/**
+	 * Sets the bounds of the mailboxes created on this thread until cleared
+	 * with null
+	 */
+	static void setChildBounds(Bounds bounds)
+	{
+		if ( bounds == null )
+			childBounds.remove();
+		else
+			childBounds.set(bounds);
+	}
+
+	@Override
+	public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system)
+	{
+		final Bounds bounds = childBounds.get();
+		return new BoundedJavactorMessageQueue(
+			bounds == null ? configuredBounds : bounds,
+			owner.isDefined() ? owner.get() : null,
+			system.isDefined() ? system.get() : null);
+	}
+
+	/**
+	 * Is its own overflow sink, so that enqueueing does not allocate
+	 */
+	static private class BoundedJavactorMessageQueue implements MessageQueue,
+		OverflowSink<Envelope>
+	{
+		private final BoundedQueue<Envelope> queue;
+		/**
+		 * The owner, the receiver of every message enqueued. Null if unknown.
+		 */
+		private final ActorRef receiver;
+		/**
+		 * Null if unknown
+		 */
+		private final ActorSystem system;
+
+		private BoundedJavactorMessageQueue(Bounds bounds, ActorRef receiver,
+			ActorSystem system)
+		{
+			this.queue = new BoundedQueue<>(bounds);
+			this.receiver = receiver;
+			this.system = system;
+		}
+
+		@Override
+		public void enqueue(ActorRef receiver, Envelope handle)
+		{
+			queue.push(handle, this);
+		}
+
+		@Override
+		public void overflowed(Envelope envelope)
+		{
+			final ActorRef sender = envelope.sender();
+			if ( system == null || receiver == null )
+				return;
+			if ( queue.getOverflowPolicy() == OverflowPolicy.REJECT
+				&& sender != null && !sender.equals(system.deadLetters()) )
+			{
+				sender.tell(new MailboxOverflow(envelope.message(), receiver), receiver);
+				return;
+			}
+			system.deadLetters().tell(new DeadLetter(envelope.message(), sender,
+				receiver), sender);
+		}
+
+		@Override
+		public Envelope dequeue()
+		{
+			return queue.poll();
+		}
+
+		@Override
+		public int numberOfMessages()
+		{
+			return queue.size();
+		}
+
+		@Override
+		public boolean hasMessages()
+		{
+			return !queue.isEmpty();
+		}
+
+		@Override
+		public void cleanUp(ActorRef owner, MessageQueue deadLetters)
+		{
+			for (Envelope envelope = queue.poll(); envelope != null;
+				envelope = queue.poll())
+			{
+				deadLetters.enqueue(owner, envelope);
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package javactor.akka;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javactor.util.CoalescingMailboxQueue;
+import javactor.util.MessageCoalescing;
+import scala.Option;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+
+import com.typesafe.config.Config;
+
+/**
+ * The mailbox type of javactors with {@link javactor.annot.Coalesce} methods
+ * and the default mailbox, configured as {@link #CONFIG_ID} in reference.conf.
+ * As with {@link BoundedJavactorMailbox}, the actor builder hands the
+ * coalescing of the javactor class to the mailbox type on the parent's
+ * thread. Actors created any other way get a plain FIFO.
+ */
+public class CoalescingJavactorMailbox implements MailboxType
+{
+	public static final String CONFIG_ID = "javactor.coalescing-mailbox";
+
+	private static final ThreadLocal<MessageCoalescing> childCoalescing =
+		new ThreadLocal<>();
+
+	public CoalescingJavactorMailbox(ActorSystem.Settings settings, Config config)
+	{
+	}
+
+	/**
+	 * Sets the coalescing of the mailboxes created on this thread until
+	 * cleared with null
+	 */
+	static void setChildCoalescing(MessageCoalescing coalescing)
+	{
+		if ( coalescing == null )
+			childCoalescing.remove();
+		else
+			childCoalescing.set(coalescing);
+	}
+
+	@Override
+	public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system)
+	{
+		return new CoalescingJavactorMessageQueue(childCoalescing.get());
+	}
+
+	static private class CoalescingJavactorMessageQueue implements MessageQueue
+	{
+		private final Queue<Envelope> queue;
+
+		private CoalescingJavactorMessageQueue(MessageCoalescing coalescing)
+		{
+			if ( coalescing == null ) {
+				queue = new ConcurrentLinkedQueue<>();
+				return;
+			}
+			queue = new CoalescingMailboxQueue<Envelope>(coalescing)
+			{
+				@Override
+				protected Object message(Envelope envelope)
+				{
+					return envelope.message();
+				}
+			};
+		}
+
+		@Override
+		public void enqueue(ActorRef receiver, Envelope handle)
+		{
+			queue.offer(handle);
+		}
+
+		@Override
+		public Envelope dequeue()
+		{
+			return queue.poll();
+		}
+
+		@Override
+		public int numberOfMessages()
+		{
+			return queue.size();
+		}
+
+		@Override
+		public boolean hasMessages()
+		{
+			return !queue.isEmpty();
+		}
+
+		@Override
+		public void cleanUp(ActorRef owner, MessageQueue deadLetters)
+		{
+			for (Envelope envelope = queue.poll(); envelope != null;
+				envelope = queue.poll())
+			{
+				deadLetters.enqueue(owner, envelope);
+			}
+		}
+	}
+}
@@ -50,7 +50,7 @@ public abstract class EasyUntypedActor extends UntypedActor
 						" does not have a parameter.");
 				final Class<?> msgClass = parameterTypes[0];
 				if ( subscribeToEventStream )
-					context().system().eventStream().subscribe(getSelf(), 
+					JavactorEventBus.get(context().system()).subscribe(getSelf(), 
 						msgClass);
 				builder.put(msgClass, method);
 			};
@@ -58,6 +58,17 @@ public abstract class EasyUntypedActor extends UntypedActor
 		methodsByMessageClass = builder.build();
 	}
 
+	@Override
+	public void postStop() throws Exception
+	{
+		super.postStop();
+		if ( subscribeToEventStream && methodsByMessageClass != null ) {
+			final JavactorEventBus eventBus = JavactorEventBus.get(context().system());
+			for (Class<?> msgClass : methodsByMessageClass.keySet())
+				eventBus.unsubscribe(getSelf(), msgClass);
+		}
+	}
+
 	@Override
 	public void onReceive(Object message) throws Exception
 	{
@@ -77,8 +88,12 @@ public abstract class EasyUntypedActor extends UntypedActor
 		return Logging.getLogger(getContext().system(), this);
 	}
 	
+	/**
+	 * Via the {@link JavactorEventBus}, so that javactors get it too, as well
+	 * as actors subscribed through it
+	 */
 	protected void publish(Object event) {
-		context().system().eventStream().publish(event);
+		JavactorEventBus.get(context().system()).publish(event);
 	}
 
 	protected Cancellable scheduleOnce(FiniteDuration initialDelay, ActorRef to, Object msg,
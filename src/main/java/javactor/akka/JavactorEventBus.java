@@ -0,0 +1,255 @@
+package javactor.akka;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javactor.Cancellable;
+import javactor.util.IndexedEventBus;
+import javactor.util.PeriodicPublisher;
+import scala.concurrent.ExecutionContext;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+import akka.actor.Props;
+import akka.actor.Scheduler;
+import akka.actor.UntypedActor;
+import akka.dispatch.ExecutionContexts;
+import akka.japi.Creator;
+import akka.event.EventStream;
+
+/**
+ * The event stream of the javactors of an actor system. Javactors subscribe to
+ * all the classes they handle at once, and are found by an index rather than
+ * by Akka's subclassification, which is searched on every publish. A bridge
+ * actor subscribes to the Akka event stream once for each class javactors
+ * handle, and passes what is published there, e.g., Akka's dead letters, on
+ * to the javactors through the index. Actors that are not javactors subscribe
+ * with {@link #subscribe(ActorRef, Class)}, both here and on the Akka event
+ * stream; messages published here only go through the Akka event stream,
+ * and the bridge, when one of them subscribes to their class.
+ * <p>
+ * Scheduled publishes run on the scheduler's thread, rather than going through
+ * an actor's mailbox, and periodic ones with the same period share a timer.
+ */
+public class JavactorEventBus extends IndexedEventBus<ActorRef> implements Extension
+{
+	static private class Id extends AbstractExtensionId<JavactorEventBus>
+		implements ExtensionIdProvider
+	{
+		@Override
+		public Id lookup()
+		{
+			return ID;
+		}
+
+		@Override
+		public JavactorEventBus createExtension(ExtendedActorSystem system)
+		{
+			return new JavactorEventBus(system);
+		}
+	}
+	private static final Id ID = new Id();
+
+	static private final class Bridge extends UntypedActor
+	{
+		private final JavactorEventBus eventBus;
+
+		private Bridge(JavactorEventBus eventBus)
+		{
+			this.eventBus = eventBus;
+		}
+
+		@Override
+		public void onReceive(Object message) throws Exception
+		{
+			eventBus.publishToJavactors(message);
+		}
+	}
+
+	static private final class BridgeCreator implements Creator<Bridge>
+	{
+		private static final long serialVersionUID = 1L;
+		private final JavactorEventBus eventBus;
+
+		private BridgeCreator(JavactorEventBus eventBus)
+		{
+			this.eventBus = eventBus;
+		}
+
+		@Override
+		public Bridge create() throws Exception
+		{
+			return new Bridge(eventBus);
+		}
+	}
+
+	/**
+	 * Publishing only tells actors, so it can be done on the scheduler's thread
+	 */
+	private static final ExecutionContext SAME_THREAD = 
+		ExecutionContexts.fromExecutor(new Executor()
+		{
+			@Override
+			public void execute(Runnable command)
+			{
+				command.run();
+			}
+		});
+
+	private final EventStream eventStream;
+	private final Scheduler scheduler;
+	private final ActorRef bridge;
+	/**
+	 * Those the bridge subscribed to
+	 */
+	private final Set<Class<?>> bridged = Collections.newSetFromMap(
+		new ConcurrentHashMap<Class<?>, Boolean>());
+	/**
+	 * Actors that are not javactors, which are only delivered to through the
+	 * Akka event stream
+	 */
+	private final IndexedEventBus<ActorRef> eventStreamSubscribers = 
+		new IndexedEventBus<ActorRef>()
+	{
+		@Override
+		protected void deliver(ActorRef subscriber, Object msg)
+		{
+			subscriber.tell(msg, ActorRef.noSender());
+		}
+	};
+	private final PeriodicPublisher<akka.actor.Cancellable> periodicPublisher = 
+		new PeriodicPublisher<akka.actor.Cancellable>()
+	{
+		@Override
+		protected akka.actor.Cancellable startTimer(long periodNanos, Runnable tick)
+		{
+			final FiniteDuration period = Duration.create(periodNanos, 
+				TimeUnit.NANOSECONDS);
+			return scheduler.schedule(period, period, tick, SAME_THREAD);
+		}
+
+		@Override
+		protected void stopTimer(akka.actor.Cancellable timer)
+		{
+			timer.cancel();
+		}
+
+		@Override
+		protected void publish(Object msg)
+		{
+			JavactorEventBus.this.publish(msg);
+		}
+	};
+
+	private JavactorEventBus(ExtendedActorSystem system)
+	{
+		this.eventStream = system.eventStream();
+		this.scheduler = system.scheduler();
+		this.bridge = system.systemActorOf(Props.create(new BridgeCreator(this)), 
+			"javactorEventBridge");
+	}
+
+	static public JavactorEventBus get(ActorSystem system)
+	{
+		return ID.get(system);
+	}
+
+	@Override
+	protected void deliver(ActorRef subscriber, Object msg)
+	{
+		subscriber.tell(msg, ActorRef.noSender());
+	}
+
+	@Override
+	public void subscribe(ActorRef subscriber, Set<Class<?>> msgClasses)
+	{
+		for (Class<?> msgClass : msgClasses)
+		{
+			if ( bridged.add(msgClass) )
+				eventStream.subscribe(bridge, msgClass);
+		}
+		super.subscribe(subscriber, msgClasses);
+	}
+
+	/**
+	 * For actors that are not javactors, to receive what is published both
+	 * here and on the Akka event stream. Unsubscribe them when they stop.
+	 */
+	public void subscribe(ActorRef subscriber, Class<?> msgClass)
+	{
+		eventStream.subscribe(subscriber, msgClass);
+		eventStreamSubscribers.subscribe(subscriber, 
+			Collections.<Class<?>>singleton(msgClass));
+	}
+
+	public void unsubscribe(ActorRef subscriber, Class<?> msgClass)
+	{
+		eventStreamSubscribers.unsubscribe(subscriber, 
+			Collections.<Class<?>>singleton(msgClass));
+		eventStream.unsubscribe(subscriber, msgClass);
+	}
+
+	/**
+	 * Through the Akka event stream, and the bridge, only if an actor that is
+	 * not a javactor subscribed to the message's class
+	 */
+	@Override
+	public void publish(Object msg)
+	{
+		if ( eventStreamSubscribers.hasSubscribers(msg.getClass()) )
+			eventStream.publish(msg);
+		else
+			super.publish(msg);
+	}
+
+	private void publishToJavactors(Object msg)
+	{
+		super.publish(msg);
+	}
+
+	public Cancellable scheduleOnce(final Object msg, FiniteDuration delay)
+	{
+		final akka.actor.Cancellable cancellable = scheduler.scheduleOnce(delay, 
+			new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					publish(msg);
+				}
+			}, SAME_THREAD);
+		return new Cancellable()
+		{
+			@Override
+			public boolean cancel()
+			{
+				return cancellable.cancel();
+			}
+		};
+	}
+
+	/**
+	 * Publications of the same period share a timer and are spread over it, as
+	 * {@link javactor.JavactorContext.ScheduleBuilder#period}
+	 */
+	public Cancellable schedule(Object msg, FiniteDuration delay, 
+		FiniteDuration period)
+	{
+		return schedule(msg, delay, period, false);
+	}
+
+	public Cancellable schedule(Object msg, FiniteDuration delay, 
+		FiniteDuration period, boolean firstOnTime)
+	{
+		return periodicPublisher.schedule(msg, delay.toNanos(), period.toNanos(),
+			firstOnTime);
+	}
+}
@@ -1,28 +1,37 @@
 package javactor.akka;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import javactor.Cancellable;
 import javactor.JavactorContext;
 import javactor.JavactorFactory;
+import javactor.JavactorFuture;
+import javactor.RecyclingJavactorFactory;
 import javactor.JavactorContext.JavactorPreparer;
+import javactor.JavactorContext.OverflowPolicy;
 import javactor.JavactorContext.SupervisorDirective;
 import javactor.JavactorContext.SupervisorStrategyInfo;
 import javactor.JavactorContext.SupervisorStrategyType;
-import javactor.annot.Handle;
-import javactor.annot.OnException;
-import javactor.annot.PostRestart;
-import javactor.annot.PostStop;
-import javactor.annot.PreRestart;
-import javactor.annot.PreStart;
+import javactor.annot.Priority;
+import javactor.annot.Priority.Level;
+import javactor.dispatch.BatchHandler;
+import javactor.dispatch.HandlerTable;
+import javactor.dispatch.JavactorInfo;
+import javactor.dispatch.MethodInvoker;
+import javactor.metrics.ActorMetrics;
+import javactor.metrics.JavactorMetrics;
+import javactor.msg.Correlated;
 import javactor.msg.TimeoutMsg;
+import javactor.util.BoundedQueue.Bounds;
+import javactor.util.KeyedTimers;
+import javactor.util.MessageCoalescing;
+import javactor.util.RequestTracker;
+import javactor.util.Stash;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -34,6 +43,7 @@ import akka.actor.ActorInitializationException;
 import akka.actor.ActorKilledException;
 import akka.actor.ActorRef;
 import akka.actor.AllForOneStrategy;
+import akka.actor.DeadLetter;
 import akka.actor.DeathPactException;
 import akka.actor.OneForOneStrategy;
 import akka.actor.Props;
@@ -46,10 +56,6 @@ import akka.japi.Function;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMap.Builder;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.ImmutableSortedMap;
-import com.google.common.collect.Maps;
 
 @RequiredArgsConstructor
 @Log
@@ -63,23 +69,9 @@ public class JavactorUntypedActor extends UntypedActor
 			SupervisorDirective.RESUME, SupervisorStrategy.resume()
 			);
 
-	private static final class MostToLeastSpecificComparator implements
-		Comparator<Class<?>>
-	{
-		@Override
-		public int compare(Class<?> o1, Class<?> o2)
-		{
-			return o1.isAssignableFrom(o2) ? 1 : -1;
-		}
-	}
-	@Data
-	static public class MySupervisorStrategyInfo {
-		private final SupervisorStrategyInfo info;
-		private final ImmutableMap<Class<?>,Method> onExceptionMethods;
-	}
 	@SuppressWarnings("serial")
 	@RequiredArgsConstructor
-	static private final class MyCreator<T> implements Creator<JavactorUntypedActor>
+	static final class MyCreator<T> implements Creator<JavactorUntypedActor>
 	{
 		private final Class<T> javactorClass;
 		private final boolean subscribeToEventStream;
@@ -95,16 +87,48 @@ public class JavactorUntypedActor extends UntypedActor
 			if ( preparer != null ) {
 				preparer.prepare(javactor);
 			}
-			return AkkaJavactorBuilder.builder(javactor)
-				.subscribeToEventStream(subscribeToEventStream)
-				.javactorFactory(defaultJavactorFactory)
-				.build();
+			final JavactorUntypedActor actor = new JavactorUntypedActor(javactor, 
+				defaultJavactorFactory, subscribeToEventStream);
+			if ( customJavactorFactory instanceof RecyclingJavactorFactory )
+				actor.recycler = (RecyclingJavactorFactory) customJavactorFactory;
+			return actor;
 		}
 	}
 
+	/**
+	 * Only delegates to the enclosing actor, so a single instance is injected
+	 * into the javactor and stays valid for the actor's lifetime. The send and
+	 * schedule builders are reused once they have sent or scheduled their 
+	 * message; only builders created while another is still in use, or
+	 * outside the handling of a message, e.g., in a
+	 * {@link JavactorFuture.Callback} on another thread, are allocated. The
+	 * shared builders are released at the start of each message, so one that
+	 * was left without sending or scheduling is not kept from reuse.
+	 */
 	@RequiredArgsConstructor
 	private final class AkkaJavactorContext implements JavactorContext
 	{
+		private final MySendBuilder sendBuilder = new MySendBuilder();
+		private boolean sendBuilderInUse;
+		private final MyScheduleBuilder scheduleBuilder = new MyScheduleBuilder();
+		private boolean scheduleBuilderInUse;
+		/**
+		 * While handling a message, the only thread using the shared builders
+		 */
+		private volatile Thread handlingThread;
+
+		private void startHandling()
+		{
+			sendBuilderInUse = false;
+			scheduleBuilderInUse = false;
+			handlingThread = Thread.currentThread();
+		}
+
+		private void endHandling()
+		{
+			handlingThread = null;
+		}
+
 		@Data
 		private class MyActorBuilder<T> implements ActorBuilder<T> {
 			
@@ -114,6 +138,11 @@ public class JavactorUntypedActor extends UntypedActor
 			private boolean subscribeToEventStream = false;
 			private String dispatcherName;
 			private JavactorPreparer<T> preparer;
+			private Bounds mailboxBounds;
+			/**
+			 * Null unless the actor has a priority mailbox
+			 */
+			private Map<Class<?>, Level> priorities;
 
 			@Override
 			public ActorBuilder<T> subscribeToEventBus()
@@ -142,6 +171,48 @@ public class JavactorUntypedActor extends UntypedActor
 					factoryToUse, javactorFactory, preparer));
 				if ( dispatcherName != null )
 					props = props.withDispatcher(dispatcherName);
+				if ( mailboxBounds != null && priorities != null )
+					throw new IllegalStateException("A mailbox cannot be both "
+						+ "bounded and prioritized.");
+				final MessageCoalescing coalescing = 
+					MessageCoalescing.forJavactorClass(javactorClass);
+				if ( coalescing != null && (mailboxBounds != null || priorities != null) )
+					throw new IllegalStateException("A mailbox cannot be both "
+						+ "coalescing and bounded or prioritized.");
+				if ( mailboxBounds != null ) {
+					BoundedJavactorMailbox.setChildBounds(mailboxBounds);
+					try
+					{
+						return context().actorOf(props.withMailbox(
+							BoundedJavactorMailbox.CONFIG_ID), actorName);
+					} finally
+					{
+						BoundedJavactorMailbox.setChildBounds(null);
+					}
+				}
+				if ( priorities != null ) {
+					PriorityJavactorMailbox.setChildPriorities(
+						PriorityJavactorMailbox.priorities(priorities));
+					try
+					{
+						return context().actorOf(props.withMailbox(
+							PriorityJavactorMailbox.CONFIG_ID), actorName);
+					} finally
+					{
+						PriorityJavactorMailbox.setChildPriorities(null);
+					}
+				}
+				if ( coalescing != null ) {
+					CoalescingJavactorMailbox.setChildCoalescing(coalescing);
+					try
+					{
+						return context().actorOf(props.withMailbox(
+							CoalescingJavactorMailbox.CONFIG_ID), actorName);
+					} finally
+					{
+						CoalescingJavactorMailbox.setChildCoalescing(null);
+					}
+				}
 				return context().actorOf(props, actorName);
 			}
 
@@ -158,15 +229,67 @@ public class JavactorUntypedActor extends UntypedActor
 				this.dispatcherName = dispatcherName;
 				return this;
 			}
+
+			@Override
+			public ActorBuilder<T> boundedMailbox(int capacity, 
+				OverflowPolicy overflowPolicy)
+			{
+				return boundedMailbox(capacity, overflowPolicy, 
+					DEFAULT_MAILBOX_PUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			}
+
+			@Override
+			public ActorBuilder<T> boundedMailbox(int capacity, 
+				OverflowPolicy overflowPolicy, long pushTimeout, TimeUnit timeUnit)
+			{
+				this.mailboxBounds = new Bounds(capacity, overflowPolicy, 
+					timeUnit.toNanos(pushTimeout));
+				return this;
+			}
+
+			@Override
+			public ActorBuilder<T> priorityMailbox()
+			{
+				if ( priorities == null )
+					priorities = new HashMap<>();
+				return this;
+			}
+
+			@Override
+			public ActorBuilder<T> priority(Class<?> msgClass, Level level)
+			{
+				priorityMailbox();
+				priorities.put(msgClass, level);
+				return this;
+			}
 		}
 		
 		@Data
 		private class MySendBuilder implements SendBuilder {
-			private final Object msg;
+			private Object msg;
 			private ActorRef to;
-			private ActorRef replyTo = getSelf();
+			private ActorRef replyTo;
 			private FiniteDuration timeout;
-			private boolean replyToSet = false;
+			private boolean replyToSet;
+
+			private MySendBuilder init(Object msg)
+			{
+				this.msg = msg;
+				this.to = null;
+				this.replyTo = getSelf();
+				this.timeout = null;
+				this.replyToSet = false;
+				return this;
+			}
+
+			private void release()
+			{
+				msg = null;
+				to = null;
+				replyTo = null;
+				if ( this == sendBuilder )
+					sendBuilderInUse = false;
+			}
 			
 			@Override
 			public SendBuilder to(Object to)
@@ -193,44 +316,86 @@ public class JavactorUntypedActor extends UntypedActor
 			@Override
 			public void fireAndForget()
 			{
-				if ( timeout != null )
-					throw new IllegalArgumentException("Trying to fire and forget "
-						+ "with a non null timeout.");
-				fire();
+				try
+				{
+					if ( timeout != null )
+						throw new IllegalArgumentException("Trying to fire and forget "
+							+ "with a non null timeout.");
+					fire();
+				} finally
+				{
+					release();
+				}
+			}
+
+			private void checkDestination()
+			{
+				if ( to == null && replyToSet )
+					throw new IllegalArgumentException("Trying to publish to "
+						+ "event bus with replyTo. Akka does not retain the sender "
+						+ "when posting to the event stream.");
 			}
 
 			private void fire()
 			{
-				if ( to == null ) {
-					if ( replyToSet )
-						throw new IllegalArgumentException("Trying to publish to "
-							+ "event bus with replyTo. Akka does not retain the sender "
-							+ "when posting to the event stream.");
-					context().system().eventStream().publish(msg);
-				}
+				checkDestination();
+				if ( to == null )
+					JavactorEventBus.get(context().system()).publish(msg);
 				else
 					to.tell(msg, replyTo);
 			}
 
 
 			@Override
-			public void request(Class<?> response, Object requestInfo)
-			{
-				final Class<? extends Object> javactorClass = 
-					JavactorUntypedActor.this.javactor.getClass();
-				final JavactorInfo javactorInfo = JavactorUntypedActor
-					.javactorInfoByJavactorType.get(javactorClass);
-				if ( getCachedHandleMethodForClass(response, javactorInfo) == null ) {
-					throw new IllegalStateException(javactorClass+" does not have "
-						+"a Handle method for the response "+response);
+			public long request(Class<?> response, Object requestInfo)
+			{
+				try
+				{
+					final Class<? extends Object> javactorClass = 
+						JavactorUntypedActor.this.javactor.getClass();
+					if ( !javactorInfo.isHandled(response) ) {
+						throw new IllegalStateException(javactorClass+" does not have "
+							+"a Handle method for the response "+response);
+					}
+					if ( !javactorInfo.isHandled(TimeoutMsg.class) )
+						throw new IllegalStateException(javactorClass+" does not have "
+							+"a Handle method for "+TimeoutMsg.class);
+					/* Before waiting, so a request that cannot be sent is not
+					 * left pending */
+					checkDestination();
+					final long correlationId = startWaitingFor(msg, response, 
+						timeoutOrDefault(), requestInfo);
+					fire();
+					return correlationId;
+				} finally
+				{
+					release();
+				}
+			}
+
+			@Override
+			public <R> JavactorFuture<R> ask(Class<R> response)
+			{
+				try
+				{
+					if ( to == null )
+						throw new IllegalArgumentException("Trying to ask the event "
+							+ "stream. An ask needs a recipient.");
+					if ( replyToSet )
+						throw new IllegalArgumentException("Trying to ask with replyTo. "
+							+ "The reply of an ask goes to its future.");
+					return AkkaAsker.ask(context().system(), to, msg, response, 
+						timeoutOrDefault());
+				} finally
+				{
+					release();
 				}
-				if ( getCachedHandleMethodForClass(TimeoutMsg.class, javactorInfo) == null )
-					throw new IllegalStateException(javactorClass+" does not have "
-						+"a Handle method for "+TimeoutMsg.class);
-				fire();
-				startWaitingFor(response, Objects.firstNonNull(timeout, 
-					Duration.create(DEFAULT_REQUEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)), 
-					requestInfo);
+			}
+
+			private FiniteDuration timeoutOrDefault()
+			{
+				return Objects.firstNonNull(timeout, Duration.create(
+					DEFAULT_REQUEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
 			}
 
 			@Override
@@ -240,13 +405,33 @@ public class JavactorUntypedActor extends UntypedActor
 				return this;
 			}
 		}
-		@RequiredArgsConstructor
 		private class MyScheduleBuilder implements ScheduleBuilder {
-			private final Object msg;
+			private Object msg;
 			private Object to;
-			private Object from = AkkaJavactorContext.this.self();
-			private FiniteDuration delay = Duration.Zero();
+			private Object from;
+			private FiniteDuration delay;
 			private FiniteDuration period;
+			private boolean firstOnTime;
+
+			private MyScheduleBuilder init(Object msg)
+			{
+				this.msg = msg;
+				this.to = null;
+				this.from = AkkaJavactorContext.this.self();
+				this.delay = Duration.Zero();
+				this.period = null;
+				this.firstOnTime = false;
+				return this;
+			}
+
+			private void release()
+			{
+				msg = null;
+				to = null;
+				from = null;
+				if ( this == scheduleBuilder )
+					scheduleBuilderInUse = false;
+			}
 			@Override
 			public ScheduleBuilder to(Object to)
 			{
@@ -275,18 +460,34 @@ public class JavactorUntypedActor extends UntypedActor
 				return this;
 			}
 
+			@Override
+			public ScheduleBuilder firstOnTime()
+			{
+				this.firstOnTime = true;
+				return this;
+			}
+
 			@Override
 			public Cancellable go()
 			{
-				final Object msgToUse = to == null ? new PostMsg(msg) : msg;
-				if ( period == null ) {
-					return new MyCancellable(context().system().scheduler().scheduleOnce(delay, 
-						(ActorRef)to, msgToUse, context().dispatcher(), (ActorRef)from));
+				try
+				{
+					if ( to == null ) {
+						final JavactorEventBus eventBus = 
+							JavactorEventBus.get(context().system());
+						return period == null ? eventBus.scheduleOnce(msg, delay)
+							: eventBus.schedule(msg, delay, period, firstOnTime);
+					}
+					if ( period == null ) {
+						return new MyCancellable(context().system().scheduler().scheduleOnce(delay, 
+							(ActorRef)to, msg, context().dispatcher(), (ActorRef)from));
+					}
+					return AkkaTickService.get(context().system()).schedule(msg, to, from, 
+						delay.toNanos(), period.toNanos(), firstOnTime);
+				} finally
+				{
+					release();
 				}
-				
-				return new MyCancellable(context().system().scheduler().schedule(
-					delay, period, 
-					(ActorRef)to, msgToUse, context().dispatcher(), (ActorRef)from));
 			}
 
 			@Override
@@ -345,7 +546,32 @@ public class JavactorUntypedActor extends UntypedActor
 		@Override
 		public Object sender()
 		{
-			return getSender();
+			return unstashing == null ? getSender() : unstashing.sender;
+		}
+
+		@Override
+		public void become(String state)
+		{
+			handlers = javactorInfo.getHandlers(state);
+		}
+
+		@Override
+		public void unbecome()
+		{
+			handlers = javactorInfo.getHandlers();
+		}
+
+		@Override
+		public void stash()
+		{
+			JavactorUntypedActor.this.stash();
+		}
+
+		@Override
+		public void unstashAll()
+		{
+			if ( stash != null )
+				stash.unstashAll();
 		}
 
 		@Override
@@ -354,10 +580,19 @@ public class JavactorUntypedActor extends UntypedActor
 			context().stop((ActorRef) actor);
 		}
 
+		@Override
+		public long newCorrelationId()
+		{
+			return JavactorUntypedActor.this.newCorrelationId();
+		}
+
 		@Override
 		public SendBuilder msg(Object msg)
 		{
-			return new MySendBuilder(msg);
+			if ( sendBuilderInUse || Thread.currentThread() != handlingThread )
+				return new MySendBuilder().init(msg);
+			sendBuilderInUse = true;
+			return sendBuilder.init(msg);
 		}
 
 		@Override
@@ -373,28 +608,126 @@ public class JavactorUntypedActor extends UntypedActor
 			return new MyActorBuilder<T>(javactorClass, actorName);
 		}
 
+		@Override
+		public <T> PoolBuilder<T> poolBuilder(Class<T> javactorClass,
+			String poolName, int size)
+		{
+			return new AkkaPoolBuilder<T>(context(), javactorClass, poolName, size,
+				javactorFactory);
+		}
+
 		@Override
 		public ScheduleBuilder schedule(Object msg)
 		{
-			return new MyScheduleBuilder(msg);
+			if ( scheduleBuilderInUse || Thread.currentThread() != handlingThread )
+				return new MyScheduleBuilder().init(msg);
+			scheduleBuilderInUse = true;
+			return scheduleBuilder.init(msg);
 		}
-	}
 
-	@Data
-	static private class JavactorInfo {
-		private final Field javactorContextField;
-		private final ImmutableSortedMap<Class<?>,Method> methodsByMessageClass;
-		private final MySupervisorStrategyInfo supervisorStrategyInfo;
+		@Override
+		public Timers timers()
+		{
+			if ( timers == null )
+				timers = new KeyedTimers(this);
+			return timers;
+		}
 	}
-	static private ConcurrentHashMap<Class<?>, JavactorInfo> 
-		javactorInfoByJavactorType = new ConcurrentHashMap<>();
-	
+
 	@Getter//getter for testing
 	private final Object javactor;
 	private final JavactorFactory javactorFactory;
 	private final boolean subscribeToEventStream;
-	private final Map<Class<?>, akka.actor.Cancellable> requests = 
-		Maps.newHashMapWithExpectedSize(0);/* Keep it small initially */
+	/**
+	 * Set by {@link #init()}
+	 */
+	private JavactorInfo javactorInfo;
+	private final AkkaJavactorContext javactorContext = new AkkaJavactorContext();
+	/**
+	 * Null if not reporting metrics. Set by {@link #init()}.
+	 */
+	private ActorMetrics metrics;
+	/**
+	 * Of the current state. Set by {@link #init()}.
+	 */
+	private HandlerTable handlers;
+	/**
+	 * Where the javactor goes once this actor is done with it. Null if it
+	 * does not go back to its factory.
+	 */
+	private RecyclingJavactorFactory recycler;
+	/**
+	 * Resolution of request timeouts
+	 */
+	static final long REQUEST_TICK_MILLIS = 100;
+	private static final int REQUEST_TICKS_PER_WHEEL = 512;
+	@Priority(Level.HIGH)
+	private enum RequestTick { INSTANCE }
+	/**
+	 * Sent to self when the first message of a batch is collected, so that
+	 * batches include whatever is already in the mailbox
+	 */
+	private enum BatchFlush { INSTANCE }
+	/**
+	 * By {@link BatchHandler#getIndex()}. Null until a batch is collected.
+	 */
+	private Batch[] batches;
+	private int numBatched;
+	private boolean batchFlushPending;
+	@RequiredArgsConstructor
+	static private class Batch {
+		private final BatchHandler handler;
+		private List<Object> messages = new ArrayList<>();
+	}
+	/**
+	 * Pending requests, with their timeouts on a wheel ticked by a single 
+	 * periodic message to self while any are pending, rather than each having
+	 * its own scheduler task. Null until the first request. Handed over to
+	 * the new actor instance on restart.
+	 */
+	private RequestTracker requests;
+	/**
+	 * Handed over on restart, from the failed actor instance to the one
+	 * replacing it, which takes them in {@link #postRestart(Throwable)}
+	 */
+	@RequiredArgsConstructor
+	static private class PendingRequests {
+		private final RequestTracker requests;
+		private final long lastCorrelationId;
+	}
+	/**
+	 * By actor, only while any requests are pending. Akka may create the new
+	 * instance on another thread, once the children of the failed one have
+	 * stopped. Dropped once all would have timed out, in case the actor is
+	 * stopped rather than re-created.
+	 */
+	private static final ConcurrentHashMap<ActorRef, PendingRequests> restartingRequests =
+		new ConcurrentHashMap<>();
+	@RequiredArgsConstructor
+	static private class Stashed {
+		private final Object message;
+		private final ActorRef sender;
+	}
+	/**
+	 * Null until the first stash
+	 */
+	private Stash<Stashed> stash;
+	/**
+	 * The message being handled, if it may be stashed
+	 */
+	private Object stashable;
+	/**
+	 * The unstashed message being handled, if any
+	 */
+	private Stashed unstashing;
+	private akka.actor.Cancellable requestTicker;
+	/**
+	 * Null until the first timer. The timers of a restarted actor are
+	 * cancelled, and its new actor instance starts without any.
+	 */
+	private KeyedTimers timers;
+	private final List<TimeoutMsg> expiredRequests = new ArrayList<>();
+	private long lastCorrelationId = Correlated.NONE;
 
 //	private void setupSupervisorStrategy()
 //	{
@@ -403,298 +736,344 @@ public class JavactorUntypedActor extends UntypedActor
 //				new OneForOneStrategy(supervisorStrategyInfo.getMaxNumRetries(), 
 //					rangeTimeUnitToDuration(supervisorStrategyInfo.getTimeRange(),
 //						supervisorStrategyInfo.getTimeUnit()),
-//						myDecider(),
+//						decider,
 //						supervisorStrategyInfo.isLoggingEnabled() 
 //						) :
 //					new AllForOneStrategy(supervisorStrategyInfo.getMaxNumRetries(), 
 //						rangeTimeUnitToDuration(supervisorStrategyInfo.getTimeRange(),
 //							supervisorStrategyInfo.getTimeUnit()),
-//							myDecider(),
+//							decider,
 //							supervisorStrategyInfo.isLoggingEnabled());	
 //	}
 	
-	private Function<Throwable, Directive> myDecider()
+	/**
+	 * Goes to the most specific matching {@link javactor.annot.OnException}
+	 * method, as resolved and cached by exception class in
+	 * {@link JavactorInfo#getOnExceptionHandlers()}
+	 */
+	private final Function<Throwable, Directive> decider = 
+		new Function<Throwable, Directive>()
 	{
-		return new Function<Throwable, Directive>()
+		@Override
+		public Directive apply(Throwable t)
 		{
-			@Override
-			public Directive apply(Throwable t)
+			if ( t instanceof ActorInitializationException
+				 || t instanceof ActorKilledException
+				 || t instanceof DeathPactException ) 
 			{
-				if ( t instanceof ActorInitializationException
-					 || t instanceof ActorKilledException
-					 || t instanceof DeathPactException ) 
+				return SupervisorStrategy.stop();
+			} 
+			else if ( t instanceof Exception ) 
+			{
+				final MethodInvoker invoker = 
+					javactorInfo.getOnExceptionHandlers().get(t.getClass());
+				if ( invoker == null )
+					return SupervisorStrategy.restart();
+				try
 				{
-					return SupervisorStrategy.stop();
-				} 
-				else if ( t instanceof Exception ) 
+					return map((SupervisorDirective) invoker.invoke(javactor, t));
+				} catch (Exception e)
 				{
-					Class<? extends Throwable> clazz = t.getClass();
-					ImmutableSet<Entry<Class<?>, Method>> entrySet = javactorInfoByJavactorType
-						.get(javactor.getClass()).getSupervisorStrategyInfo().getOnExceptionMethods()
-						.entrySet();
-					for (Entry<Class<?>, Method> entry : entrySet)
-					{
-						if (entry.getKey().isAssignableFrom(clazz))
-						{
-							final Method method = entry.getValue();
-							try
-							{
-								return map((SupervisorDirective) methodInvoke(
-									method, javactor, t));
-							} catch (Exception e)
-							{
-								throw new RuntimeException(e);
-							}
-						}
-					}
-					return SupervisorStrategy.restart();
-				} else {
-					return SupervisorStrategy.escalate();
+					throw new RuntimeException(e);
 				}
+			} else {
+				return SupervisorStrategy.escalate();
 			}
-		};
-	}
+		}
+	};
+	/**
+	 * Created on first use, as it needs {@link #javactorInfo}
+	 */
+	private SupervisorStrategy supervisorStrategy;
 
 	private Directive map(SupervisorDirective supDirective)
 	{
 		return JAVACTOR_DIRECTIVES_TO_AKKA.get(supDirective);
 	}
 	
-	@Override
-	public void preStart() throws Exception
+	/**
+	 * Called before anything else on both a new and a restarted actor
+	 */
+	private void init()
 	{
-		super.preStart();
-		if ( !javactorInfoByJavactorType.contains(javactor.getClass()) ) {
-			javactorInfoByJavactorType.put(javactor.getClass(), 
-				new JavactorInfo(getJavactorContextField(javactor.getClass()), 
-					getHandleMethodsByMsgClass(),
-					getMySupervisorStrategyInfo(javactor)));
-		}
-		AkkaJavactorContext javactorContext = createJavactorContext();
-		setContextOnJavactor(javactorContext);
-		ImmutableMap<Class<?>, Method> handleMethods = 
-			javactorInfoByJavactorType.get(javactor.getClass()).getMethodsByMessageClass();
-		if ( subscribeToEventStream ) {
-			ImmutableSet<Class<?>> keySet = handleMethods.keySet();
-			for (Class<?> msgClass : keySet)
-			{
-				context().system().eventStream().subscribe(getSelf(), 
-					msgClass);
-			}
-		}
-		callAnnotatedMethod(PreStart.class);
+		if ( javactorInfo != null )
+			return;
+		javactorInfo = JavactorInfo.of(javactor);
+		handlers = javactorInfo.getHandlers();
+		javactorInfo.getDispatcher().injectContext(javactor, javactorContext);
+		final JavactorMetrics systemMetrics = 
+			ActorMetricsExtension.get(context().system()).getMetrics();
+		if ( systemMetrics != null )
+			metrics = systemMetrics.actorMetrics(javactor.getClass());
 	}
 
-	private MySupervisorStrategyInfo getMySupervisorStrategyInfo(Object javactor)
+	@Override
+	public void preStart() throws Exception
 	{
-		return new MySupervisorStrategyInfo(getSupervisorStrategyInfo(javactor),
-			getOnExceptionMethods(javactor.getClass()));
+		super.preStart();
+		init();
+		if ( subscribeToEventStream )
+			JavactorEventBus.get(context().system()).subscribe(getSelf(), 
+				javactorInfo.getHandledClasses());
+		callLifecycleMethod(javactorInfo.getPreStart());
 	}
 
-	private SupervisorStrategyInfo getSupervisorStrategyInfo(Object javactor)
+	@Override
+	public void onReceive(Object message) throws Exception
 	{
+		javactorContext.startHandling();
 		try
 		{
-			Method[] methods = javactor.getClass().getMethods();
-			for (Method method : methods)
-			{
-				if ( SupervisorStrategyInfo.class.isAssignableFrom(method.getReturnType()) )
-					return (SupervisorStrategyInfo) method.invoke(javactor);
-			}
-			return new SupervisorStrategyInfo();
-		} catch (Throwable e)
+			dispatch(message);
+		} finally
 		{
-			throw new RuntimeException(e);
+			javactorContext.endHandling();
 		}
 	}
-	
-	private ImmutableMap<Class<?>, Method> getOnExceptionMethods(
-		Class<?> javactorClass)
+
+	private void dispatch(Object message) throws Exception
 	{
-		Builder<Class<?>, Method> result = ImmutableMap.builder();
-		ImmutableSet<Method> methods = getMethodsWithAnnotation(javactorClass, OnException.class);
-		for (Method method : methods)
+		if ( message == RequestTick.INSTANCE ) {
+			expireRequests();
+			return;
+		}
+		if ( message == BatchFlush.INSTANCE ) {
+			batchFlushPending = false;
+			flushBatches();
+			handleUnstashed();
+			return;
+		}
+		if ( message instanceof KeyedTimers.Fired ) {
+			message = timers == null ? null : timers.fired((KeyedTimers.Fired) message);
+			if ( message == null )
+				return;
+		}
+		if ( requests != null && requests.done(message) && metrics != null )
+			metrics.requestCompleted();
+		
+		/* Scheduled publishes no longer come through here, but others may still
+		 * send PostMsgs */
+		if ( message instanceof PostMsg ) {
+			JavactorEventBus.get(context().system()).publish(((PostMsg) message).getPayload());
+			return;
+		}
+		
+		if ( message instanceof Terminated )
 		{
-			result.put(method.getParameterTypes()[0], method);
+			message = new javactor.msg.Terminated();
 		}
-		return result.build();
+		
+		handle(message);
+		handleUnstashed();
 	}
 
-	private ImmutableSet<Method> getMethodsWithAnnotation(
-		Class<?> clazz, Class<OnException> annotClass)
+	private void handle(Object message) throws Exception
 	{
-		com.google.common.collect.ImmutableSet.Builder<Method> result = ImmutableSet.builder();
-		Method[] methods = clazz.getMethods();
-		for (Method method : methods)
-		{
-			Object annot = method.getAnnotation(annotClass);
-			if ( annot != null  ) {
-				result.add(method);
+		final Class<? extends Object> msgClass = message.getClass();
+		MethodInvoker invoker = handlers.get(msgClass);
+		if ( invoker instanceof BatchHandler ) {
+			addToBatch((BatchHandler) invoker, message);
+			return;
+		}
+		/* Messages collected before this one are handled before it */
+		if ( numBatched > 0 )
+			flushBatches();
+		if ( invoker != null ) {
+			stashable = message;
+			try
+			{
+				invoke(invoker, message);
+			} finally
+			{
+				stashable = null;
 			}
+			return;
 		}
-		return result.build();
+		if ( metrics != null )
+			metrics.unhandled(msgClass);
+		unhandled(message);
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	private void callAnnotatedMethod(Class annotClass) throws Exception
+	private void stash()
 	{
-		Method[] methods = javactor.getClass().getMethods();
-		for (Method method : methods)
-		{
-			Object prestartAnnot = method.getAnnotation(annotClass);
-			if ( prestartAnnot != null ) {
-				methodInvoke(method, javactor);
-				return;
-			}
-		}
+		if ( stashable == null )
+			throw new IllegalStateException("Only a message being handled by a "
+				+ "Handle method can be stashed.");
+		if ( stash == null )
+			stash = new Stash<>(JavactorContext.STASH_CAPACITY);
+		stash.stash(new Stashed(stashable, (ActorRef) javactorContext.sender()));
+		stashable = null;
 	}
 
-	private ImmutableSortedMap<Class<?>, Method> getHandleMethodsByMsgClass()
+	/**
+	 * Handles unstashed messages right away, as Akka's mailbox cannot take
+	 * them back at its head
+	 */
+	private void handleUnstashed() throws Exception
 	{
-		Method[] methods = javactor.getClass().getMethods();
-		ImmutableSortedMap.Builder<Class<?>,Method> builder = 
-			ImmutableSortedMap.orderedBy(new MostToLeastSpecificComparator());
-		for (Method method : methods)
+		if ( stash == null )
+			return;
+		for (Stashed next = stash.pollUnstashed(); next != null; 
+			next = stash.pollUnstashed())
 		{
-			Handle handleAnnot = method.getAnnotation(Handle.class);
-			if ( handleAnnot != null ) {
-				Class<?>[] parameterTypes = method.getParameterTypes();
-				if ( parameterTypes.length <= 0 )
-					throw new RuntimeException("@Handle method "+method+
-						" does not have a parameter.");
-				final Class<?> msgClass = parameterTypes[0];
-				builder.put(msgClass, method);
-			};
+			unstashing = next;
+			try
+			{
+				handle(next.message);
+			} finally
+			{
+				unstashing = null;
+			}
 		}
-		return builder.build();
 	}
 
-	private Field getJavactorContextField(Class<?> clazz)
+	/**
+	 * Sends the stashed messages to self, so that the restarted actor handles
+	 * them, or, if stopping, to dead letters
+	 */
+	private void resendStashed(boolean stopping)
 	{
-		Field[] fields = clazz.getDeclaredFields();
-		for (Field field : fields)
+		if ( stash == null )
+			return;
+		final List<Stashed> stashed = new ArrayList<>();
+		stash.drainTo(stashed);
+		final ActorRef deadLetters = context().system().deadLetters();
+		for (Stashed next : stashed)
 		{
-			if ( JavactorContext.class.isAssignableFrom(field.getType()) ) {
-				field.setAccessible(true);
-				return field;
-			}
+			if ( stopping )
+				deadLetters.tell(new DeadLetter(next.message, next.sender == null ? 
+					deadLetters : next.sender, self()), next.sender);
+			else
+				self().tell(next.message, next.sender);
 		}
-		Class<?> superclass = clazz.getSuperclass();
-		return superclass == null ? null : getJavactorContextField(superclass);
 	}
 
-
-	@Override
-	public void onReceive(Object message) throws Exception
+	private void invoke(MethodInvoker invoker, Object arg) throws Exception
 	{
-		doneWaitingFor(message.getClass());
-		
-		if ( message instanceof PostMsg ) {
-			context().system().eventStream().publish(((PostMsg) message).getPayload());
+		if ( metrics == null ) {
+			invoker.invoke(javactor, arg);
 			return;
 		}
-		
-		if ( message instanceof Terminated )
+		final long start = System.nanoTime();
+		try
 		{
-			message = new javactor.msg.Terminated();
+			invoker.invoke(javactor, arg);
+		} finally
+		{
+			metrics.handled(invoker, System.nanoTime() - start);
 		}
-		
-		AkkaJavactorContext context = createJavactorContext();
-		setContextOnJavactor(context);
-		final Class<? extends Object> msgClass = message.getClass();
-		final Class<? extends Object> javactorClass = javactor.getClass();
-		Method method = getCachedHandleMethodForClass(msgClass, javactorInfoByJavactorType.get(javactorClass));
-		if ( method != null ) {
-			methodInvoke(method, javactor, message);
-			return;
+	}
+
+	private void addToBatch(BatchHandler handler, Object message) throws Exception
+	{
+		if ( batches == null )
+			batches = new Batch[javactorInfo.getNumBatchHandlers()];
+		Batch batch = batches[handler.getIndex()];
+		if ( batch == null ) {
+			batch = new Batch(handler);
+			batches[handler.getIndex()] = batch;
+		}
+		batch.messages.add(message);
+		numBatched++;
+		if ( batch.messages.size() >= handler.getMaxSize() )
+			flush(batch);
+		else if ( !batchFlushPending ) {
+			batchFlushPending = true;
+			self().tell(BatchFlush.INSTANCE, self());
 		}
-		unhandled(message);
 	}
 
-	private Method getCachedHandleMethodForClass(
-		final Class<? extends Object> msgClass, JavactorInfo javactorInfo)
+	private void flushBatches() throws Exception
 	{
-		final ImmutableMap<Class<?>, Method> methodsByMessageClass = javactorInfo.getMethodsByMessageClass();
-		Method method = null;
-		if ( methodsByMessageClass.containsKey(msgClass) ) 
+		if ( batches == null )
+			return;
+		for (Batch batch : batches)
 		{
-			method = methodsByMessageClass.get(msgClass);
-		} else {
-			ImmutableSet<Entry<Class<?>, Method>> entrySet = methodsByMessageClass.entrySet();
-			for (Entry<Class<?>, Method> entry : entrySet)
-			{
-				if ( entry.getKey().isAssignableFrom(msgClass) ) {
-					method = entry.getValue();
-					break;
-				}
-			}
+			if ( batch != null && !batch.messages.isEmpty() )
+				flush(batch);
 		}
-		return method;
 	}
 
-	private void setContextOnJavactor(AkkaJavactorContext context)
+	/**
+	 * Hands the collected messages over to the handler, which may keep them
+	 */
+	private void flush(Batch batch) throws Exception
 	{
-		try
-		{
-			Field javactorContextField = javactorInfoByJavactorType.get(javactor.getClass())
-				.getJavactorContextField();
-			if ( javactorContextField != null )
-				javactorContextField.set(javactor, context);
-		} catch (IllegalArgumentException | IllegalAccessException e)
+		final List<Object> messages = batch.messages;
+		batch.messages = new ArrayList<>(messages.size());
+		numBatched -= messages.size();
+		invoke(batch.handler, messages);
+	}
+
+	/**
+	 * So that the restarted actor handles them
+	 */
+	private void resendBatched()
+	{
+		if ( numBatched == 0 )
+			return;
+		for (Batch batch : batches)
 		{
-			throw new RuntimeException(e);
+			if ( batch == null )
+				continue;
+			for (Object message : batch.messages)
+				self().tell(message, self());
+			batch.messages.clear();
 		}
+		numBatched = 0;
 	}
 
-	private AkkaJavactorContext createJavactorContext()
+	private void callLifecycleMethod(MethodInvoker invoker) throws Exception
 	{
-		return new AkkaJavactorContext();
+		if ( invoker != null )
+			invoker.invoke(javactor);
 	}
 
 	@Override
 	public void postStop() throws Exception
 	{
 		super.postStop();
-		setContextOnJavactor(createJavactorContext());
-		Method[] methods = javactor.getClass().getMethods();
-		for (Method method : methods)
+		stopRequestTicker();
+		stopTimers();
+		resendStashed(true);
+		if ( subscribeToEventStream )
+			JavactorEventBus.get(context().system()).unsubscribe(getSelf(), 
+				javactorInfo.getHandledClasses());
+		for (MethodInvoker invoker : javactorInfo.getPostStop())
 		{
-			PostStop annot = method.getAnnotation(PostStop.class);
-			if ( annot != null ) {
-				methodInvoke(method, javactor);
-			}	
+			invoker.invoke(javactor);
 		}
-	}
-
-	private Object methodInvoke(Method method, Object target, Object... args) 
-		throws Exception
-	{
-		try
-		{
-			return method.invoke(target, args);
-		} catch (InvocationTargetException e)
-		{
-			throw (Exception)e.getCause();
+		/* Also called by preRestart, after which a new actor, with a new 
+		 * javactor, takes over */
+		if ( recycler != null ) {
+			recycler.release(javactor);
+			recycler = null;
 		}
 	}
 
 	@Override
 	public SupervisorStrategy supervisorStrategy()
 	{
-		SupervisorStrategyInfo info = javactorInfoByJavactorType
-			.get(javactor.getClass()).getSupervisorStrategyInfo().getInfo();
+		if ( supervisorStrategy == null )
+			supervisorStrategy = newSupervisorStrategy();
+		return supervisorStrategy;
+	}
+
+	private SupervisorStrategy newSupervisorStrategy()
+	{
+		SupervisorStrategyInfo info = javactorInfo.getSupervisorStrategyInfo();
 		Duration withinDuration = toDuration(info.getTimeRange(), info.getTimeUnit());
 		final int maxNumRetries = info.getMaxNumRetries();
 		final boolean loggingEnabled = info.isLoggingEnabled();
 		return info.getType().equals(SupervisorStrategyType.ONE_FOR_ONE) ?
 			new OneForOneStrategy(maxNumRetries, 
 				withinDuration,
-				myDecider(),
+				decider,
 				loggingEnabled 
 				) :
 			new AllForOneStrategy(maxNumRetries, 
 				withinDuration,
-				myDecider(),
+				decider,
 				loggingEnabled 
 				);
 	}
@@ -709,30 +1088,122 @@ public class JavactorUntypedActor extends UntypedActor
 		throws Exception
 	{
 		log.severe("restarting for reason: "+reason);
-		setContextOnJavactor(createJavactorContext());
-		callAnnotatedMethod(PreRestart.class);
+		resendBatched();
+		resendStashed(false);
+		callLifecycleMethod(javactorInfo.getPreRestart());
 		super.preRestart(reason, message);
+		/* After postStop, which stops the ticker */
+		if ( requests != null && !requests.isEmpty() )
+			handOverRequests();
+	}
+
+	private void handOverRequests()
+	{
+		final ActorRef self = self();
+		final PendingRequests pending = new PendingRequests(requests, lastCorrelationId);
+		restartingRequests.put(self, pending);
+		final FiniteDuration untilTimedOut = Duration.create(
+			requests.getLatestDeadlineMillis() - nowMillis() + REQUEST_TICK_MILLIS, 
+			TimeUnit.MILLISECONDS);
+		context().system().scheduler().scheduleOnce(untilTimedOut, new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					restartingRequests.remove(self, pending);
+				}
+			}, context().dispatcher());
 	}
 
 	@Override
 	public void postRestart(Throwable reason) throws Exception
 	{
-		setContextOnJavactor(createJavactorContext());
-		callAnnotatedMethod(PostRestart.class);
+		/* New actor instance, possibly for the same javactor, so inject our context
+		 * before calling it */
+		init();
+		final PendingRequests pending = restartingRequests.remove(self());
+		if ( pending != null ) {
+			lastCorrelationId = pending.lastCorrelationId;
+			requests = pending.requests;
+			if ( !requests.isEmpty() )
+				startRequestTicker();
+		}
+		callLifecycleMethod(javactorInfo.getPostRestart());
 		super.postRestart(reason);
 	}
 	
-	public void startWaitingFor(Class<?> response, FiniteDuration timeout, 
+	/**
+	 * @return the correlation ID of the request, or {@link Correlated#NONE} if
+	 * its message is not {@link Correlated}
+	 */
+	public long startWaitingFor(Object msg, Class<?> response, FiniteDuration timeout, 
 		Object taskInfo)
 	{
-		requests.put(response, context().system().scheduler().scheduleOnce(timeout,
-			self(), new TimeoutMsg(taskInfo), context().dispatcher(), self()));
+		final long now = nowMillis();
+		if ( requests == null )
+			requests = new RequestTracker(REQUEST_TICK_MILLIS, REQUEST_TICKS_PER_WHEEL, 
+				now);
+		final long correlationId = requests.start(msg, response, taskInfo, 
+			timeout.toMillis(), now);
+		if ( metrics != null )
+			metrics.requestStarted();
+		startRequestTicker();
+		return correlationId;
+	}
+
+	private void startRequestTicker()
+	{
+		if ( requestTicker == null ) {
+			final FiniteDuration tick = Duration.create(REQUEST_TICK_MILLIS, 
+				TimeUnit.MILLISECONDS);
+			requestTicker = context().system().scheduler().schedule(tick, tick, 
+				self(), RequestTick.INSTANCE, context().dispatcher(), self());
+		}
+	}
+
+	private long newCorrelationId()
+	{
+		if ( ++lastCorrelationId == Correlated.NONE )
+			++lastCorrelationId;
+		return lastCorrelationId;
+	}
+
+	/**
+	 * Sends a {@link TimeoutMsg} to self for each request that has timed out,
+	 * and stops ticking once none are pending
+	 */
+	private void expireRequests()
+	{
+		if ( requests == null )
+			return;
+		requests.expire(nowMillis(), expiredRequests);
+		for (TimeoutMsg timeoutMsg : expiredRequests)
+		{
+			if ( metrics != null )
+				metrics.requestTimedOut();
+			self().tell(timeoutMsg, self());
+		}
+		expiredRequests.clear();
+		if ( requests.isEmpty() )
+			stopRequestTicker();
+	}
+
+	private void stopTimers()
+	{
+		if ( timers != null )
+			timers.cancelAll();
+	}
+
+	private void stopRequestTicker()
+	{
+		if ( requestTicker != null ) {
+			requestTicker.cancel();
+			requestTicker = null;
+		}
 	}
 
-	private void doneWaitingFor(Class<? extends Object> class1)
+	private static long nowMillis()
 	{
-		final akka.actor.Cancellable cancellable = requests.remove(class1);
-		if ( cancellable != null )
-			cancellable.cancel();
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
 	}
 }
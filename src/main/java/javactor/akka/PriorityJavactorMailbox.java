@@ -0,0 +1,126 @@
+package javactor.akka;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javactor.annot.Priority.Level;
+import javactor.util.MessagePriorities;
+import javactor.util.PriorityMailboxQueue;
+import scala.Option;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Terminated;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+
+import com.google.common.collect.ImmutableMap;
+import com.typesafe.config.Config;
+
+/**
+ * The mailbox type of javactors built with
+ * {@link javactor.JavactorContext.ActorBuilder#priorityMailbox()}, configured
+ * as {@link #CONFIG_ID} in reference.conf. As with
+ * {@link BoundedJavactorMailbox}, the builder hands its priorities to the
+ * mailbox type on the parent's thread. Akka's {@link Terminated} is
+ * {@link Level#HIGH}, as javactor's is.
+ */
+public class PriorityJavactorMailbox implements MailboxType
+{
+	public static final String CONFIG_ID = "javactor.priority-mailbox";
+
+	private static final MessagePriorities DEFAULT_PRIORITIES =
+		new MessagePriorities(ImmutableMap.<Class<?>, Level>of(
+			Terminated.class, Level.HIGH));
+
+	private static final ThreadLocal<MessagePriorities> childPriorities =
+		new ThreadLocal<>();
+
+	public PriorityJavactorMailbox(ActorSystem.Settings settings, Config config)
+	{
+	}
+
+	/**
+	 * Sets the priorities of the mailboxes created on this thread until
+	 * cleared with null
+	 */
+	static void setChildPriorities(MessagePriorities priorities)
+	{
+		if ( priorities == null )
+			childPriorities.remove();
+		else
+			childPriorities.set(priorities);
+	}
+
+	/**
+	 * @return the default priorities, with the overrides
+	 */
+	static MessagePriorities priorities(Map<Class<?>, Level> overrides)
+	{
+		if ( overrides.isEmpty() )
+			return DEFAULT_PRIORITIES;
+		final Map<Class<?>, Level> priorities = new HashMap<>();
+		priorities.put(Terminated.class, Level.HIGH);
+		priorities.putAll(overrides);
+		return new MessagePriorities(priorities);
+	}
+
+	@Override
+	public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system)
+	{
+		final MessagePriorities priorities = childPriorities.get();
+		return new PriorityJavactorMessageQueue(
+			priorities == null ? DEFAULT_PRIORITIES : priorities);
+	}
+
+	static private class PriorityJavactorMessageQueue implements MessageQueue
+	{
+		private final PriorityMailboxQueue<Envelope> queue;
+
+		private PriorityJavactorMessageQueue(MessagePriorities priorities)
+		{
+			queue = new PriorityMailboxQueue<Envelope>(priorities)
+			{
+				@Override
+				protected Object message(Envelope envelope)
+				{
+					return envelope.message();
+				}
+			};
+		}
+
+		@Override
+		public void enqueue(ActorRef receiver, Envelope handle)
+		{
+			queue.offer(handle);
+		}
+
+		@Override
+		public Envelope dequeue()
+		{
+			return queue.poll();
+		}
+
+		@Override
+		public int numberOfMessages()
+		{
+			return queue.size();
+		}
+
+		@Override
+		public boolean hasMessages()
+		{
+			return !queue.isEmpty();
+		}
+
+		@Override
+		public void cleanUp(ActorRef owner, MessageQueue deadLetters)
+		{
+			for (Envelope envelope = queue.poll(); envelope != null;
+				envelope = queue.poll())
+			{
+				deadLetters.enqueue(owner, envelope);
+			}
+		}
+	}
+}
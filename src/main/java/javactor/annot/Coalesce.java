@@ -0,0 +1,26 @@
+package javactor.annot;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks {@link Handle} methods for which only the latest message matters,
+ * e.g., of prices or health snapshots. While a message of the method's type
+ * waits in the mailbox, a newer one with the same {@link #key()} replaces it,
+ * keeping its place in the mailbox, so a burst of updates is handled once per
+ * key. Applies to actors with the default mailbox, whatever their state;
+ * bounded and priority mailboxes keep every message. Messages that are
+ * {@link javactor.msg.Correlated} replies are never coalesced.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesce {
+	/**
+	 * The property of the message, read with its getter, e.g.,
+	 * <code>getSymbol()</code> for <code>symbol</code>, whose value messages
+	 * are coalesced by. By default, all messages of the type are coalesced.
+	 */
+	String key() default "";
+}
@@ -8,4 +8,11 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface Handle {
-}
\ No newline at end of file
+	/**
+	 * The state, as set by {@link javactor.JavactorContext#become(String)}, in
+	 * which the method handles messages. In that state, it takes precedence
+	 * over a method without a state for the same message type. By default,
+	 * the method handles messages in all states.
+	 */
+	String state() default "";
+}
@@ -0,0 +1,22 @@
+package javactor.annot;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks methods that handle messages in batches. Methods must accept a 
+ * <code>java.util.List</code> of the message type, e.g., 
+ * <code>void handle(List&lt;Event&gt; batch)</code>. Messages of the type 
+ * are collected, in order, until the actor has processed whatever else was in
+ * its mailbox, or until there are {@link #maxSize()} of them, and then 
+ * handled together. Handling any other message first handles the collected 
+ * batches, so messages are never handled out of order. The method may keep 
+ * the list. The sender is not meaningful within the method.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface HandleBatch {
+	int maxSize() default 256;
+}
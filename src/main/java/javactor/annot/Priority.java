@@ -0,0 +1,26 @@
+package javactor.annot;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the priority of a message class, and its subclasses, in the mailboxes
+ * of actors built with
+ * {@link javactor.JavactorContext.ActorBuilder#priorityMailbox()}. Messages
+ * are handled highest priority first, and in the order they arrived within a
+ * priority. Unannotated classes are {@link Level#NORMAL}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface Priority {
+	public enum Level {
+		HIGH,
+		NORMAL,
+		LOW
+	}
+	Level value();
+}
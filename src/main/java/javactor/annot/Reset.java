@@ -0,0 +1,18 @@
+package javactor.annot;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the method that returns a javactor to its freshly constructed state,
+ * so that a {@link javactor.PooledJavactorFactory} can reuse it for another
+ * actor. It is called after the {@link PostStop} methods, and must drop
+ * everything that refers to the stopped actor, e.g., actor refs and pending
+ * work. The injected context is replaced before the javactor is reused.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Reset {
+}
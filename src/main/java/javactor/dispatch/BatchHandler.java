@@ -0,0 +1,53 @@
+package javactor.dispatch;
+
+import javactor.annot.HandleBatch;
+
+/**
+ * What a {@link HandlerTable} holds for a {@link HandleBatch} method. Invoking
+ * it passes the argument, the list of messages, to the method.
+ */
+public final class BatchHandler extends MethodInvoker
+{
+	private final MethodInvoker invoker;
+	private final int maxSize;
+	private final int index;
+
+	BatchHandler(MethodInvoker invoker, int maxSize, int index)
+	{
+		this.invoker = invoker;
+		this.maxSize = maxSize;
+		this.index = index;
+	}
+
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	/**
+	 * Distinct for each batch handler of a javactor class, from 0 to 
+	 * {@link JavactorInfo#getNumBatchHandlers()} - 1
+	 */
+	public int getIndex()
+	{
+		return index;
+	}
+
+	@Override
+	public Object invoke(Object target) throws Exception
+	{
+		return invoker.invoke(target);
+	}
+
+	@Override
+	public Object invoke(Object target, Object batch) throws Exception
+	{
+		return invoker.invoke(target, batch);
+	}
+
+	@Override
+	public String toString()
+	{
+		return invoker.toString();
+	}
+}
@@ -0,0 +1,72 @@
+package javactor.dispatch;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * Base class of the dispatchers generated by the
+ * {@link JavactorDispatcherProcessor}. Each javactor method is identified by
+ * its index, and {@link #invoke(Object, int, Object)} calls it directly.
+ */
+public abstract class GeneratedJavactorDispatcher extends JavactorDispatcher
+{
+	private final class IndexInvoker extends MethodInvoker
+	{
+		private final int index;
+
+		private IndexInvoker(int index)
+		{
+			this.index = index;
+		}
+
+		@Override
+		public Object invoke(Object target) throws Exception
+		{
+			return GeneratedJavactorDispatcher.this.invoke(target, index, null);
+		}
+
+		@Override
+		public Object invoke(Object target, Object arg) throws Exception
+		{
+			return GeneratedJavactorDispatcher.this.invoke(target, index, arg);
+		}
+
+		@Override
+		public String toString()
+		{
+			return GeneratedJavactorDispatcher.this.getClass().getName()+"#"+index;
+		}
+	}
+
+	protected final JavactorMethod method(Class<? extends Annotation> annotationType,
+		Class<?> parameterType, int index)
+	{
+		return new JavactorMethod(annotationType, parameterType, new IndexInvoker(index));
+	}
+
+	protected final JavactorMethod method(Class<? extends Annotation> annotationType,
+		Class<?> parameterType, int index, String state)
+	{
+		return new JavactorMethod(annotationType, parameterType, new IndexInvoker(index),
+			state);
+	}
+
+	protected final JavactorMethod method(Class<? extends Annotation> annotationType,
+		Class<?> parameterType, int index, String state, String coalesceKey)
+	{
+		return new JavactorMethod(annotationType, parameterType, new IndexInvoker(index),
+			state, coalesceKey);
+	}
+
+	protected final JavactorMethod method(Class<? extends Annotation> annotationType,
+		Class<?> parameterType, int index, int maxBatchSize)
+	{
+		return new JavactorMethod(annotationType, parameterType, new IndexInvoker(index),
+			maxBatchSize);
+	}
+
+	/**
+	 * @param arg ignored if the method does not have a parameter
+	 */
+	protected abstract Object invoke(Object javactor, int index, Object arg) 
+		throws Exception;
+}
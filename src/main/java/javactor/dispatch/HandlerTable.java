@@ -0,0 +1,114 @@
+package javactor.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The handle methods of a javactor class, by the message class they accept,
+ * or its {@link javactor.annot.OnException} methods, by exception class.
+ * A message is handled by the method for its most specific handled
+ * supertype. If several unrelated handled supertypes qualify, which can only
+ * happen with interfaces, a class is preferred over an interface, then the
+ * first by name.
+ * <p>
+ * Resolutions are cached by concrete message class, including the absence of
+ * a handler, so that only the first message of each class pays for the
+ * resolution. The cache is bounded; classes seen past its capacity are
+ * resolved every time.
+ */
+public class HandlerTable
+{
+	public static final int DEFAULT_MAX_CACHED = 1024;
+
+	private static final MethodInvoker NO_HANDLER = new MethodInvoker()
+	{
+		@Override
+		public Object invoke(Object target)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Object invoke(Object target, Object arg)
+		{
+			throw new UnsupportedOperationException();
+		}
+	};
+
+	private final ImmutableMap<Class<?>, MethodInvoker> handlersByMsgClass;
+	private final ConcurrentHashMap<Class<?>, MethodInvoker> resolved;
+	private final int maxCached;
+
+	public HandlerTable(ImmutableMap<Class<?>, MethodInvoker> handlersByMsgClass)
+	{
+		this(handlersByMsgClass, DEFAULT_MAX_CACHED);
+	}
+
+	public HandlerTable(ImmutableMap<Class<?>, MethodInvoker> handlersByMsgClass,
+		int maxCached)
+	{
+		this.handlersByMsgClass = handlersByMsgClass;
+		this.maxCached = Math.max(maxCached, handlersByMsgClass.size());
+		this.resolved = new ConcurrentHashMap<>(handlersByMsgClass);
+	}
+
+	public ImmutableSet<Class<?>> handledClasses()
+	{
+		return handlersByMsgClass.keySet();
+	}
+
+	/**
+	 * @return null if no method handles the message class
+	 */
+	public MethodInvoker get(Class<?> msgClass)
+	{
+		MethodInvoker result = resolved.get(msgClass);
+		if ( result == null ) {
+			result = resolve(msgClass);
+			if ( resolved.size() < maxCached )
+				resolved.putIfAbsent(msgClass, result);
+		}
+		return result == NO_HANDLER ? null : result;
+	}
+
+	private MethodInvoker resolve(Class<?> msgClass)
+	{
+		List<Class<?>> candidates = new ArrayList<>();
+		for (Class<?> handled : handlersByMsgClass.keySet())
+		{
+			if ( handled.isAssignableFrom(msgClass) )
+				candidates.add(handled);
+		}
+		Class<?> best = null;
+		for (Class<?> candidate : candidates)
+		{
+			if ( isMostSpecific(candidate, candidates) 
+				&& (best == null || isPreferred(candidate, best)) )
+			{
+				best = candidate;
+			}
+		}
+		return best == null ? NO_HANDLER : handlersByMsgClass.get(best);
+	}
+
+	private static boolean isMostSpecific(Class<?> candidate, List<Class<?>> candidates)
+	{
+		for (Class<?> other : candidates)
+		{
+			if ( other != candidate && candidate.isAssignableFrom(other) )
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isPreferred(Class<?> candidate, Class<?> best)
+	{
+		if ( candidate.isInterface() != best.isInterface() )
+			return best.isInterface();
+		return candidate.getName().compareTo(best.getName()) < 0;
+	}
+}
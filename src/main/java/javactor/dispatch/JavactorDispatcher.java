@@ -0,0 +1,68 @@
+package javactor.dispatch;
+
+import java.util.List;
+
+import javactor.JavactorContext;
+import javactor.JavactorContext.SupervisorStrategyInfo;
+
+/**
+ * Everything a Javactor implementation needs to interact with the javactors
+ * of one class: their annotated methods, the injection of the
+ * {@link JavactorContext}, and their {@link SupervisorStrategyInfo}.
+ * <p>
+ * If the {@link JavactorDispatcherProcessor} was run when compiling a
+ * javactor class, {@link #forClass(Class)} returns the dispatcher it 
+ * generated, which does all of this with plain Java code. Otherwise, a
+ * dispatcher based on reflection is returned.
+ */
+public abstract class JavactorDispatcher
+{
+	/**
+	 * Appended to the binary name of a javactor class to get the name of its
+	 * generated dispatcher
+	 */
+	public static final String GENERATED_CLASS_SUFFIX = "$$JavactorDispatcher";
+
+	static public JavactorDispatcher forClass(Class<?> javactorClass)
+	{
+		final JavactorDispatcher generated = generatedForClass(javactorClass);
+		return generated != null ? generated : 
+			new ReflectiveJavactorDispatcher(javactorClass);
+	}
+
+	private static JavactorDispatcher generatedForClass(Class<?> javactorClass)
+	{
+		final Class<?> dispatcherClass;
+		try
+		{
+			dispatcherClass = Class.forName(
+				javactorClass.getName() + GENERATED_CLASS_SUFFIX, true, 
+				javactorClass.getClassLoader());
+		} catch (ClassNotFoundException e)
+		{
+			return null;
+		}
+		try
+		{
+			return (JavactorDispatcher) dispatcherClass.getConstructor().newInstance();
+		} catch (ReflectiveOperationException | ClassCastException e)
+		{
+			throw new RuntimeException("Could not create generated dispatcher "
+				+dispatcherClass, e);
+		}
+	}
+
+	public abstract List<JavactorMethod> methods();
+
+	/**
+	 * Sets the context on the javactor's {@link JavactorContext} field, if it
+	 * has one
+	 */
+	public abstract void injectContext(Object javactor, JavactorContext ctx);
+
+	/**
+	 * @return null if the javactor does not have a method returning its
+	 * {@link SupervisorStrategyInfo}
+	 */
+	public abstract SupervisorStrategyInfo supervisorStrategyInfo(Object javactor);
+}
@@ -0,0 +1,450 @@
+package javactor.dispatch;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javactor.JavactorContext;
+import javactor.JavactorContext.SupervisorDirective;
+import javactor.JavactorContext.SupervisorStrategyInfo;
+import javactor.annot.Coalesce;
+import javactor.annot.Handle;
+import javactor.annot.HandleBatch;
+import javactor.annot.OnException;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a {@link GeneratedJavactorDispatcher} for each javactor class
+ * being compiled, so that Javactor implementations need no reflection to
+ * find and call its methods. Also reports badly formed javactor methods as
+ * compile errors.
+ * <p>
+ * Optional: enable it with <code>-processor
+ * javactor.dispatch.JavactorDispatcherProcessor</code>. Javactor classes
+ * compiled without it fall back to reflection. So do classes the generated
+ * code cannot access, e.g., private nested classes, or classes whose
+ * {@link JavactorContext} field is private or final. A warning is reported for
+ * these.
+ */
+@SupportedAnnotationTypes({"javactor.annot.*"})
+public class JavactorDispatcherProcessor extends AbstractProcessor
+{
+	private static final String CONTEXT_PARAM = "ctx";
+
+	private static final class AnnotatedMethod
+	{
+		private final Class<? extends Annotation> annotationType;
+		private final ExecutableElement element;
+
+		private AnnotatedMethod(Class<? extends Annotation> annotationType,
+			ExecutableElement element)
+		{
+			this.annotationType = annotationType;
+			this.element = element;
+		}
+	}
+
+	private final Set<ExecutableElement> reported = new HashSet<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations,
+		RoundEnvironment roundEnv)
+	{
+		Set<TypeElement> types = new LinkedHashSet<>();
+		for (Element element : roundEnv.getRootElements())
+		{
+			addClasses(element, types);
+		}
+		for (TypeElement type : types)
+		{
+			List<AnnotatedMethod> methods = getJavactorMethods(type);
+			if ( !methods.isEmpty() && isValid(type, methods) && isGeneratable(type, methods) )
+				generate(type, methods);
+		}
+		return false;
+	}
+
+	private void addClasses(Element element, Set<TypeElement> result)
+	{
+		if ( element.getKind() == ElementKind.CLASS )
+			result.add((TypeElement) element);
+		for (TypeElement nested : ElementFilter.typesIn(element.getEnclosedElements()))
+		{
+			addClasses(nested, result);
+		}
+	}
+
+	private List<AnnotatedMethod> getJavactorMethods(TypeElement type)
+	{
+		List<AnnotatedMethod> result = new ArrayList<>();
+		for (ExecutableElement element : ElementFilter.methodsIn(
+			processingEnv.getElementUtils().getAllMembers(type)))
+		{
+			for (Class<? extends Annotation> annotType : JavactorMethod.ANNOTATIONS)
+			{
+				if ( element.getAnnotation(annotType) == null )
+					continue;
+				if ( element.getModifiers().contains(Modifier.PUBLIC) )
+					result.add(new AnnotatedMethod(annotType, element));
+				else
+					report(Kind.WARNING, element, "@"+annotType.getSimpleName()+
+						" method is not public, and will be ignored.");
+			}
+		}
+		return result;
+	}
+
+	private boolean isValid(TypeElement type, List<AnnotatedMethod> methods)
+	{
+		boolean valid = true;
+		Set<String> handledTypes = new HashSet<>();
+		for (AnnotatedMethod method : methods)
+		{
+			final List<? extends VariableElement> params = method.element.getParameters();
+			final String annotName = "@"+method.annotationType.getSimpleName();
+			if ( method.annotationType == Handle.class ) {
+				if ( params.size() != 1 ) {
+					valid = report(Kind.ERROR, method.element, annotName+
+						" method must have exactly one parameter, the message.");
+				} else if ( !handledTypes.add(state(method.element)+"/"
+					+erasure(params.get(0).asType())) )
+				{
+					valid = report(Kind.ERROR, method.element, "More than one "+
+						annotName+" method for "+params.get(0).asType()+stateInfo(
+							method.element)+" in "+type);
+				}
+			} else if ( method.annotationType == HandleBatch.class ) {
+				final TypeMirror batchType = getBatchType(method.element);
+				if ( batchType == null ) {
+					valid = report(Kind.ERROR, method.element, annotName+" method must "
+						+ "have exactly one parameter, a List of the message type.");
+				} else if ( method.element.getAnnotation(Coalesce.class) != null ) {
+					valid = report(Kind.ERROR, method.element, "@Coalesce only applies to "
+						+ "@Handle methods.");
+				} else if ( method.element.getAnnotation(HandleBatch.class).maxSize() < 1 ) {
+					valid = report(Kind.ERROR, method.element, annotName+
+						" maxSize must be positive.");
+				} else if ( !handledTypes.add("/"+erasure(batchType)) ) {
+					valid = report(Kind.ERROR, method.element, "More than one handle "
+						+ "method for "+batchType+" in "+type);
+				}
+			} else if ( method.annotationType == OnException.class ) {
+				if ( params.size() != 1 || !isSubtype(params.get(0).asType(), Throwable.class)
+					|| !isSubtype(method.element.getReturnType(), SupervisorDirective.class) )
+				{
+					valid = report(Kind.ERROR, method.element, annotName+" method must "
+						+ "accept an exception and return a SupervisorDirective.");
+				}
+			} else if ( !params.isEmpty() ) {
+				valid = report(Kind.ERROR, method.element, annotName+
+					" method must not have parameters.");
+			}
+		}
+		return valid;
+	}
+
+	private boolean isGeneratable(TypeElement type, List<AnnotatedMethod> methods)
+	{
+		String reason = null;
+		if ( type.getModifiers().contains(Modifier.ABSTRACT) )
+			return false;
+		if ( !isAccessible(type) )
+			reason = "it is not accessible from its package";
+		VariableElement contextField = getContextField(type);
+		if ( contextField != null && (contextField.getModifiers().contains(Modifier.PRIVATE)
+			|| contextField.getModifiers().contains(Modifier.FINAL)
+			|| (!contextField.getModifiers().contains(Modifier.PUBLIC)
+				&& !getPackage(contextField).equals(getPackage(type)))) )
+		{
+			reason = "its JavactorContext field is not accessible, or final";
+		}
+		for (AnnotatedMethod method : methods)
+		{
+			for (VariableElement param : method.element.getParameters())
+			{
+				if ( !isAccessible(param.asType()) )
+					reason = "parameter type "+param.asType()+" is not accessible";
+			}
+			if ( method.annotationType == HandleBatch.class
+				&& !isAccessible(getBatchType(method.element)) )
+			{
+				reason = "batch type "+getBatchType(method.element)+" is not accessible";
+			}
+			for (TypeMirror thrown : method.element.getThrownTypes())
+			{
+				if ( !isSubtype(thrown, Exception.class) && !isSubtype(thrown, Error.class) )
+					reason = method.element+" throws "+thrown;
+			}
+		}
+		if ( reason != null ) {
+			processingEnv.getMessager().printMessage(Kind.WARNING, "No dispatcher "
+				+ "generated for "+type+", reflection will be used, since "+reason+".", type);
+			return false;
+		}
+		return true;
+	}
+
+	private PackageElement getPackage(Element element)
+	{
+		return processingEnv.getElementUtils().getPackageOf(element);
+	}
+
+	private boolean isAccessible(TypeMirror type)
+	{
+		if ( type.getKind() == TypeKind.ARRAY )
+			return isAccessible(((ArrayType) type).getComponentType());
+		if ( type.getKind() != TypeKind.DECLARED )
+			return true;
+		return isAccessible((TypeElement) ((DeclaredType) type).asElement());
+	}
+
+	private boolean isAccessible(TypeElement type)
+	{
+		Element element = type;
+		while ( element instanceof TypeElement ) {
+			final NestingKind nesting = ((TypeElement) element).getNestingKind();
+			if ( element.getModifiers().contains(Modifier.PRIVATE)
+				|| nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS )
+			{
+				return false;
+			}
+			element = element.getEnclosingElement();
+		}
+		return true;
+	}
+
+	private VariableElement getContextField(TypeElement type)
+	{
+		TypeElement current = type;
+		while ( current != null ) {
+			for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements()))
+			{
+				if ( isSubtype(field.asType(), JavactorContext.class) )
+					return field;
+			}
+			final TypeMirror superclass = current.getSuperclass();
+			current = superclass.getKind() == TypeKind.DECLARED ?
+				(TypeElement) ((DeclaredType) superclass).asElement() : null;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the element type of the List parameter of a batch method, or 
+	 * null if it does not have one
+	 */
+	private TypeMirror getBatchType(ExecutableElement method)
+	{
+		final List<? extends VariableElement> params = method.getParameters();
+		if ( params.size() != 1 || params.get(0).asType().getKind() != TypeKind.DECLARED )
+			return null;
+		final DeclaredType paramType = (DeclaredType) params.get(0).asType();
+		final TypeElement listElement = processingEnv.getElementUtils()
+			.getTypeElement(List.class.getCanonicalName());
+		if ( !paramType.asElement().equals(listElement)
+			|| paramType.getTypeArguments().size() != 1 )
+		{
+			return null;
+		}
+		final TypeMirror batchType = paramType.getTypeArguments().get(0);
+		return batchType.getKind() == TypeKind.DECLARED ? batchType : null;
+	}
+
+	private ExecutableElement getSupervisorStrategyInfoMethod(TypeElement type)
+	{
+		for (ExecutableElement element : ElementFilter.methodsIn(
+			processingEnv.getElementUtils().getAllMembers(type)))
+		{
+			if ( element.getModifiers().contains(Modifier.PUBLIC)
+				&& element.getParameters().isEmpty()
+				&& isSubtype(element.getReturnType(), SupervisorStrategyInfo.class) )
+			{
+				return element;
+			}
+		}
+		return null;
+	}
+
+	private void generate(TypeElement type, List<AnnotatedMethod> methods)
+	{
+		final PackageElement pkg = getPackage(type);
+		final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		final String qualifiedName = binaryName + JavactorDispatcher.GENERATED_CLASS_SUFFIX;
+		final String simpleName = pkg.isUnnamed() ? qualifiedName :
+			qualifiedName.substring(pkg.getQualifiedName().length() + 1);
+		final String javactorType = erasure(type.asType());
+		StringBuilder src = new StringBuilder();
+		if ( !pkg.isUnnamed() )
+			src.append("package ").append(pkg.getQualifiedName()).append(";\n\n");
+		src.append("/**\n * Generated by ").append(getClass().getName()).append("\n */\n");
+		src.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+		src.append("public final class ").append(simpleName).append(" extends ")
+			.append(GeneratedJavactorDispatcher.class.getName()).append("\n{\n");
+
+		src.append("\tprivate final java.util.List<").append(JavactorMethod.class.getName())
+			.append("> methods = java.util.Collections.unmodifiableList(java.util.Arrays.<")
+			.append(JavactorMethod.class.getName()).append(">asList(");
+		for (int i = 0; i < methods.size(); i++)
+		{
+			final AnnotatedMethod method = methods.get(i);
+			final List<? extends VariableElement> params = method.element.getParameters();
+			src.append(i == 0 ? "\n" : ",\n").append("\t\tmethod(")
+				.append(method.annotationType.getCanonicalName()).append(".class, ");
+			if ( method.annotationType == HandleBatch.class )
+				src.append(erasure(getBatchType(method.element))).append(".class, ").append(i)
+					.append(", ").append(method.element.getAnnotation(HandleBatch.class).maxSize());
+			else
+				src.append(params.isEmpty() ? "null" : erasure(params.get(0).asType())+".class")
+					.append(", ").append(i);
+			final Coalesce coalesce = method.element.getAnnotation(Coalesce.class);
+			if ( method.annotationType == Handle.class
+				&& (!state(method.element).isEmpty() || coalesce != null) )
+			{
+				src.append(", ").append(processingEnv.getElementUtils()
+					.getConstantExpression(state(method.element)));
+				if ( coalesce != null )
+					src.append(", ").append(processingEnv.getElementUtils()
+						.getConstantExpression(coalesce.key()));
+			}
+			src.append(")");
+		}
+		src.append("));\n\n");
+
+		src.append("\t@Override\n\tpublic java.util.List<").append(JavactorMethod.class.getName())
+			.append("> methods()\n\t{\n\t\treturn methods;\n\t}\n\n");
+
+		src.append("\t@Override\n\tpublic void injectContext(Object javactor, ")
+			.append(JavactorContext.class.getName()).append(" ").append(CONTEXT_PARAM)
+			.append(")\n\t{\n");
+		final VariableElement contextField = getContextField(type);
+		if ( contextField != null )
+			src.append("\t\t((").append(javactorType).append(") javactor).")
+				.append(contextField.getSimpleName()).append(" = ").append(CONTEXT_PARAM)
+				.append(";\n");
+		src.append("\t}\n\n");
+
+		src.append("\t@Override\n\tpublic ").append(SupervisorStrategyInfo.class.getCanonicalName())
+			.append(" supervisorStrategyInfo(Object javactor)\n\t{\n\t\treturn ");
+		final ExecutableElement infoMethod = getSupervisorStrategyInfoMethod(type);
+		if ( infoMethod == null )
+			src.append("null");
+		else
+			src.append(target(infoMethod, javactorType)).append(".")
+				.append(infoMethod.getSimpleName()).append("()");
+		src.append(";\n\t}\n\n");
+
+		src.append("\t@Override\n\tprotected Object invoke(Object javactor, int index, Object arg)"
+			+ " throws Exception\n\t{\n\t\tswitch ( index ) {\n");
+		for (int i = 0; i < methods.size(); i++)
+		{
+			final ExecutableElement element = methods.get(i).element;
+			final boolean isVoid = element.getReturnType().getKind() == TypeKind.VOID;
+			src.append("\t\tcase ").append(i).append(":\n\t\t\t");
+			if ( !isVoid )
+				src.append("return ");
+			src.append(target(element, javactorType)).append(".")
+				.append(element.getSimpleName()).append("(");
+			if ( !element.getParameters().isEmpty() )
+				src.append("(").append(castType(element.getParameters().get(0).asType()))
+					.append(") arg");
+			src.append(");\n");
+			if ( isVoid )
+				src.append("\t\t\treturn null;\n");
+		}
+		src.append("\t\tdefault:\n\t\t\tthrow new IllegalArgumentException(\"No javactor "
+			+ "method with index \"+index);\n\t\t}\n\t}\n}\n");
+
+		try
+		{
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+			try (Writer writer = file.openWriter())
+			{
+				writer.write(src.toString());
+			}
+		} catch (IOException e)
+		{
+			processingEnv.getMessager().printMessage(Kind.ERROR,
+				"Could not write dispatcher for "+type+": "+e, type);
+		}
+	}
+
+	private static String state(ExecutableElement handleMethod)
+	{
+		return handleMethod.getAnnotation(Handle.class).state();
+	}
+
+	private static String stateInfo(ExecutableElement handleMethod)
+	{
+		final String state = state(handleMethod);
+		return state.isEmpty() ? "" : " in state "+state;
+	}
+
+	private String target(ExecutableElement method, String javactorType)
+	{
+		return method.getModifiers().contains(Modifier.STATIC) ?
+			erasure(method.getEnclosingElement().asType()) :
+			"(("+javactorType+") javactor)";
+	}
+
+	private String castType(TypeMirror type)
+	{
+		if ( type.getKind().isPrimitive() )
+			return processingEnv.getTypeUtils().boxedClass(
+				processingEnv.getTypeUtils().getPrimitiveType(type.getKind())).toString();
+		return erasure(type);
+	}
+
+	private String erasure(TypeMirror type)
+	{
+		return processingEnv.getTypeUtils().erasure(type).toString();
+	}
+
+	private boolean isSubtype(TypeMirror type, Class<?> superClass)
+	{
+		final TypeElement superElement = processingEnv.getElementUtils()
+			.getTypeElement(superClass.getCanonicalName());
+		return superElement != null && processingEnv.getTypeUtils().isAssignable(
+			processingEnv.getTypeUtils().erasure(type),
+			processingEnv.getTypeUtils().erasure(superElement.asType()));
+	}
+
+	/**
+	 * @return false, for convenience
+	 */
+	private boolean report(Kind kind, ExecutableElement element, String msg)
+	{
+		if ( reported.add(element) )
+			processingEnv.getMessager().printMessage(kind, msg, element);
+		return false;
+	}
+}
@@ -0,0 +1,238 @@
+package javactor.dispatch;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javactor.JavactorContext.SupervisorStrategyInfo;
+import javactor.annot.Handle;
+import javactor.annot.HandleBatch;
+import javactor.annot.OnException;
+import javactor.annot.PostRestart;
+import javactor.annot.PostStop;
+import javactor.annot.PreRestart;
+import javactor.annot.PreStart;
+import lombok.Data;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Everything a Javactor implementation needs to know about a javactor class,
+ * built once per class, the first time {@link #of(Object)} is called for one
+ * of its instances.
+ */
+@Data
+public class JavactorInfo
+{
+	private static final ConcurrentHashMap<Class<?>, FutureTask<JavactorInfo>> 
+		infoByJavactorClass = new ConcurrentHashMap<>();
+
+	private final JavactorDispatcher dispatcher;
+	/**
+	 * Holds a {@link BatchHandler} for each {@link HandleBatch} method. The
+	 * handlers of the default state, i.e., the {@link Handle} methods without
+	 * a {@link Handle#state()}.
+	 */
+	private final HandlerTable handlers;
+	/**
+	 * By {@link Handle#state()}, each with the handlers of the default state
+	 * too, unless overridden for the state
+	 */
+	private final ImmutableMap<String, HandlerTable> stateHandlers;
+	/**
+	 * In any state
+	 */
+	private final ImmutableSet<Class<?>> handledClasses;
+	private final int numBatchHandlers;
+	private final ImmutableMap<Class<?>, MethodInvoker> onExceptionMethods;
+	/**
+	 * The {@link OnException} methods, by the exception class they accept,
+	 * resolved as handle methods are, i.e., most specific first
+	 */
+	private final HandlerTable onExceptionHandlers;
+	/**
+	 * Obtained from the first javactor of the class
+	 */
+	private final SupervisorStrategyInfo supervisorStrategyInfo;
+	/**
+	 * Null if there is no such method
+	 */
+	private final MethodInvoker preStart;
+	private final ImmutableList<MethodInvoker> postStop;
+	/**
+	 * Null if there is no such method
+	 */
+	private final MethodInvoker preRestart;
+	/**
+	 * Null if there is no such method
+	 */
+	private final MethodInvoker postRestart;
+
+	/**
+	 * @param state null or empty for the default state
+	 * @throws IllegalArgumentException if no {@link Handle} method has the 
+	 * state
+	 */
+	public HandlerTable getHandlers(String state)
+	{
+		if ( state == null || state.isEmpty() )
+			return handlers;
+		final HandlerTable result = stateHandlers.get(state);
+		if ( result == null )
+			throw new IllegalArgumentException("No @Handle method has state "+state);
+		return result;
+	}
+
+	/**
+	 * @return whether a handle method accepts the message class, in any state
+	 */
+	public boolean isHandled(Class<?> msgClass)
+	{
+		if ( handlers.get(msgClass) != null )
+			return true;
+		for (HandlerTable table : stateHandlers.values())
+		{
+			if ( table.get(msgClass) != null )
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Callers racing for a class wait for the first of them to build its
+	 * info, rather than all callers waiting on one lock, since building it
+	 * calls into the javactor. If building it fails, the next call tries again.
+	 */
+	static public JavactorInfo of(final Object javactor)
+	{
+		final Class<?> javactorClass = javactor.getClass();
+		FutureTask<JavactorInfo> future = infoByJavactorClass.get(javactorClass);
+		if ( future == null ) {
+			final FutureTask<JavactorInfo> created = new FutureTask<>(
+				new Callable<JavactorInfo>()
+				{
+					@Override
+					public JavactorInfo call()
+					{
+						return new JavactorInfo(javactor, 
+							JavactorDispatcher.forClass(javactorClass));
+					}
+				});
+			future = infoByJavactorClass.putIfAbsent(javactorClass, created);
+			if ( future == null ) {
+				future = created;
+				created.run();
+			}
+		}
+		boolean interrupted = false;
+		try
+		{
+			while ( true ) {
+				try
+				{
+					return future.get();
+				} catch (InterruptedException e)
+				{
+					interrupted = true;
+				} catch (ExecutionException e)
+				{
+					infoByJavactorClass.remove(javactorClass, future);
+					if ( e.getCause() instanceof Error )
+						throw (Error) e.getCause();
+					if ( e.getCause() instanceof RuntimeException )
+						throw (RuntimeException) e.getCause();
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		} finally
+		{
+			if ( interrupted )
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	private JavactorInfo(Object javactor, JavactorDispatcher dispatcher)
+	{
+		this.dispatcher = dispatcher;
+		final List<JavactorMethod> methods = dispatcher.methods();
+		ImmutableMap.Builder<Class<?>, MethodInvoker> handleMethods = ImmutableMap.builder();
+		final Map<String, ImmutableMap.Builder<Class<?>, MethodInvoker>> stateHandleMethods =
+			new HashMap<>();
+		ImmutableMap.Builder<Class<?>, MethodInvoker> onExceptionMethods = ImmutableMap.builder();
+		ImmutableList.Builder<MethodInvoker> postStop = ImmutableList.builder();
+		MethodInvoker preStart = null, preRestart = null, postRestart = null;
+		int numBatchHandlers = 0;
+		for (JavactorMethod method : methods)
+		{
+			final Class<?> annotationType = method.getAnnotationType();
+			final MethodInvoker invoker = method.getInvoker();
+			if ( annotationType == Handle.class ) {
+				if ( method.getParameterType() == null )
+					throw new RuntimeException("@Handle method "+invoker+
+						" does not have a parameter.");
+				if ( method.getState().isEmpty() )
+					handleMethods.put(method.getParameterType(), invoker);
+				else {
+					ImmutableMap.Builder<Class<?>, MethodInvoker> stateMethods = 
+						stateHandleMethods.get(method.getState());
+					if ( stateMethods == null ) {
+						stateMethods = ImmutableMap.builder();
+						stateHandleMethods.put(method.getState(), stateMethods);
+					}
+					stateMethods.put(method.getParameterType(), invoker);
+				}
+			} else if ( annotationType == HandleBatch.class ) {
+				if ( method.getMaxBatchSize() < 1 )
+					throw new RuntimeException("@HandleBatch method "+invoker+
+						" does not have a positive maxSize.");
+				handleMethods.put(method.getParameterType(), new BatchHandler(invoker, 
+					method.getMaxBatchSize(), numBatchHandlers++));
+			} else if ( annotationType == OnException.class ) {
+				onExceptionMethods.put(method.getParameterType(), invoker);
+			} else if ( annotationType == PreStart.class ) {
+				preStart = preStart == null ? invoker : preStart;
+			} else if ( annotationType == PostStop.class ) {
+				postStop.add(invoker);
+			} else if ( annotationType == PreRestart.class ) {
+				preRestart = preRestart == null ? invoker : preRestart;
+			} else if ( annotationType == PostRestart.class ) {
+				postRestart = postRestart == null ? invoker : postRestart;
+			}
+		}
+		final ImmutableMap<Class<?>, MethodInvoker> defaultHandleMethods = 
+			handleMethods.build();
+		this.handlers = new HandlerTable(defaultHandleMethods);
+		final ImmutableMap.Builder<String, HandlerTable> stateHandlers = 
+			ImmutableMap.builder();
+		final ImmutableSet.Builder<Class<?>> handledClasses = ImmutableSet.builder();
+		handledClasses.addAll(defaultHandleMethods.keySet());
+		for (Entry<String, ImmutableMap.Builder<Class<?>, MethodInvoker>> entry : 
+			stateHandleMethods.entrySet())
+		{
+			final ImmutableMap<Class<?>, MethodInvoker> stateMethods = 
+				entry.getValue().build();
+			final Map<Class<?>, MethodInvoker> merged = new HashMap<>(defaultHandleMethods);
+			merged.putAll(stateMethods);
+			stateHandlers.put(entry.getKey(), new HandlerTable(ImmutableMap.copyOf(merged)));
+			handledClasses.addAll(stateMethods.keySet());
+		}
+		this.stateHandlers = stateHandlers.build();
+		this.handledClasses = handledClasses.build();
+		this.numBatchHandlers = numBatchHandlers;
+		this.onExceptionMethods = onExceptionMethods.build();
+		this.onExceptionHandlers = new HandlerTable(this.onExceptionMethods);
+		this.postStop = postStop.build();
+		this.preStart = preStart;
+		this.preRestart = preRestart;
+		this.postRestart = postRestart;
+		final SupervisorStrategyInfo info = dispatcher.supervisorStrategyInfo(javactor);
+		this.supervisorStrategyInfo = info == null ? new SupervisorStrategyInfo() : info;
+	}
+}
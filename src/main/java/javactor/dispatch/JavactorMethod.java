@@ -0,0 +1,89 @@
+package javactor.dispatch;
+
+import java.lang.annotation.Annotation;
+
+import javactor.annot.Coalesce;
+import javactor.annot.Handle;
+import javactor.annot.HandleBatch;
+import javactor.annot.OnException;
+import javactor.annot.PostRestart;
+import javactor.annot.PostStop;
+import javactor.annot.PreRestart;
+import javactor.annot.PreStart;
+import lombok.Data;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A method of a javactor class carrying one of the javactor {@link #ANNOTATIONS},
+ * along with the invoker used to call it.
+ */
+@Data
+public class JavactorMethod
+{
+	@SuppressWarnings("unchecked")
+	public static final ImmutableList<Class<? extends Annotation>> ANNOTATIONS = 
+		ImmutableList.<Class<? extends Annotation>>of(Handle.class, HandleBatch.class, 
+			OnException.class, PreStart.class, PostStop.class, PreRestart.class, 
+			PostRestart.class);
+
+	private final Class<? extends Annotation> annotationType;
+	/**
+	 * Null if the method does not have a parameter. For {@link HandleBatch}
+	 * methods, the type of the messages in the batch.
+	 */
+	private final Class<?> parameterType;
+	private final MethodInvoker invoker;
+	/**
+	 * {@link HandleBatch#maxSize()} for {@link HandleBatch} methods, otherwise 0
+	 */
+	private final int maxBatchSize;
+	/**
+	 * {@link Handle#state()} for {@link Handle} methods, otherwise empty
+	 */
+	private final String state;
+	/**
+	 * {@link Coalesce#key()} for {@link Handle} methods also annotated with
+	 * {@link Coalesce}, otherwise null
+	 */
+	private final String coalesceKey;
+
+	public JavactorMethod(Class<? extends Annotation> annotationType, 
+		Class<?> parameterType, MethodInvoker invoker)
+	{
+		this(annotationType, parameterType, invoker, 0, "", null);
+	}
+
+	public JavactorMethod(Class<? extends Annotation> annotationType, 
+		Class<?> parameterType, MethodInvoker invoker, String state)
+	{
+		this(annotationType, parameterType, invoker, 0, state, null);
+	}
+
+	/**
+	 * @param coalesceKey null if the method is not {@link Coalesce}d
+	 */
+	public JavactorMethod(Class<? extends Annotation> annotationType, 
+		Class<?> parameterType, MethodInvoker invoker, String state, String coalesceKey)
+	{
+		this(annotationType, parameterType, invoker, 0, state, coalesceKey);
+	}
+
+	public JavactorMethod(Class<? extends Annotation> annotationType, 
+		Class<?> parameterType, MethodInvoker invoker, int maxBatchSize)
+	{
+		this(annotationType, parameterType, invoker, maxBatchSize, "", null);
+	}
+
+	private JavactorMethod(Class<? extends Annotation> annotationType, 
+		Class<?> parameterType, MethodInvoker invoker, int maxBatchSize, String state,
+		String coalesceKey)
+	{
+		this.annotationType = annotationType;
+		this.parameterType = parameterType;
+		this.invoker = invoker;
+		this.maxBatchSize = maxBatchSize;
+		this.state = state;
+		this.coalesceKey = coalesceKey;
+	}
+}
@@ -0,0 +1,150 @@
+package javactor.dispatch;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Invokes a single handle, exception handler or life cycle method of a
+ * javactor. Created once per method, so that each invocation is a direct,
+ * monomorphic {@link MethodHandle} call instead of a {@link Method#invoke},
+ * with its varargs array, access check and {@link InvocationTargetException}
+ * wrapping. Reflection is only used if no method handle can be obtained.
+ * <p>
+ * Exceptions thrown by the target method are rethrown as is.
+ */
+public abstract class MethodInvoker
+{
+	private static final MethodType NO_ARG_TYPE =
+		MethodType.methodType(Object.class, Object.class);
+	private static final MethodType ONE_ARG_TYPE =
+		MethodType.methodType(Object.class, Object.class, Object.class);
+
+	static public MethodInvoker of(Method method)
+	{
+		final int numParams = method.getParameterTypes().length;
+		if ( numParams > 1 )
+			throw new IllegalArgumentException("Javactor method "+method+
+				" has more than one parameter.");
+		try
+		{
+			method.setAccessible(true);
+			MethodHandle handle = MethodHandles.lookup().unreflect(method);
+			if ( Modifier.isStatic(method.getModifiers()) )
+				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+			return new MethodHandleInvoker(method,
+				handle.asType(numParams == 0 ? NO_ARG_TYPE : ONE_ARG_TYPE));
+		} catch (IllegalAccessException | RuntimeException e)
+		{
+			return reflective(method);
+		}
+	}
+
+	/**
+	 * The fallback of {@link #of(Method)}
+	 */
+	static MethodInvoker reflective(Method method)
+	{
+		method.setAccessible(true);
+		return new ReflectiveInvoker(method);
+	}
+
+	public abstract Object invoke(Object target) throws Exception;
+
+	public abstract Object invoke(Object target, Object arg) throws Exception;
+
+	static Exception rethrow(Throwable t)
+	{
+		if ( t instanceof Error )
+			throw (Error) t;
+		if ( t instanceof Exception )
+			return (Exception) t;
+		return new UndeclaredThrowableException(t);
+	}
+
+	static private final class MethodHandleInvoker extends MethodInvoker
+	{
+		private final Method method;
+		private final MethodHandle handle;
+
+		private MethodHandleInvoker(Method method, MethodHandle handle)
+		{
+			this.method = method;
+			this.handle = handle;
+		}
+
+		@Override
+		public Object invoke(Object target) throws Exception
+		{
+			try
+			{
+				return (Object) handle.invokeExact(target);
+			} catch (Throwable t)
+			{
+				throw rethrow(t);
+			}
+		}
+
+		@Override
+		public Object invoke(Object target, Object arg) throws Exception
+		{
+			try
+			{
+				return (Object) handle.invokeExact(target, arg);
+			} catch (Throwable t)
+			{
+				throw rethrow(t);
+			}
+		}
+
+		@Override
+		public String toString()
+		{
+			return method.toString();
+		}
+	}
+
+	static private final class ReflectiveInvoker extends MethodInvoker
+	{
+		private final Method method;
+
+		private ReflectiveInvoker(Method method)
+		{
+			this.method = method;
+		}
+
+		@Override
+		public Object invoke(Object target) throws Exception
+		{
+			try
+			{
+				return method.invoke(target);
+			} catch (InvocationTargetException e)
+			{
+				throw rethrow(e.getCause());
+			}
+		}
+
+		@Override
+		public Object invoke(Object target, Object arg) throws Exception
+		{
+			try
+			{
+				return method.invoke(target, arg);
+			} catch (InvocationTargetException e)
+			{
+				throw rethrow(e.getCause());
+			}
+		}
+
+		@Override
+		public String toString()
+		{
+			return method.toString();
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package javactor.dispatch;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import javactor.JavactorContext;
+import javactor.JavactorContext.SupervisorStrategyInfo;
+import javactor.annot.Coalesce;
+import javactor.annot.Handle;
+import javactor.annot.HandleBatch;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Used for javactor classes that do not have a generated dispatcher
+ */
+class ReflectiveJavactorDispatcher extends JavactorDispatcher
+{
+	private final ImmutableList<JavactorMethod> methods;
+	private final Field javactorContextField;
+	private final Method supervisorStrategyInfoMethod;
+
+	ReflectiveJavactorDispatcher(Class<?> javactorClass)
+	{
+		methods = getJavactorMethods(javactorClass);
+		javactorContextField = getJavactorContextField(javactorClass);
+		supervisorStrategyInfoMethod = getSupervisorStrategyInfoMethod(javactorClass);
+	}
+
+	private static ImmutableList<JavactorMethod> getJavactorMethods(Class<?> clazz)
+	{
+		ImmutableList.Builder<JavactorMethod> result = ImmutableList.builder();
+		Method[] methods = clazz.getMethods();
+		for (Method method : methods)
+		{
+			for (Class<? extends Annotation> annotClass : JavactorMethod.ANNOTATIONS)
+			{
+				if ( annotClass == HandleBatch.class ) {
+					final HandleBatch handleBatch = method.getAnnotation(HandleBatch.class);
+					if ( handleBatch != null )
+						result.add(new JavactorMethod(annotClass, getBatchType(method), 
+							MethodInvoker.of(method), handleBatch.maxSize()));
+				} else if ( annotClass == Handle.class ) {
+					final Handle handle = method.getAnnotation(Handle.class);
+					final Coalesce coalesce = method.getAnnotation(Coalesce.class);
+					final Class<?>[] parameterTypes = method.getParameterTypes();
+					if ( handle != null )
+						result.add(new JavactorMethod(annotClass, 
+							parameterTypes.length == 0 ? null : parameterTypes[0], 
+							MethodInvoker.of(method), handle.state(), 
+							coalesce == null ? null : coalesce.key()));
+				} else if ( method.getAnnotation(annotClass) != null ) {
+					Class<?>[] parameterTypes = method.getParameterTypes();
+					result.add(new JavactorMethod(annotClass, 
+						parameterTypes.length == 0 ? null : parameterTypes[0], 
+						MethodInvoker.of(method)));
+				}
+			}
+		}
+		return result.build();
+	}
+
+	/**
+	 * @return the element type of the List parameter of a batch method
+	 */
+	private static Class<?> getBatchType(Method method)
+	{
+		final Type[] params = method.getGenericParameterTypes();
+		if ( params.length == 1 && params[0] instanceof ParameterizedType ) {
+			final ParameterizedType listType = (ParameterizedType) params[0];
+			final Type elementType = listType.getActualTypeArguments()[0];
+			if ( listType.getRawType() == List.class ) {
+				if ( elementType instanceof Class )
+					return (Class<?>) elementType;
+				if ( elementType instanceof ParameterizedType )
+					return (Class<?>) ((ParameterizedType) elementType).getRawType();
+			}
+		}
+		throw new RuntimeException("@HandleBatch method "+method+" must accept a List "
+			+ "of the message type.");
+	}
+
+	private static Field getJavactorContextField(Class<?> clazz)
+	{
+		Field[] fields = clazz.getDeclaredFields();
+		for (Field field : fields)
+		{
+			if ( JavactorContext.class.isAssignableFrom(field.getType()) ) {
+				field.setAccessible(true);
+				return field;
+			}
+		}
+		Class<?> superclass = clazz.getSuperclass();
+		return superclass == null ? null : getJavactorContextField(superclass);
+	}
+
+	private static Method getSupervisorStrategyInfoMethod(Class<?> clazz)
+	{
+		Method[] methods = clazz.getMethods();
+		for (Method method : methods)
+		{
+			if ( SupervisorStrategyInfo.class.isAssignableFrom(method.getReturnType()) )
+				return method;
+		}
+		return null;
+	}
+
+	@Override
+	public List<JavactorMethod> methods()
+	{
+		return methods;
+	}
+
+	@Override
+	public void injectContext(Object javactor, JavactorContext ctx)
+	{
+		if ( javactorContextField == null )
+			return;
+		try
+		{
+			javactorContextField.set(javactor, ctx);
+		} catch (IllegalArgumentException | IllegalAccessException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public SupervisorStrategyInfo supervisorStrategyInfo(Object javactor)
+	{
+		if ( supervisorStrategyInfoMethod == null )
+			return null;
+		try
+		{
+			return (SupervisorStrategyInfo) supervisorStrategyInfoMethod.invoke(javactor);
+		} catch (Throwable e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package javactor.local;
+
+/**
+ * Thrown when creating or restarting a javactor fails, e.g., in its
+ * factory or in a {@link javactor.annot.PreStart} method. Supervisors always
+ * stop such actors.
+ */
+@SuppressWarnings("serial")
+public class ActorInitializationException extends RuntimeException
+{
+	public ActorInitializationException(String message, Throwable cause)
+	{
+		super(message, cause);
+	}
+}
@@ -0,0 +1,1080 @@
+package javactor.local;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import javactor.JavactorContext;
+import javactor.JavactorContext.JavactorPreparer;
+import javactor.JavactorContext.OverflowPolicy;
+import javactor.JavactorContext.SupervisorDirective;
+import javactor.JavactorContext.SupervisorStrategyInfo;
+import javactor.JavactorContext.SupervisorStrategyType;
+import javactor.JavactorFactory;
+import javactor.RecyclingJavactorFactory;
+import javactor.annot.Priority;
+import javactor.dispatch.BatchHandler;
+import javactor.dispatch.HandlerTable;
+import javactor.dispatch.JavactorInfo;
+import javactor.dispatch.MethodInvoker;
+import javactor.metrics.ActorMetrics;
+import javactor.metrics.JavactorMetrics;
+import javactor.msg.Correlated;
+import javactor.msg.MailboxOverflow;
+import javactor.msg.Terminated;
+import javactor.msg.TimeoutMsg;
+import javactor.util.BoundedQueue;
+import javactor.util.BoundedQueue.Bounds;
+import javactor.util.BoundedQueue.OverflowSink;
+import javactor.util.CoalescingMailboxQueue;
+import javactor.util.KeyedTimers;
+import javactor.util.MessageCoalescing;
+import javactor.util.MessagePriorities;
+import javactor.util.PriorityMailboxQueue;
+import javactor.util.RequestTracker;
+import javactor.util.Stash;
+import lombok.extern.java.Log;
+
+/**
+ * An actor of a {@link LocalJavactorSystem}. Messages and system messages,
+ * e.g., failures of children, are queued on separate lock free mailboxes, and
+ * the actor schedules itself on the system's pool when they are not empty.
+ * Only one thread at a time runs an actor, so everything not marked otherwise
+ * is only touched while running it.
+ */
+@Log
+final class LocalActor implements Runnable
+{
+	/**
+	 * Resolution of request timeouts
+	 */
+	static final long REQUEST_TICK_MILLIS = 100;
+	private static final int REQUEST_TICKS_PER_WHEEL = 512;
+	@Priority(Priority.Level.HIGH)
+	private enum RequestTick { INSTANCE }
+
+	static private final class Envelope
+	{
+		private final Object message;
+		private final LocalActorRef sender;
+		/**
+		 * 0 if not reporting metrics
+		 */
+		private final long enqueuedNanos;
+
+		private Envelope(Object message, LocalActorRef sender, long enqueuedNanos)
+		{
+			this.message = message;
+			this.sender = sender;
+			this.enqueuedNanos = enqueuedNanos;
+		}
+	}
+
+	private enum Lifecycle { CREATE, RESUME, STOP }
+	/**
+	 * Stops the actor once it has handled the messages sent before it
+	 */
+	private enum Retire { INSTANCE }
+	static private final class Restart
+	{
+		private final Throwable cause;
+
+		private Restart(Throwable cause)
+		{
+			this.cause = cause;
+		}
+	}
+	static private final class Failed
+	{
+		private final LocalActor child;
+		private final Throwable cause;
+
+		private Failed(LocalActor child, Throwable cause)
+		{
+			this.child = child;
+			this.cause = cause;
+		}
+	}
+	static private final class ChildStopped
+	{
+		private final LocalActor child;
+
+		private ChildStopped(LocalActor child)
+		{
+			this.child = child;
+		}
+	}
+	static private final class Watch
+	{
+		private final LocalActorRef watcher;
+
+		private Watch(LocalActorRef watcher)
+		{
+			this.watcher = watcher;
+		}
+	}
+	static private final class Resize
+	{
+		private final PoolRef pool;
+
+		private Resize(PoolRef pool)
+		{
+			this.pool = pool;
+		}
+	}
+
+	private final LocalJavactorSystem system;
+	/**
+	 * Null for top level actors
+	 */
+	private final LocalActor parent;
+	private final String name;
+	private final LocalActorRef self;
+	private final Class<?> javactorClass;
+	private final JavactorFactory factory;
+	private final JavactorPreparer<Object> preparer;
+	private final boolean subscribeToEventStream;
+	private final Queue<Envelope> mailbox;
+	/**
+	 * Null if the mailbox is unbounded
+	 */
+	private final BoundedQueue<Envelope> boundedMailbox;
+	private final OverflowSink<Envelope> overflowSink = new OverflowSink<Envelope>()
+	{
+		@Override
+		public void overflowed(Envelope envelope)
+		{
+			/* Otherwise, it is the one being pushed, which was not added */
+			if ( boundedMailbox.getOverflowPolicy() == OverflowPolicy.DROP_OLDEST )
+				mailboxSize.decrementAndGet();
+			overflow(envelope);
+		}
+	};
+	/**
+	 * Kept as messages come and go, as the size of the mailbox queues takes
+	 * time proportional to it. Never less than the number of messages in the
+	 * mailbox.
+	 */
+	private final AtomicInteger mailboxSize = new AtomicInteger();
+	private final Queue<Object> systemMailbox = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private volatile boolean terminated;
+	/**
+	 * Null if not reporting metrics
+	 */
+	private final ActorMetrics metrics;
+
+	private Object javactor;
+	private JavactorInfo javactorInfo;
+	/**
+	 * Of the current state
+	 */
+	private HandlerTable handlers;
+	private final LocalContext context = new LocalContext();
+	/**
+	 * Until created, and while its failure is being handled
+	 */
+	private boolean suspended = true;
+	private Envelope current;
+	/**
+	 * Whether the current message may be stashed
+	 */
+	private boolean stashable;
+	/**
+	 * Null until the first stash
+	 */
+	private Stash<Envelope> stash;
+	private final Map<String, LocalActor> children = new LinkedHashMap<>();
+	/**
+	 * Of children, from which they are removed once stopped. Null until the
+	 * first pool.
+	 */
+	private List<PoolRef> pools;
+	private Set<LocalActorRef> watchers;
+	/**
+	 * Null until the first request
+	 */
+	private RequestTracker requests;
+	private ScheduledFuture<?> requestTicker;
+	/**
+	 * Null until the first timer
+	 */
+	private KeyedTimers timers;
+	private final List<TimeoutMsg> expiredRequests = new ArrayList<>();
+	private long lastCorrelationId = Correlated.NONE;
+
+	/* Only touched by the parent, while handling this actor's failures */
+	private int numRestarts;
+	private long restartWindowStart;
+
+	@SuppressWarnings("unchecked")
+	LocalActor(LocalJavactorSystem system, LocalActor parent, String name, String path,
+		Class<?> javactorClass, JavactorFactory factory, JavactorPreparer<?> preparer,
+		boolean subscribeToEventStream, Bounds mailboxBounds,
+		MessagePriorities priorities)
+	{
+		this.system = system;
+		this.parent = parent;
+		this.name = name;
+		this.self = new LocalActorRef(this, path);
+		this.javactorClass = javactorClass;
+		this.factory = factory;
+		this.preparer = (JavactorPreparer<Object>) preparer;
+		this.subscribeToEventStream = subscribeToEventStream;
+		final JavactorMetrics systemMetrics = system.getMetrics();
+		this.metrics = systemMetrics == null ? null :
+			systemMetrics.actorMetrics(javactorClass);
+		if ( mailboxBounds != null ) {
+			this.boundedMailbox = new BoundedQueue<>(mailboxBounds);
+			this.mailbox = boundedMailbox;
+			return;
+		}
+		this.boundedMailbox = null;
+		if ( priorities != null ) {
+			this.mailbox = new PriorityMailboxQueue<Envelope>(priorities)
+			{
+				@Override
+				protected Object message(Envelope envelope)
+				{
+					return envelope.message;
+				}
+			};
+			return;
+		}
+		final MessageCoalescing coalescing =
+			MessageCoalescing.forJavactorClass(javactorClass);
+		if ( coalescing != null ) {
+			this.mailbox = new CoalescingMailboxQueue<Envelope>(coalescing)
+			{
+				@Override
+				protected Object message(Envelope envelope)
+				{
+					return envelope.message;
+				}
+
+				@Override
+				protected void coalesced(Envelope replaced)
+				{
+					mailboxSize.decrementAndGet();
+				}
+			};
+		} else
+			this.mailbox = new ConcurrentLinkedQueue<>();
+	}
+
+	LocalActorRef getSelf()
+	{
+		return self;
+	}
+
+	LocalActor getParent()
+	{
+		return parent;
+	}
+
+	String getName()
+	{
+		return name;
+	}
+
+	boolean isTerminated()
+	{
+		return terminated;
+	}
+
+	/**
+	 * Whether the actor is neither running nor has messages waiting. Thread
+	 * safe, but only a hint.
+	 */
+	boolean isIdle()
+	{
+		return !scheduled.get() && mailbox.isEmpty();
+	}
+
+	/**
+	 * Thread safe, but only a hint. Takes constant time.
+	 */
+	int getMailboxSize()
+	{
+		return mailboxSize.get();
+	}
+
+	/**
+	 * Thread safe
+	 */
+	void enqueue(Object msg, LocalActorRef sender)
+	{
+		if ( terminated ) {
+			deadLetter(msg);
+			return;
+		}
+		final Envelope envelope = new Envelope(msg, sender,
+			metrics == null ? 0 : System.nanoTime());
+		mailboxSize.incrementAndGet();
+		if ( boundedMailbox == null )
+			mailbox.offer(envelope);
+		else {
+			if ( !boundedMailbox.push(envelope, overflowSink) ) {
+				mailboxSize.decrementAndGet();
+				return;
+			}
+		}
+		schedule();
+	}
+
+	/**
+	 * Takes the next message out of the mailbox
+	 */
+	private Envelope poll()
+	{
+		final Envelope envelope = mailbox.poll();
+		if ( envelope != null )
+			mailboxSize.decrementAndGet();
+		return envelope;
+	}
+
+	private void overflow(Envelope envelope)
+	{
+		if ( boundedMailbox.getOverflowPolicy() == OverflowPolicy.REJECT
+			&& envelope.sender != null )
+		{
+			envelope.sender.tell(new MailboxOverflow(envelope.message, self), self);
+			return;
+		}
+		deadLetter(envelope.message);
+	}
+
+	/**
+	 * Thread safe
+	 */
+	void start()
+	{
+		sendSystem(Lifecycle.CREATE);
+	}
+
+	/**
+	 * Thread safe
+	 */
+	void stop()
+	{
+		sendSystem(Lifecycle.STOP);
+	}
+
+	/**
+	 * Thread safe
+	 */
+	void retire()
+	{
+		enqueue(Retire.INSTANCE, null);
+	}
+
+	/**
+	 * Resizes a pool of this actor's children, on its thread. Thread safe.
+	 */
+	void resize(PoolRef pool)
+	{
+		sendSystem(new Resize(pool));
+	}
+
+	private void sendSystem(Object msg)
+	{
+		systemMailbox.offer(msg);
+		schedule();
+	}
+
+	private void schedule()
+	{
+		if ( scheduled.compareAndSet(false, true) ) {
+			try
+			{
+				system.execute(this);
+			} catch (RejectedExecutionException e)
+			{
+				scheduled.set(false);
+			}
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		try
+		{
+			for (int processed = 0; ; )
+			{
+				final Object systemMsg = systemMailbox.poll();
+				if ( systemMsg != null ) {
+					processSystem(systemMsg);
+					continue;
+				}
+				if ( suspended || terminated || processed++ >= system.getThroughput() )
+					break;
+				final Envelope unstashed = stash == null ? null : stash.pollUnstashed();
+				final Envelope envelope = unstashed != null ? unstashed : poll();
+				if ( envelope == null )
+					break;
+				process(envelope, unstashed != null);
+			}
+		} finally
+		{
+			scheduled.set(false);
+			if ( !systemMailbox.isEmpty() || (!suspended && !terminated
+				&& (!mailbox.isEmpty() || (stash != null && stash.hasUnstashed()))) )
+			{
+				schedule();
+			}
+		}
+	}
+
+	/**
+	 * @param unstashed whether the message was already received, and then
+	 * stashed and unstashed
+	 */
+	private void process(Envelope envelope, boolean unstashed)
+	{
+		current = envelope;
+		if ( metrics != null && !unstashed )
+			metrics.queued(System.nanoTime() - envelope.enqueuedNanos);
+		try
+		{
+			if ( unstashed )
+				handle(envelope.message);
+			else
+				receive(envelope.message);
+		} catch (Throwable t)
+		{
+			fail(t);
+		} finally
+		{
+			current = null;
+		}
+	}
+
+	private void receive(Object message) throws Exception
+	{
+		if ( message == RequestTick.INSTANCE ) {
+			expireRequests();
+			return;
+		}
+		if ( message == Retire.INSTANCE ) {
+			stop();
+			return;
+		}
+		if ( message instanceof KeyedTimers.Fired ) {
+			message = timers == null ? null : timers.fired((KeyedTimers.Fired) message);
+			if ( message == null )
+				return;
+			/* So that it is stashed as the timer's message */
+			current = new Envelope(message, current.sender, current.enqueuedNanos);
+		}
+		requestDone(message);
+		handle(message);
+	}
+
+	private void handle(Object message) throws Exception
+	{
+		final MethodInvoker invoker = handlers.get(message.getClass());
+		if ( invoker instanceof BatchHandler ) {
+			receiveBatch((BatchHandler) invoker, message);
+			return;
+		}
+		if ( invoker != null ) {
+			stashable = true;
+			try
+			{
+				invoke(invoker, message);
+			} finally
+			{
+				stashable = false;
+			}
+			return;
+		}
+		unhandled(message);
+	}
+
+	private void stash()
+	{
+		if ( !stashable )
+			throw new IllegalStateException("Only a message being handled by a "
+				+ "Handle method can be stashed.");
+		if ( stash == null )
+			stash = new Stash<>(JavactorContext.STASH_CAPACITY);
+		stash.stash(current);
+		stashable = false;
+	}
+
+	private void deadLetterStashed()
+	{
+		if ( stash == null )
+			return;
+		final List<Envelope> stashed = new ArrayList<>();
+		stash.drainTo(stashed);
+		for (Envelope envelope : stashed)
+			deadLetter(envelope.message);
+	}
+
+	private void requestDone(Object message)
+	{
+		if ( requests != null && requests.done(message) && metrics != null )
+			metrics.requestCompleted();
+	}
+
+	private void invoke(MethodInvoker invoker, Object arg) throws Exception
+	{
+		if ( metrics == null ) {
+			invoker.invoke(javactor, arg);
+			return;
+		}
+		final long start = System.nanoTime();
+		try
+		{
+			invoker.invoke(javactor, arg);
+		} finally
+		{
+			metrics.handled(invoker, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Takes the messages for the same handler from the head of the mailbox
+	 * along with the message, so the batch holds consecutive messages
+	 */
+	private void receiveBatch(BatchHandler handler, Object message) throws Exception
+	{
+		final List<Object> batch = new ArrayList<>();
+		batch.add(message);
+		while (batch.size() < handler.getMaxSize())
+		{
+			final Envelope next = mailbox.peek();
+			if ( next == null
+				|| handlers.get(next.message.getClass()) != handler )
+			{
+				break;
+			}
+			poll();
+			if ( metrics != null )
+				metrics.queued(System.nanoTime() - next.enqueuedNanos);
+			requestDone(next.message);
+			batch.add(next.message);
+		}
+		invoke(handler, batch);
+	}
+
+	private void unhandled(Object message)
+	{
+		if ( metrics != null )
+			metrics.unhandled(message.getClass());
+		log.fine(self+" did not handle "+message);
+	}
+
+	private void deadLetter(Object message)
+	{
+		log.fine("Dead letter to "+self+": "+message);
+	}
+
+	private void processSystem(Object msg)
+	{
+		if ( msg == Lifecycle.CREATE )
+			create();
+		else if ( msg == Lifecycle.RESUME )
+			suspended = false;
+		else if ( msg == Lifecycle.STOP )
+			terminate();
+		else if ( msg instanceof Restart )
+			restart(((Restart) msg).cause);
+		else if ( msg instanceof Failed )
+			handleFailure(((Failed) msg).child, ((Failed) msg).cause);
+		else if ( msg instanceof ChildStopped ) {
+			final LocalActor child = ((ChildStopped) msg).child;
+			if ( children.get(child.name) == child )
+				children.remove(child.name);
+			removeFromPool(child);
+		} else if ( msg instanceof Watch )
+			addWatcher(((Watch) msg).watcher);
+		else if ( msg instanceof Resize )
+			resizePool(((Resize) msg).pool);
+	}
+
+	private void create()
+	{
+		if ( terminated )
+			return;
+		try
+		{
+			newJavactor();
+			if ( subscribeToEventStream )
+				system.getEventStream().subscribe(self,
+					javactorInfo.getHandledClasses());
+			callLifecycleMethod(javactorInfo.getPreStart());
+			suspended = false;
+		} catch (Throwable t)
+		{
+			fail(new ActorInitializationException("Creating "+self+" failed.", t));
+		}
+	}
+
+	private void newJavactor()
+	{
+		javactor = factory.get(javactorClass);
+		if ( preparer != null )
+			preparer.prepare(javactor);
+		javactorInfo = JavactorInfo.of(javactor);
+		handlers = javactorInfo.getHandlers();
+		javactorInfo.getDispatcher().injectContext(javactor, context);
+	}
+
+	/**
+	 * As with Akka, calls {@link javactor.annot.PreRestart}, stops children and
+	 * calls {@link javactor.annot.PostStop} on the old javactor, then
+	 * {@link javactor.annot.PostRestart} and {@link javactor.annot.PreStart}
+	 * on a new one. The mailbox and pending requests are kept.
+	 */
+	private void restart(Throwable cause)
+	{
+		if ( terminated )
+			return;
+		log.severe(self+" restarting for reason: "+cause);
+		if ( javactor != null && javactorInfo != null ) {
+			try
+			{
+				callLifecycleMethod(javactorInfo.getPreRestart());
+			} catch (Throwable t)
+			{
+				log.log(Level.SEVERE, "PreRestart of "+self+" failed", t);
+			}
+		}
+		stopChildren();
+		callPostStop();
+		recycle();
+		stopTimers();
+		/* The new javactor handles them first, as with Akka */
+		if ( stash != null )
+			stash.unstashAll();
+		try
+		{
+			newJavactor();
+			callLifecycleMethod(javactorInfo.getPostRestart());
+			callLifecycleMethod(javactorInfo.getPreStart());
+			suspended = false;
+		} catch (Throwable t)
+		{
+			fail(new ActorInitializationException("Restarting "+self+" failed.", t));
+		}
+	}
+
+	private void terminate()
+	{
+		if ( terminated )
+			return;
+		terminated = true;
+		stopChildren();
+		if ( subscribeToEventStream && javactorInfo != null )
+			system.getEventStream().unsubscribe(self,
+				javactorInfo.getHandledClasses());
+		stopRequests();
+		stopTimers();
+		callPostStop();
+		recycle();
+		deadLetterStashed();
+		for (Envelope envelope = poll(); envelope != null; envelope = poll())
+			deadLetter(envelope.message);
+		if ( watchers != null ) {
+			for (LocalActorRef watcher : watchers)
+				watcher.tell(new Terminated(), self);
+			watchers = null;
+		}
+		if ( parent != null )
+			parent.sendSystem(new ChildStopped(this));
+		system.actorTerminated(this);
+	}
+
+	/**
+	 * Not once the pool's actors were stopped with the other children, e.g.,
+	 * by a restart
+	 */
+	private void resizePool(PoolRef pool)
+	{
+		if ( !terminated && pools != null && pools.contains(pool) )
+			pool.resize();
+		else
+			pool.stop();
+	}
+
+	private void removeFromPool(LocalActor child)
+	{
+		if ( pools == null )
+			return;
+		for (int i = 0; i < pools.size(); i++)
+		{
+			final PoolRef pool = pools.get(i);
+			if ( pool.removeRoutee(child) ) {
+				if ( pool.isStopped() )
+					pools.remove(i);
+				return;
+			}
+		}
+	}
+
+	private void stopChildren()
+	{
+		pools = null;
+		for (LocalActor child : children.values())
+			child.stop();
+		children.clear();
+	}
+
+	/**
+	 * Hands the javactor back to a {@link RecyclingJavactorFactory}
+	 */
+	private void recycle()
+	{
+		if ( javactor != null && factory instanceof RecyclingJavactorFactory ) {
+			((RecyclingJavactorFactory) factory).release(javactor);
+			javactor = null;
+		}
+	}
+
+	private void stopTimers()
+	{
+		if ( timers != null )
+			timers.cancelAll();
+	}
+
+	private void callPostStop()
+	{
+		if ( javactor == null || javactorInfo == null )
+			return;
+		for (MethodInvoker invoker : javactorInfo.getPostStop())
+		{
+			try
+			{
+				invoker.invoke(javactor);
+			} catch (Throwable t)
+			{
+				log.log(Level.SEVERE, "PostStop of "+self+" failed", t);
+			}
+		}
+	}
+
+	private void callLifecycleMethod(MethodInvoker invoker) throws Exception
+	{
+		if ( invoker != null )
+			invoker.invoke(javactor);
+	}
+
+	private void addWatcher(LocalActorRef watcher)
+	{
+		if ( terminated ) {
+			watcher.tell(new Terminated(), self);
+			return;
+		}
+		if ( watchers == null )
+			watchers = new LinkedHashSet<>();
+		watchers.add(watcher);
+	}
+
+	/**
+	 * Called on this actor's thread
+	 */
+	void addPool(PoolRef pool)
+	{
+		if ( pools == null )
+			pools = new ArrayList<>(2);
+		pools.add(pool);
+	}
+
+	void addChild(LocalActor child)
+	{
+		if ( children.containsKey(child.name) )
+			throw new IllegalArgumentException("Actor name ["+child.name
+				+"] is not unique.");
+		children.put(child.name, child);
+	}
+
+	/**
+	 * Suspends this actor until its supervisor decides what to do
+	 */
+	private void fail(Throwable cause)
+	{
+		suspended = true;
+		if ( parent != null ) {
+			parent.sendSystem(new Failed(this, cause));
+			return;
+		}
+		log.log(Level.SEVERE, self+" failed", cause);
+		if ( cause instanceof Exception && !(cause instanceof ActorInitializationException) )
+			sendSystem(new Restart(cause));
+		else
+			stop();
+	}
+
+	private void handleFailure(LocalActor child, Throwable cause)
+	{
+		if ( child.terminated || children.get(child.name) != child )
+			return;
+		final SupervisorDirective directive;
+		try
+		{
+			directive = decide(cause);
+		} catch (Throwable t)
+		{
+			fail(t);
+			return;
+		}
+		final SupervisorStrategyInfo strategy = javactorInfo.getSupervisorStrategyInfo();
+		if ( strategy.isLoggingEnabled() && directive != SupervisorDirective.ESCALATE )
+			log.log(directive == SupervisorDirective.RESUME ? Level.WARNING : Level.SEVERE,
+				child.self+" failed, "+directive, cause);
+		final Collection<LocalActor> targets =
+			strategy.getType() == SupervisorStrategyType.ALL_FOR_ONE ?
+				new ArrayList<>(children.values()) : Collections.singletonList(child);
+		switch ( directive ) {
+		case RESUME:
+			child.sendSystem(Lifecycle.RESUME);
+			break;
+		case RESTART:
+			final boolean mayRestart = child.mayRestart(strategy);
+			for (LocalActor target : targets)
+				target.sendSystem(mayRestart ? new Restart(cause) : Lifecycle.STOP);
+			break;
+		case STOP:
+			for (LocalActor target : targets)
+				target.stop();
+			break;
+		case ESCALATE:
+			fail(cause);
+			break;
+		}
+	}
+
+	/**
+	 * As with the Akka implementation, initialization failures stop the
+	 * child, and other exceptions go to the most specific matching
+	 * {@link javactor.annot.OnException} method, or restart it
+	 */
+	private SupervisorDirective decide(Throwable cause) throws Exception
+	{
+		if ( cause instanceof ActorInitializationException )
+			return SupervisorDirective.STOP;
+		if ( !(cause instanceof Exception) )
+			return SupervisorDirective.ESCALATE;
+		final MethodInvoker invoker =
+			javactorInfo.getOnExceptionHandlers().get(cause.getClass());
+		if ( invoker != null )
+			return (SupervisorDirective) invoker.invoke(javactor, cause);
+		return SupervisorDirective.RESTART;
+	}
+
+	/**
+	 * Called by the parent
+	 */
+	private boolean mayRestart(SupervisorStrategyInfo strategy)
+	{
+		final int maxNumRetries = strategy.getMaxNumRetries();
+		if ( maxNumRetries < 0 )
+			return true;
+		final long now = System.nanoTime();
+		if ( numRestarts == 0 || now - restartWindowStart >
+			strategy.getTimeUnit().toNanos(strategy.getTimeRange()) )
+		{
+			restartWindowStart = now;
+			numRestarts = 0;
+		}
+		return ++numRestarts <= maxNumRetries;
+	}
+
+	LocalActorRef getSender()
+	{
+		return current == null ? null : current.sender;
+	}
+
+	/**
+	 * @return the correlation ID of the request, or {@link Correlated#NONE} if
+	 * its message is not {@link Correlated}
+	 */
+	long startWaitingFor(Object msg, Class<?> response, long timeoutMillis,
+		Object taskInfo)
+	{
+		if ( !javactorInfo.isHandled(response) )
+			throw new IllegalStateException(javactorClass+" does not have "
+				+"a Handle method for the response "+response);
+		if ( !javactorInfo.isHandled(TimeoutMsg.class) )
+			throw new IllegalStateException(javactorClass+" does not have "
+				+"a Handle method for "+TimeoutMsg.class);
+		final long now = nowMillis();
+		if ( requests == null )
+			requests = new RequestTracker(REQUEST_TICK_MILLIS, REQUEST_TICKS_PER_WHEEL,
+				now);
+		final long correlationId = requests.start(msg, response, taskInfo,
+			timeoutMillis, now);
+		if ( metrics != null )
+			metrics.requestStarted();
+		if ( requestTicker == null )
+			requestTicker = system.getScheduler().scheduleAtFixedRate(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					self.tell(RequestTick.INSTANCE, self);
+				}
+			}, REQUEST_TICK_MILLIS, REQUEST_TICK_MILLIS, TimeUnit.MILLISECONDS);
+		return correlationId;
+	}
+
+	private void expireRequests()
+	{
+		if ( requests == null )
+			return;
+		requests.expire(nowMillis(), expiredRequests);
+		for (TimeoutMsg timeoutMsg : expiredRequests)
+		{
+			if ( metrics != null )
+				metrics.requestTimedOut();
+			self.tell(timeoutMsg, self);
+		}
+		expiredRequests.clear();
+		if ( requests.isEmpty() && requestTicker != null ) {
+			requestTicker.cancel(false);
+			requestTicker = null;
+		}
+	}
+
+	private void stopRequests()
+	{
+		if ( requestTicker != null ) {
+			requestTicker.cancel(false);
+			requestTicker = null;
+		}
+		requests = null;
+	}
+
+	private static long nowMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+	}
+
+	/**
+	 * The single context injected into the javactor, valid for the actor's
+	 * lifetime
+	 */
+	private final class LocalContext implements JavactorContext
+	{
+		@Override
+		public <T> ActorBuilder<T> actorBuilder(Class<T> javactorClass, String actorName)
+		{
+			return new LocalActorBuilder<T>(system, LocalActor.this, javactorClass,
+				actorName, factory);
+		}
+
+		@Override
+		public <T> PoolBuilder<T> poolBuilder(Class<T> javactorClass, String poolName,
+			int size)
+		{
+			return new LocalPoolBuilder<T>(system, LocalActor.this, javactorClass,
+				poolName, size, factory);
+		}
+
+		@Override
+		public ScheduleBuilder schedule(Object msg)
+		{
+			return new LocalScheduleBuilder(system, self, msg);
+		}
+
+		@Override
+		public Timers timers()
+		{
+			if ( timers == null )
+				timers = new KeyedTimers(this);
+			return timers;
+		}
+
+		@Override
+		public Object self()
+		{
+			return self;
+		}
+
+		@Override
+		public Object sender()
+		{
+			return getSender();
+		}
+
+		@Override
+		public void become(String state)
+		{
+			handlers = javactorInfo.getHandlers(state);
+		}
+
+		@Override
+		public void unbecome()
+		{
+			handlers = javactorInfo.getHandlers();
+		}
+
+		@Override
+		public void stash()
+		{
+			LocalActor.this.stash();
+		}
+
+		@Override
+		public void unstashAll()
+		{
+			if ( stash != null )
+				stash.unstashAll();
+		}
+
+		@Override
+		public void unhandled(Object msg)
+		{
+			LocalActor.this.unhandled(msg);
+		}
+
+		@Override
+		public void stop(Object actor)
+		{
+			if ( actor instanceof PoolRef ) {
+				((PoolRef) actor).stop();
+				return;
+			}
+			((LocalActorRef) actor).getActor().stop();
+		}
+
+		@Override
+		public SendBuilder msg(Object msg)
+		{
+			return new LocalSendBuilder(system, LocalActor.this, msg);
+		}
+
+		@Override
+		public void watch(Object actor)
+		{
+			final LocalActorRef target = (LocalActorRef) actor;
+			if ( target.getActor() == null )
+				throw new IllegalArgumentException("Cannot watch "+target);
+			target.getActor().sendSystem(new Watch(self));
+		}
+
+		@Override
+		public long newCorrelationId()
+		{
+			if ( ++lastCorrelationId == Correlated.NONE )
+				++lastCorrelationId;
+			return lastCorrelationId;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package javactor.local;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext;
+import javactor.JavactorContext.ActorBuilder;
+import javactor.JavactorContext.JavactorPreparer;
+import javactor.JavactorContext.OverflowPolicy;
+import javactor.JavactorFactory;
+import javactor.annot.Priority.Level;
+import javactor.util.BoundedQueue.Bounds;
+import javactor.util.MessageCoalescing;
+import javactor.util.MessagePriorities;
+
+final class LocalActorBuilder<T> implements ActorBuilder<T>
+{
+	private final LocalJavactorSystem system;
+	/**
+	 * Null for top level actors
+	 */
+	private final LocalActor parent;
+	private final Class<T> javactorClass;
+	private final String actorName;
+	private JavactorFactory factory;
+	private boolean subscribeToEventStream;
+	private JavactorPreparer<T> preparer;
+	private Bounds mailboxBounds;
+	/**
+	 * Null unless the actor has a priority mailbox
+	 */
+	private Map<Class<?>, Level> priorities;
+
+	LocalActorBuilder(LocalJavactorSystem system, LocalActor parent,
+		Class<T> javactorClass, String actorName, JavactorFactory defaultFactory)
+	{
+		this.system = system;
+		this.parent = parent;
+		this.javactorClass = javactorClass;
+		this.actorName = actorName;
+		this.factory = defaultFactory;
+	}
+
+	@Override
+	public ActorBuilder<T> subscribeToEventBus()
+	{
+		this.subscribeToEventStream = true;
+		return this;
+	}
+
+	@Override
+	public ActorBuilder<T> factory(JavactorFactory factory)
+	{
+		this.factory = factory;
+		return this;
+	}
+
+	@Override
+	public ActorBuilder<T> preparer(JavactorPreparer<T> preparer)
+	{
+		this.preparer = preparer;
+		return this;
+	}
+
+	/**
+	 * Ignored, as all actors of a {@link LocalJavactorSystem} share its pool
+	 */
+	@Override
+	public ActorBuilder<T> dispatcher(String dispatcherName)
+	{
+		return this;
+	}
+
+	@Override
+	public ActorBuilder<T> boundedMailbox(int capacity, OverflowPolicy overflowPolicy)
+	{
+		return boundedMailbox(capacity, overflowPolicy,
+			JavactorContext.DEFAULT_MAILBOX_PUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public ActorBuilder<T> boundedMailbox(int capacity, OverflowPolicy overflowPolicy,
+		long pushTimeout, TimeUnit timeUnit)
+	{
+		this.mailboxBounds = new Bounds(capacity, overflowPolicy,
+			timeUnit.toNanos(pushTimeout));
+		return this;
+	}
+
+	@Override
+	public ActorBuilder<T> priorityMailbox()
+	{
+		if ( priorities == null )
+			priorities = new HashMap<>();
+		return this;
+	}
+
+	@Override
+	public ActorBuilder<T> priority(Class<?> msgClass, Level level)
+	{
+		priorityMailbox();
+		priorities.put(msgClass, level);
+		return this;
+	}
+
+	@Override
+	public Object build()
+	{
+		if ( mailboxBounds != null && priorities != null )
+			throw new IllegalStateException("A mailbox cannot be both bounded and "
+				+ "prioritized.");
+		if ( (mailboxBounds != null || priorities != null)
+			&& MessageCoalescing.forJavactorClass(javactorClass) != null )
+		{
+			throw new IllegalStateException("A mailbox cannot be both coalescing "
+				+ "and bounded or prioritized.");
+		}
+		return system.createActor(parent, javactorClass, actorName, factory, preparer,
+			subscribeToEventStream, mailboxBounds, priorities == null ? null :
+				priorities.isEmpty() ? MessagePriorities.DEFAULT :
+					new MessagePriorities(priorities));
+	}
+}
@@ -0,0 +1,47 @@
+package javactor.local;
+
+/**
+ * Address of an actor of a {@link LocalJavactorSystem}. This is what
+ * <code>ctx.self()</code>, <code>ctx.sender()</code> and actor builders
+ * return, and what send builders accept as recipients.
+ */
+public class LocalActorRef
+{
+	private final LocalActor actor;
+	private final String path;
+
+	LocalActorRef(LocalActor actor, String path)
+	{
+		this.actor = actor;
+		this.path = path;
+	}
+
+	/**
+	 * @param sender null if there is none
+	 */
+	public void tell(Object msg, LocalActorRef sender)
+	{
+		actor.enqueue(msg, sender);
+	}
+
+	public String getPath()
+	{
+		return path;
+	}
+
+	public boolean isTerminated()
+	{
+		return actor.isTerminated();
+	}
+
+	LocalActor getActor()
+	{
+		return actor;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "LocalActorRef["+path+"]";
+	}
+}
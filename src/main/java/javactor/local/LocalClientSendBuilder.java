@@ -0,0 +1,52 @@
+package javactor.local;
+
+import java.util.concurrent.TimeUnit;
+
+import javactor.ClientSendBuilder;
+import javactor.JavactorFuture;
+
+/**
+ * Only exposes what a {@link LocalSendBuilder} without a sender supports
+ */
+final class LocalClientSendBuilder implements ClientSendBuilder
+{
+	private final LocalSendBuilder builder;
+
+	LocalClientSendBuilder(LocalJavactorSystem system, Object msg)
+	{
+		this.builder = new LocalSendBuilder(system, null, msg);
+	}
+
+	@Override
+	public ClientSendBuilder to(Object to)
+	{
+		builder.to(to);
+		return this;
+	}
+
+	@Override
+	public ClientSendBuilder from(Object from)
+	{
+		builder.from(from);
+		return this;
+	}
+
+	@Override
+	public ClientSendBuilder timeout(long duration, TimeUnit timeUnit)
+	{
+		builder.timeout(duration, timeUnit);
+		return this;
+	}
+
+	@Override
+	public void fireAndForget()
+	{
+		builder.fireAndForget();
+	}
+
+	@Override
+	public <R> JavactorFuture<R> ask(Class<R> response)
+	{
+		return builder.ask(response);
+	}
+}
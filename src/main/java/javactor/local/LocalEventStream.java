@@ -0,0 +1,16 @@
+package javactor.local;
+
+import javactor.util.IndexedEventBus;
+
+/**
+ * Event stream of a {@link LocalJavactorSystem}. Actors subscribe to all the
+ * classes their javactor handles at once.
+ */
+final class LocalEventStream extends IndexedEventBus<LocalActorRef>
+{
+	@Override
+	protected void deliver(LocalActorRef subscriber, Object msg)
+	{
+		subscriber.tell(msg, null);
+	}
+}
@@ -0,0 +1,270 @@
+package javactor.local;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javactor.ClientSendBuilder;
+import javactor.JavactorContext;
+import javactor.JavactorContext.ActorBuilder;
+import javactor.JavactorContext.JavactorPreparer;
+import javactor.JavactorFactory;
+import javactor.JavactorFuture;
+import javactor.NoArgConstructorJavactorFactory;
+import javactor.util.BoundedQueue.Bounds;
+import javactor.metrics.JavactorMetrics;
+import javactor.util.JavactorPromise;
+import javactor.util.MessagePriorities;
+import javactor.util.TickService;
+
+/**
+ * Runs javactors in process, without Akka. Each actor has lock free mailboxes
+ * and is run on a shared work stealing {@link ForkJoinPool}, handling up to
+ * <code>throughput</code> messages before giving up its thread. Supervision
+ * follows the supervisor's {@link JavactorContext.SupervisorStrategyInfo} and
+ * {@link javactor.annot.OnException} methods, as with Akka, and top level
+ * actors are restarted when they throw an exception.
+ * <p>
+ * Unlike Akka, a stopping actor does not wait for its children to stop before
+ * calling its {@link javactor.annot.PostStop} methods, and messages are not
+ * serialized or otherwise copied.
+ */
+public class LocalJavactorSystem
+{
+	public static final int DEFAULT_THROUGHPUT = 64;
+
+	private final ForkJoinPool executor;
+	private final ScheduledThreadPoolExecutor scheduler;
+	private final LocalEventStream eventStream = new LocalEventStream();
+	private final int throughput;
+	private final ConcurrentHashMap<String, LocalActor> topLevelActors =
+		new ConcurrentHashMap<>();
+	private final AtomicInteger nameCounter = new AtomicInteger();
+	private final JavactorFactory defaultFactory = new NoArgConstructorJavactorFactory();
+	private final Object liveActorsLock = new Object();
+	private int liveActors;
+	private volatile boolean shutdown;
+	private volatile JavactorMetrics metrics;
+	private final TickService<ScheduledFuture<?>> tickService =
+		new TickService<ScheduledFuture<?>>()
+	{
+		@Override
+		protected ScheduledFuture<?> startTimer(long tickNanos, Runnable tick)
+		{
+			return scheduler.scheduleAtFixedRate(tick, tickNanos, tickNanos,
+				TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		protected void stopTimer(ScheduledFuture<?> timer)
+		{
+			timer.cancel(false);
+		}
+
+		@Override
+		protected void deliver(Object msg, Object to, Object from)
+		{
+			if ( to == null )
+				eventStream.publish(msg);
+			else
+				((LocalActorRef) to).tell(msg, (LocalActorRef) from);
+		}
+	};
+
+	public LocalJavactorSystem()
+	{
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_THROUGHPUT);
+	}
+
+	public LocalJavactorSystem(int parallelism, int throughput)
+	{
+		if ( throughput < 1 )
+			throw new IllegalArgumentException("Throughput must be positive: "
+				+throughput);
+		this.throughput = throughput;
+		this.executor = new ForkJoinPool(parallelism,
+			ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+		this.scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				final Thread thread = new Thread(r, "javactor-scheduler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.scheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Creates top level actors
+	 */
+	public <T> ActorBuilder<T> actorBuilder(Class<T> javactorClass, String actorName)
+	{
+		return new LocalActorBuilder<T>(this, null, javactorClass, actorName,
+			defaultFactory);
+	}
+
+	/**
+	 * Sends from outside of actors
+	 */
+	public ClientSendBuilder msg(Object msg)
+	{
+		return new LocalClientSendBuilder(this, msg);
+	}
+
+	/**
+	 * Where actors created from now on report their metrics
+	 *
+	 * @param metrics null for none, the default
+	 */
+	public void setMetrics(JavactorMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return null if none
+	 */
+	JavactorMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	public void publish(Object msg)
+	{
+		eventStream.publish(msg);
+	}
+
+	/**
+	 * Stops all actors. Use {@link #awaitTermination(long, TimeUnit)} to wait
+	 * for them to stop.
+	 */
+	public void shutdown()
+	{
+		shutdown = true;
+		for (LocalActor actor : topLevelActors.values())
+			actor.stop();
+		synchronized (liveActorsLock)
+		{
+			if ( liveActors == 0 )
+				terminate();
+		}
+	}
+
+	/**
+	 * @return false if actors were still running after the timeout
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit timeUnit)
+		throws InterruptedException
+	{
+		final long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+		synchronized (liveActorsLock)
+		{
+			while (liveActors > 0)
+			{
+				final long remaining = deadline - System.nanoTime();
+				if ( remaining <= 0 )
+					return false;
+				TimeUnit.NANOSECONDS.timedWait(liveActorsLock, remaining);
+			}
+		}
+		return executor.awaitTermination(deadline - System.nanoTime(),
+			TimeUnit.NANOSECONDS);
+	}
+
+	LocalActorRef createActor(LocalActor parent, Class<?> javactorClass, String name,
+		JavactorFactory factory, JavactorPreparer<?> preparer,
+		boolean subscribeToEventStream, Bounds mailboxBounds,
+		MessagePriorities priorities)
+	{
+		if ( shutdown )
+			throw new IllegalStateException("Actor system is shut down.");
+		final String actorName = name == null ? "$"+nameCounter.incrementAndGet() : name;
+		final String path = (parent == null ? "/user" :
+			parent.getSelf().getPath()) + "/" + actorName;
+		final LocalActor actor = new LocalActor(this, parent, actorName, path,
+			javactorClass, factory, preparer, subscribeToEventStream, mailboxBounds,
+			priorities);
+		if ( parent == null ) {
+			if ( topLevelActors.putIfAbsent(actorName, actor) != null )
+				throw new IllegalArgumentException("Actor name ["+actorName
+					+"] is not unique.");
+		} else
+			parent.addChild(actor);
+		synchronized (liveActorsLock)
+		{
+			liveActors++;
+		}
+		actor.start();
+		return actor.getSelf();
+	}
+
+	void actorTerminated(LocalActor actor)
+	{
+		if ( actor.getParent() == null )
+			topLevelActors.remove(actor.getName(), actor);
+		synchronized (liveActorsLock)
+		{
+			if ( --liveActors == 0 ) {
+				liveActorsLock.notifyAll();
+				if ( shutdown )
+					terminate();
+			}
+		}
+	}
+
+	private void terminate()
+	{
+		scheduler.shutdownNow();
+		executor.shutdown();
+	}
+
+	<R> JavactorFuture<R> ask(LocalActorRef to, Object msg, final Class<R> response,
+		long timeoutMillis)
+	{
+		final JavactorPromise<R> promise = new JavactorPromise<>();
+		final PromiseActorRef replyTo = new PromiseActorRef(promise, response);
+		replyTo.setTimeout(scheduler.schedule(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				promise.fail(new TimeoutException("Ask of "+response+" timed out."));
+			}
+		}, timeoutMillis, TimeUnit.MILLISECONDS));
+		to.tell(msg, replyTo);
+		return promise;
+	}
+
+	void execute(Runnable task)
+	{
+		executor.execute(task);
+	}
+
+	TickService<?> getTickService()
+	{
+		return tickService;
+	}
+
+	ScheduledThreadPoolExecutor getScheduler()
+	{
+		return scheduler;
+	}
+
+	LocalEventStream getEventStream()
+	{
+		return eventStream;
+	}
+
+	int getThroughput()
+	{
+		return throughput;
+	}
+}
@@ -0,0 +1,135 @@
+package javactor.local;
+
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext;
+import javactor.JavactorContext.JavactorPreparer;
+import javactor.JavactorContext.PoolBuilder;
+import javactor.JavactorContext.Routing;
+import javactor.JavactorFactory;
+
+/**
+ * Builds pools whose actors are children of the parent, and whose failures are
+ * handled one by one by the parent's supervisor strategy. Resizable pools are
+ * resized by the parent, as described for {@link PoolRef}.
+ */
+final class LocalPoolBuilder<T> implements PoolBuilder<T>
+{
+	private final LocalJavactorSystem system;
+	private final LocalActor parent;
+	private final Class<T> javactorClass;
+	private final String poolName;
+	private final int size;
+	private Routing routing = Routing.ROUND_ROBIN;
+	private long withinMillis = JavactorContext.DEFAULT_REQUEST_TIMEOUT_MILLIS;
+	private JavactorFactory factory;
+	private JavactorPreparer<T> preparer;
+	/**
+	 * 0 if the pool is not resized
+	 */
+	private int lowerBound;
+	private int upperBound;
+
+	LocalPoolBuilder(LocalJavactorSystem system, LocalActor parent,
+		Class<T> javactorClass, String poolName, int size,
+		JavactorFactory defaultFactory)
+	{
+		if ( size < 1 )
+			throw new IllegalArgumentException("Pool size must be positive: "+size);
+		this.system = system;
+		this.parent = parent;
+		this.javactorClass = javactorClass;
+		this.poolName = poolName;
+		this.size = size;
+		this.factory = defaultFactory;
+	}
+
+	@Override
+	public PoolBuilder<T> routing(Routing routing)
+	{
+		this.routing = routing;
+		return this;
+	}
+
+	@Override
+	public PoolBuilder<T> within(long duration, TimeUnit timeUnit)
+	{
+		this.withinMillis = timeUnit.toMillis(duration);
+		return this;
+	}
+
+	@Override
+	public PoolBuilder<T> resizer(int lowerBound, int upperBound)
+	{
+		if ( lowerBound < 1 || upperBound < lowerBound )
+			throw new IllegalArgumentException("Pool bounds must be positive and "
+				+ "ordered: "+lowerBound+", "+upperBound);
+		this.lowerBound = lowerBound;
+		this.upperBound = upperBound;
+		return this;
+	}
+
+	@Override
+	public PoolBuilder<T> factory(JavactorFactory factory)
+	{
+		this.factory = factory;
+		return this;
+	}
+
+	@Override
+	public PoolBuilder<T> preparer(JavactorPreparer<T> preparer)
+	{
+		this.preparer = preparer;
+		return this;
+	}
+
+	/**
+	 * Ignored, as all actors of a {@link LocalJavactorSystem} share its pool
+	 */
+	@Override
+	public PoolBuilder<T> dispatcher(String dispatcherName)
+	{
+		return this;
+	}
+
+	@Override
+	public Object build()
+	{
+		final String path = parent.getSelf().getPath()+"/"+poolName;
+		if ( upperBound == 0 ) {
+			final LocalActorRef[] routees = new LocalActorRef[size];
+			for (int i = 0; i < size; i++)
+				routees[i] = createRoutee(factory, preparer, i);
+			return added(new PoolRef(system, parent, path, routees, routing, 
+				withinMillis));
+		}
+		final JavactorFactory factory = this.factory;
+		final JavactorPreparer<T> preparer = this.preparer;
+		final LocalActorRef[] routees =
+			new LocalActorRef[Math.max(lowerBound, Math.min(upperBound, size))];
+		for (int i = 0; i < routees.length; i++)
+			routees[i] = createRoutee(factory, preparer, i);
+		return added(new PoolRef(system, parent, path, routees, routing, withinMillis,
+			new PoolRef.RouteeCreator()
+			{
+				@Override
+				public LocalActorRef create(int index)
+				{
+					return createRoutee(factory, preparer, index);
+				}
+			}, lowerBound, upperBound));
+	}
+
+	private PoolRef added(PoolRef pool)
+	{
+		parent.addPool(pool);
+		return pool;
+	}
+
+	private LocalActorRef createRoutee(JavactorFactory factory,
+		JavactorPreparer<T> preparer, int index)
+	{
+		return system.createActor(parent, javactorClass, poolName+"-"+index,
+			factory, preparer, false, null, null);
+	}
+}
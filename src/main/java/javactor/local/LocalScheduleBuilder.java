@@ -0,0 +1,104 @@
+package javactor.local;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javactor.Cancellable;
+import javactor.JavactorContext.ScheduleBuilder;
+
+final class LocalScheduleBuilder implements ScheduleBuilder
+{
+	private final LocalJavactorSystem system;
+	private final LocalActorRef self;
+	private final Object msg;
+	private LocalActorRef to;
+	private LocalActorRef from;
+	private long delayNanos;
+	private long periodNanos;
+	private boolean firstOnTime;
+
+	LocalScheduleBuilder(LocalJavactorSystem system, LocalActorRef self, Object msg)
+	{
+		this.system = system;
+		this.self = self;
+		this.msg = msg;
+		this.from = self;
+	}
+
+	@Override
+	public ScheduleBuilder to(Object to)
+	{
+		this.to = (LocalActorRef) to;
+		return this;
+	}
+
+	@Override
+	public ScheduleBuilder toSelf()
+	{
+		this.to = self;
+		return this;
+	}
+
+	@Override
+	public ScheduleBuilder from(Object from)
+	{
+		this.from = (LocalActorRef) from;
+		return this;
+	}
+
+	@Override
+	public ScheduleBuilder delay(long delay, TimeUnit timeUnit)
+	{
+		this.delayNanos = timeUnit.toNanos(delay);
+		return this;
+	}
+
+	@Override
+	public ScheduleBuilder period(long period, TimeUnit timeUnit)
+	{
+		this.periodNanos = timeUnit.toNanos(period);
+		return this;
+	}
+
+	@Override
+	public ScheduleBuilder firstOnTime()
+	{
+		this.firstOnTime = true;
+		return this;
+	}
+
+	/**
+	 * Messages without a recipient are published from the scheduler thread.
+	 * Periodic messages go through the system's {@link javactor.util.TickService},
+	 * sharing a timer with all those of the same period.
+	 */
+	@Override
+	public Cancellable go()
+	{
+		if ( periodNanos > 0 )
+			return system.getTickService().schedule(msg, to, from, delayNanos,
+				periodNanos, firstOnTime);
+		final LocalActorRef to = this.to, from = this.from;
+		final Runnable task = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if ( to == null )
+					system.publish(msg);
+				else
+					to.tell(msg, from);
+			}
+		};
+		final ScheduledFuture<?> future = system.getScheduler().schedule(task,
+			delayNanos, TimeUnit.NANOSECONDS);
+		return new Cancellable()
+		{
+			@Override
+			public boolean cancel()
+			{
+				return future.cancel(false);
+			}
+		};
+	}
+}
@@ -0,0 +1,115 @@
+package javactor.local;
+
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext;
+import javactor.JavactorContext.SendBuilder;
+import javactor.JavactorFuture;
+
+final class LocalSendBuilder implements SendBuilder
+{
+	private final LocalJavactorSystem system;
+	/**
+	 * Null when sending from outside of actors, via a
+	 * {@link LocalClientSendBuilder}, which neither replies to the sender nor
+	 * makes requests
+	 */
+	private final LocalActor sender;
+	private final Object msg;
+	private LocalActorRef to;
+	private LocalActorRef replyTo;
+	private boolean replyToSet;
+	private long timeoutMillis = -1;
+
+	LocalSendBuilder(LocalJavactorSystem system, LocalActor sender, Object msg)
+	{
+		this.system = system;
+		this.sender = sender;
+		this.msg = msg;
+		this.replyTo = sender == null ? null : sender.getSelf();
+	}
+
+	@Override
+	public SendBuilder to(Object to)
+	{
+		this.to = (LocalActorRef) to;
+		return this;
+	}
+
+	@Override
+	public SendBuilder replyToSender()
+	{
+		this.to = sender.getSender();
+		return this;
+	}
+
+	@Override
+	public SendBuilder from(Object from)
+	{
+		this.replyToSet = true;
+		this.replyTo = (LocalActorRef) from;
+		return this;
+	}
+
+	@Override
+	public SendBuilder timeout(long duration, TimeUnit timeUnit)
+	{
+		this.timeoutMillis = timeUnit.toMillis(duration);
+		return this;
+	}
+
+	@Override
+	public void fireAndForget()
+	{
+		if ( timeoutMillis >= 0 )
+			throw new IllegalArgumentException("Trying to fire and forget "
+				+ "with a non null timeout.");
+		fire();
+	}
+
+	private void checkDestination()
+	{
+		if ( to == null && replyToSet )
+			throw new IllegalArgumentException("Trying to publish to "
+				+ "event bus with replyTo. The event stream does not retain the "
+				+ "sender.");
+	}
+
+	private void fire()
+	{
+		checkDestination();
+		if ( to == null )
+			system.publish(msg);
+		else
+			to.tell(msg, replyTo);
+	}
+
+	@Override
+	public long request(Class<?> response, Object requestInfo)
+	{
+		/* Before waiting, so a request that cannot be sent is not left pending */
+		checkDestination();
+		final long correlationId = sender.startWaitingFor(msg, response, 
+			timeoutOrDefault(), requestInfo);
+		fire();
+		return correlationId;
+	}
+
+	@Override
+	public <R> JavactorFuture<R> ask(Class<R> response)
+	{
+		if ( to == null )
+			throw new IllegalArgumentException("Trying to ask the event "
+				+ "stream. An ask needs a recipient.");
+		if ( replyToSet )
+			throw new IllegalArgumentException("Trying to ask with replyTo. "
+				+ "The reply of an ask goes to its future.");
+		return system.ask(to, msg, response, timeoutOrDefault());
+	}
+
+	private long timeoutOrDefault()
+	{
+		return timeoutMillis >= 0 ? timeoutMillis : 
+			JavactorContext.DEFAULT_REQUEST_TIMEOUT_MILLIS;
+	}
+}
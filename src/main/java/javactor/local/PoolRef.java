@@ -0,0 +1,296 @@
+package javactor.local;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import javactor.JavactorContext.Routing;
+import javactor.msg.HashKeyed;
+import lombok.extern.java.Log;
+
+/**
+ * Routes messages to the actors of a pool, on the sender's thread, without
+ * being an actor itself. A resizable pool is resized by its parent, as with
+ * Akka's default resizer: every {@link #MESSAGES_PER_RESIZE} messages, it
+ * grows when all its actors are busy, and shrinks when fewer than
+ * {@link #BACKOFF_THRESHOLD} of them are. Removed actors handle the messages
+ * already sent to them before stopping. Actors that stop are removed from the
+ * pool, as Akka's pools remove terminated routees.
+ */
+@Log
+final class PoolRef extends LocalActorRef
+{
+	/**
+	 * Forwards the first reply of a scatter-gather to the sender, until the
+	 * pool's timeout
+	 */
+	static private final class FirstReplyRef extends LocalActorRef
+	{
+		private final LocalActorRef sender;
+		private final AtomicBoolean done = new AtomicBoolean();
+
+		private FirstReplyRef(LocalActorRef sender)
+		{
+			super(null, "/temp/scatter-gather");
+			this.sender = sender;
+		}
+
+		@Override
+		public void tell(Object msg, LocalActorRef from)
+		{
+			if ( done.compareAndSet(false, true) )
+				sender.tell(msg, from);
+		}
+
+		@Override
+		public boolean isTerminated()
+		{
+			return done.get();
+		}
+	}
+
+	/**
+	 * Creates the actors of a resizable pool, on the parent's thread
+	 */
+	interface RouteeCreator
+	{
+		LocalActorRef create(int index);
+	}
+
+	static final int MESSAGES_PER_RESIZE = 10;
+	/**
+	 * Of the pool's size, by which it grows, rounded up
+	 */
+	static final double RAMPUP_RATE = 0.2;
+	static final double BACKOFF_THRESHOLD = 0.3;
+	/**
+	 * Of the pool's size, by which it shrinks, rounded down, but at least one
+	 */
+	static final double BACKOFF_RATE = 0.1;
+
+	private final LocalJavactorSystem system;
+	private final LocalActor parent;
+	/**
+	 * Copied on write, by the parent
+	 */
+	private volatile LocalActorRef[] routees;
+	private final Routing routing;
+	private final long withinMillis;
+	private final AtomicInteger next = new AtomicInteger();
+	/**
+	 * Null if the pool is not resized
+	 */
+	private final RouteeCreator creator;
+	private final int lowerBound;
+	private final int upperBound;
+	private final AtomicInteger sinceResize = new AtomicInteger();
+	private final AtomicBoolean resizing = new AtomicBoolean();
+	/**
+	 * Only touched by the parent
+	 */
+	private int nextIndex;
+	private volatile boolean stopped;
+
+	PoolRef(LocalJavactorSystem system, LocalActor parent, String path,
+		LocalActorRef[] routees, Routing routing, long withinMillis)
+	{
+		this(system, parent, path, routees, routing, withinMillis, null, 0, 0);
+	}
+
+	PoolRef(LocalJavactorSystem system, LocalActor parent, String path,
+		LocalActorRef[] routees, Routing routing, long withinMillis,
+		RouteeCreator creator, int lowerBound, int upperBound)
+	{
+		super(null, path);
+		this.system = system;
+		this.parent = parent;
+		this.routees = routees;
+		this.routing = routing;
+		this.withinMillis = withinMillis;
+		this.creator = creator;
+		this.lowerBound = lowerBound;
+		this.upperBound = upperBound;
+		this.nextIndex = routees.length;
+	}
+
+	LocalActorRef[] getRoutees()
+	{
+		return routees;
+	}
+
+	@Override
+	public void tell(Object msg, LocalActorRef sender)
+	{
+		final LocalActorRef[] routees = this.routees;
+		if ( routees.length == 0 )
+			log.fine("Dead letter to "+this+", which has no actors: "+msg);
+		else
+			route(routees, msg, sender);
+		if ( creator != null && sinceResize.incrementAndGet() >= MESSAGES_PER_RESIZE
+			&& resizing.compareAndSet(false, true) )
+		{
+			sinceResize.set(0);
+			parent.resize(this);
+		}
+	}
+
+	private void route(LocalActorRef[] routees, Object msg, LocalActorRef sender)
+	{
+		switch ( routing ) {
+		case SMALLEST_MAILBOX:
+			smallestMailbox(routees).tell(msg, sender);
+			break;
+		case CONSISTENT_HASHING:
+			if ( !(msg instanceof HashKeyed) ) {
+				log.log(Level.WARNING, "Dropping message "+msg+" to "+this
+					+", which routes by HashKeyed keys");
+				break;
+			}
+			routees[index(routees, ((HashKeyed) msg).getHashKey().hashCode())]
+				.tell(msg, sender);
+			break;
+		case SCATTER_GATHER_FIRST_COMPLETED:
+			scatter(routees, msg, sender);
+			break;
+		default:
+			routees[index(routees, next.getAndIncrement())].tell(msg, sender);
+		}
+	}
+
+	private static int index(LocalActorRef[] routees, int hash)
+	{
+		return (hash & Integer.MAX_VALUE) % routees.length;
+	}
+
+	/**
+	 * The first idle routee, or else the one with the fewest queued messages
+	 */
+	private static LocalActorRef smallestMailbox(LocalActorRef[] routees)
+	{
+		LocalActorRef smallest = null;
+		int smallestSize = Integer.MAX_VALUE;
+		for (LocalActorRef routee : routees)
+		{
+			final LocalActor actor = routee.getActor();
+			if ( actor.isIdle() )
+				return routee;
+			final int size = actor.getMailboxSize();
+			if ( size < smallestSize ) {
+				smallest = routee;
+				smallestSize = size;
+			}
+		}
+		return smallest;
+	}
+
+	private void scatter(LocalActorRef[] routees, Object msg, LocalActorRef sender)
+	{
+		if ( sender == null ) {
+			for (LocalActorRef routee : routees)
+				routee.tell(msg, null);
+			return;
+		}
+		final FirstReplyRef replyTo = new FirstReplyRef(sender);
+		for (LocalActorRef routee : routees)
+			routee.tell(msg, replyTo);
+		system.getScheduler().schedule(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				replyTo.done.set(true);
+			}
+		}, withinMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Called on the parent's thread
+	 */
+	void resize()
+	{
+		try
+		{
+			if ( stopped )
+				return;
+			final LocalActorRef[] current = routees;
+			int busy = 0;
+			for (LocalActorRef routee : current)
+			{
+				if ( !routee.getActor().isIdle() )
+					busy++;
+			}
+			int size;
+			if ( busy == current.length )
+				size = current.length + (int) Math.ceil(RAMPUP_RATE * current.length);
+			else if ( busy < BACKOFF_THRESHOLD * current.length )
+				size = current.length - Math.max(1, (int) (BACKOFF_RATE * current.length));
+			else
+				size = current.length;
+			/* Also grows back a pool whose actors stopped */
+			size = Math.max(lowerBound, Math.min(upperBound, size));
+			if ( size == current.length )
+				return;
+			final LocalActorRef[] updated = Arrays.copyOf(current, size);
+			for (int i = current.length; i < size; i++)
+				updated[i] = creator.create(nextIndex++);
+			routees = updated;
+			for (int i = size; i < current.length; i++)
+				current[i].getActor().retire();
+		} finally
+		{
+			resizing.set(false);
+		}
+	}
+
+	/**
+	 * Called on the parent's thread, once the actor has stopped
+	 *
+	 * @return whether it was one of the pool's
+	 */
+	boolean removeRoutee(LocalActor routee)
+	{
+		final LocalActorRef[] current = routees;
+		for (int i = 0; i < current.length; i++)
+		{
+			if ( current[i].getActor() == routee ) {
+				final LocalActorRef[] updated = new LocalActorRef[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, updated.length - i);
+				routees = updated;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether it was stopped, or has no actors left and is not resized
+	 */
+	boolean isStopped()
+	{
+		return stopped || creator == null && routees.length == 0;
+	}
+
+	/**
+	 * Thread safe
+	 */
+	void stop()
+	{
+		stopped = true;
+		for (LocalActorRef routee : routees)
+			routee.getActor().stop();
+	}
+
+	@Override
+	public boolean isTerminated()
+	{
+		for (LocalActorRef routee : routees)
+		{
+			if ( !routee.isTerminated() )
+				return false;
+		}
+		return true;
+	}
+}
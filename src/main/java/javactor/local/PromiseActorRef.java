@@ -0,0 +1,48 @@
+package javactor.local;
+
+import java.util.concurrent.ScheduledFuture;
+
+import javactor.util.JavactorPromise;
+
+/**
+ * Receives the reply to an ask, completing its promise, without being an
+ * actor
+ */
+final class PromiseActorRef extends LocalActorRef
+{
+	private final JavactorPromise<Object> promise;
+	private final Class<?> response;
+	private volatile ScheduledFuture<?> timeout;
+
+	@SuppressWarnings("unchecked")
+	PromiseActorRef(JavactorPromise<?> promise, Class<?> response)
+	{
+		super(null, "/temp/ask");
+		this.promise = (JavactorPromise<Object>) promise;
+		this.response = response;
+	}
+
+	void setTimeout(ScheduledFuture<?> timeout)
+	{
+		this.timeout = timeout;
+		if ( promise.isDone() )
+			timeout.cancel(false);
+	}
+
+	@Override
+	public void tell(Object msg, LocalActorRef sender)
+	{
+		final boolean completed = response.isInstance(msg) ? promise.succeed(msg) :
+			promise.fail(new ClassCastException("Expected reply of "+response
+				+" but got "+msg));
+		final ScheduledFuture<?> timeout = this.timeout;
+		if ( completed && timeout != null )
+			timeout.cancel(false);
+	}
+
+	@Override
+	public boolean isTerminated()
+	{
+		return promise.isDone();
+	}
+}
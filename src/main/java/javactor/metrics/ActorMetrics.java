@@ -0,0 +1,32 @@
+package javactor.metrics;
+
+import javactor.dispatch.MethodInvoker;
+
+/**
+ * Receives the metrics of actors, from their threads, so implementations
+ * shared by actors must be thread safe. Called while handling messages, so
+ * implementations should neither block nor allocate.
+ */
+public interface ActorMetrics
+{
+	/**
+	 * A handle method, or batch handle method, returned or threw
+	 *
+	 * @param handler the method, named by its toString()
+	 */
+	void handled(MethodInvoker handler, long nanos);
+
+	/**
+	 * A message waited this long in the mailbox before it was handled. Only
+	 * reported by runtimes whose mailboxes time messages.
+	 */
+	void queued(long nanos);
+
+	void unhandled(Class<?> msgClass);
+
+	void requestStarted();
+
+	void requestCompleted();
+
+	void requestTimedOut();
+}
@@ -0,0 +1,50 @@
+package javactor.metrics;
+
+import java.util.Map;
+
+/**
+ * The metrics of all actors of a javactor class, as registered with JMX by
+ * {@link InMemoryJavactorMetrics}
+ */
+public interface ActorMetricsMXBean
+{
+	/**
+	 * By handle method
+	 */
+	Map<String, Long> getHandledCounts();
+
+	/**
+	 * By handle method
+	 */
+	Map<String, Long> getHandleNanos50thPercentile();
+
+	/**
+	 * By handle method
+	 */
+	Map<String, Long> getHandleNanos99thPercentile();
+
+	/**
+	 * By handle method
+	 */
+	Map<String, Long> getHandleNanosMax();
+
+	long getQueueNanos50thPercentile();
+
+	long getQueueNanos99thPercentile();
+
+	/**
+	 * By message class
+	 */
+	Map<String, Long> getUnhandledCounts();
+
+	long getPendingRequests();
+
+	long getCompletedRequests();
+
+	long getTimedOutRequests();
+
+	/**
+	 * Of the requests that are no longer pending
+	 */
+	double getRequestTimeoutRate();
+}
@@ -0,0 +1,265 @@
+package javactor.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import javactor.dispatch.MethodInvoker;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import lombok.extern.java.Log;
+
+/**
+ * Keeps the metrics of actors in memory, aggregated by javactor class, and
+ * optionally registers them with JMX, as
+ * <code>javactor:type=ActorMetrics,name=&lt;javactor class&gt;</code>.
+ * Reporting allocates only the first time an actor class reports a handle
+ * method or unhandled message class.
+ */
+@Log
+public class InMemoryJavactorMetrics implements JavactorMetrics
+{
+	public static final String JMX_DOMAIN = "javactor";
+
+	/**
+	 * The metrics of the actors of a javactor class. Thread safe.
+	 */
+	static public class ClassMetrics implements ActorMetrics, ActorMetricsMXBean
+	{
+		private final ConcurrentMap<MethodInvoker, LatencyHistogram> handlers =
+			new ConcurrentHashMap<>();
+		private final LatencyHistogram queueNanos = new LatencyHistogram();
+		private final ConcurrentMap<Class<?>, AtomicLong> unhandled =
+			new ConcurrentHashMap<>();
+		private final AtomicLong startedRequests = new AtomicLong();
+		private final AtomicLong completedRequests = new AtomicLong();
+		private final AtomicLong timedOutRequests = new AtomicLong();
+
+		@Override
+		public void handled(MethodInvoker handler, long nanos)
+		{
+			LatencyHistogram histogram = handlers.get(handler);
+			if ( histogram == null ) {
+				final LatencyHistogram created = new LatencyHistogram();
+				histogram = handlers.putIfAbsent(handler, created);
+				if ( histogram == null )
+					histogram = created;
+			}
+			histogram.record(nanos);
+		}
+
+		@Override
+		public void queued(long nanos)
+		{
+			queueNanos.record(nanos);
+		}
+
+		@Override
+		public void unhandled(Class<?> msgClass)
+		{
+			AtomicLong count = unhandled.get(msgClass);
+			if ( count == null ) {
+				final AtomicLong created = new AtomicLong();
+				count = unhandled.putIfAbsent(msgClass, created);
+				if ( count == null )
+					count = created;
+			}
+			count.incrementAndGet();
+		}
+
+		@Override
+		public void requestStarted()
+		{
+			startedRequests.incrementAndGet();
+		}
+
+		@Override
+		public void requestCompleted()
+		{
+			completedRequests.incrementAndGet();
+		}
+
+		@Override
+		public void requestTimedOut()
+		{
+			timedOutRequests.incrementAndGet();
+		}
+
+		/**
+		 * @return null if the handler has not been invoked
+		 */
+		public LatencyHistogram getHandleNanos(MethodInvoker handler)
+		{
+			return handlers.get(handler);
+		}
+
+		public LatencyHistogram getQueueNanos()
+		{
+			return queueNanos;
+		}
+
+		public long getUnhandledCount(Class<?> msgClass)
+		{
+			final AtomicLong count = unhandled.get(msgClass);
+			return count == null ? 0 : count.get();
+		}
+
+		@Override
+		public Map<String, Long> getHandledCounts()
+		{
+			final Map<String, Long> counts = new TreeMap<>();
+			for (Entry<MethodInvoker, LatencyHistogram> entry : handlers.entrySet())
+				counts.put(entry.getKey().toString(), entry.getValue().getCount());
+			return counts;
+		}
+
+		@Override
+		public Map<String, Long> getHandleNanos50thPercentile()
+		{
+			return handleNanosAt(50);
+		}
+
+		@Override
+		public Map<String, Long> getHandleNanos99thPercentile()
+		{
+			return handleNanosAt(99);
+		}
+
+		@Override
+		public Map<String, Long> getHandleNanosMax()
+		{
+			return handleNanosAt(100);
+		}
+
+		private Map<String, Long> handleNanosAt(double percentile)
+		{
+			final Map<String, Long> nanos = new TreeMap<>();
+			for (Entry<MethodInvoker, LatencyHistogram> entry : handlers.entrySet())
+			{
+				nanos.put(entry.getKey().toString(),
+					entry.getValue().getValueAtPercentile(percentile));
+			}
+			return nanos;
+		}
+
+		@Override
+		public long getQueueNanos50thPercentile()
+		{
+			return queueNanos.getValueAtPercentile(50);
+		}
+
+		@Override
+		public long getQueueNanos99thPercentile()
+		{
+			return queueNanos.getValueAtPercentile(99);
+		}
+
+		@Override
+		public Map<String, Long> getUnhandledCounts()
+		{
+			final Map<String, Long> counts = new TreeMap<>();
+			for (Entry<Class<?>, AtomicLong> entry : unhandled.entrySet())
+				counts.put(entry.getKey().getName(), entry.getValue().get());
+			return counts;
+		}
+
+		@Override
+		public long getPendingRequests()
+		{
+			return startedRequests.get() - completedRequests.get()
+				- timedOutRequests.get();
+		}
+
+		@Override
+		public long getCompletedRequests()
+		{
+			return completedRequests.get();
+		}
+
+		@Override
+		public long getTimedOutRequests()
+		{
+			return timedOutRequests.get();
+		}
+
+		@Override
+		public double getRequestTimeoutRate()
+		{
+			final long timedOut = timedOutRequests.get();
+			final long finished = timedOut + completedRequests.get();
+			return finished == 0 ? 0 : (double) timedOut / finished;
+		}
+	}
+
+	private final ConcurrentMap<Class<?>, ClassMetrics> classMetrics =
+		new ConcurrentHashMap<>();
+	/**
+	 * Null if not registering with JMX
+	 */
+	private final MBeanServer mBeanServer;
+
+	/**
+	 * Does not register with JMX
+	 */
+	public InMemoryJavactorMetrics()
+	{
+		this(null);
+	}
+
+	/**
+	 * @param mBeanServer null not to register with JMX
+	 */
+	public InMemoryJavactorMetrics(MBeanServer mBeanServer)
+	{
+		this.mBeanServer = mBeanServer;
+	}
+
+	/**
+	 * Registers with the platform MBean server
+	 */
+	static public InMemoryJavactorMetrics withJmx()
+	{
+		return new InMemoryJavactorMetrics(ManagementFactory.getPlatformMBeanServer());
+	}
+
+	@Override
+	public ActorMetrics actorMetrics(Class<?> javactorClass)
+	{
+		return getClassMetrics(javactorClass);
+	}
+
+	public ClassMetrics getClassMetrics(Class<?> javactorClass)
+	{
+		ClassMetrics metrics = classMetrics.get(javactorClass);
+		if ( metrics == null ) {
+			final ClassMetrics created = new ClassMetrics();
+			metrics = classMetrics.putIfAbsent(javactorClass, created);
+			if ( metrics == null ) {
+				metrics = created;
+				register(javactorClass, metrics);
+			}
+		}
+		return metrics;
+	}
+
+	private void register(Class<?> javactorClass, ClassMetrics metrics)
+	{
+		if ( mBeanServer == null )
+			return;
+		try
+		{
+			mBeanServer.registerMBean(metrics, new ObjectName(JMX_DOMAIN
+				+":type=ActorMetrics,name="+ObjectName.quote(javactorClass.getName())));
+		} catch (JMException e)
+		{
+			log.log(Level.WARNING, "Could not register the metrics of "
+				+javactorClass+" with JMX", e);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package javactor.metrics;
+
+/**
+ * Where actors report their metrics. Set on the actor system; without one,
+ * metrics cost an actor a null check per message.
+ *
+ * @see InMemoryJavactorMetrics
+ */
+public interface JavactorMetrics
+{
+	/**
+	 * Called when an actor is created, and possibly again when it restarts
+	 *
+	 * @return where the actor reports, or null for it not to
+	 */
+	ActorMetrics actorMetrics(Class<?> javactorClass);
+}
@@ -0,0 +1,97 @@
+package javactor.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values, e.g., nanos, in the manner of an HDR
+ * histogram: values are counted in buckets whose width grows with the value,
+ * with a fixed {@link #SUB_BUCKETS} buckets per power of two, so percentiles
+ * are within about 3% of the recorded values across the whole range of a
+ * long. Recording is thread safe, lock free and does not allocate.
+ */
+public class LatencyHistogram
+{
+	static final int SUB_BUCKET_BITS = 5;
+	public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Negative values are recorded as 0
+	 */
+	public void record(long value)
+	{
+		if ( value < 0 )
+			value = 0;
+		counts.incrementAndGet(index(value));
+		count.incrementAndGet();
+		for (long current = max.get(); value > current; current = max.get())
+		{
+			if ( max.compareAndSet(current, value) )
+				break;
+		}
+	}
+
+	/**
+	 * Values below {@link #SUB_BUCKETS} have a bucket each. Above, a value's
+	 * top {@link #SUB_BUCKET_BITS} + 1 bits pick its bucket, among those for
+	 * its power of two.
+	 */
+	static int index(long value)
+	{
+		if ( value < SUB_BUCKETS )
+			return (int) value;
+		final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return ((shift + 1) << SUB_BUCKET_BITS) + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * The highest value counted in the bucket
+	 */
+	static long highestValue(int index)
+	{
+		if ( index < SUB_BUCKETS )
+			return index;
+		final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		final long subBucket = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	public long getCount()
+	{
+		return count.get();
+	}
+
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	/**
+	 * @param percentile from 0 to 100
+	 * @return the value that percentile of the recorded values are at or
+	 * below, rounded up to its bucket's highest value and capped at the max,
+	 * or 0 if none have been recorded
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		final long total = count.get();
+		if ( total == 0 )
+			return 0;
+		final long rank = Math.max(1, (long) Math.ceil(
+			Math.min(percentile, 100) / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++)
+		{
+			seen += counts.get(i);
+			if ( seen >= rank )
+				return Math.min(highestValue(i), max.get());
+		}
+		/* Recorded concurrently, so the total ran ahead of the buckets */
+		return max.get();
+	}
+}
@@ -0,0 +1,19 @@
+package javactor.msg;
+
+/**
+ * A message belonging to a particular request. When the message passed to
+ * {@link javactor.JavactorContext.SendBuilder#request(Class, Object)} is
+ * correlated, the request is only completed by a reply of the requested type
+ * with the same correlation ID, so an actor can have any number of requests
+ * in flight for the same reply type. The replier copies the ID from the
+ * request into the reply.
+ */
+public interface Correlated
+{
+	/**
+	 * Never used as a correlation ID
+	 */
+	long NONE = 0;
+
+	long getCorrelationId();
+}
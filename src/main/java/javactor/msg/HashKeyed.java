@@ -0,0 +1,11 @@
+package javactor.msg;
+
+/**
+ * A message routed by its key by pools with 
+ * {@link javactor.JavactorContext.Routing#CONSISTENT_HASHING}, so messages
+ * with equal keys go to the same actor
+ */
+public interface HashKeyed
+{
+	Object getHashKey();
+}
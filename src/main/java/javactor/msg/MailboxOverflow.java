@@ -0,0 +1,19 @@
+package javactor.msg;
+
+import static javactor.annot.Priority.Level.HIGH;
+
+import javactor.annot.Priority;
+import lombok.Data;
+
+/**
+ * Sent to the sender of a message that did not fit in the bounded mailbox of
+ * its recipient, whose overflow policy is 
+ * {@link javactor.JavactorContext.OverflowPolicy#REJECT}
+ */
+@Data
+@Priority(HIGH)
+public class MailboxOverflow
+{
+	private final Object msg;
+	private final Object recipient;
+}
@@ -1,5 +1,10 @@
 package javactor.msg;
 
+import static javactor.annot.Priority.Level.HIGH;
+
+import javactor.annot.Priority;
+
+@Priority(HIGH)
 public class Terminated
 {
 
@@ -1,9 +1,29 @@
 package javactor.msg;
 
+import static javactor.annot.Priority.Level.HIGH;
+
+import javactor.annot.Priority;
 import lombok.Data;
 
 @Data
-public class TimeoutMsg
+@Priority(HIGH)
+public class TimeoutMsg implements Correlated
 {
 	private final Object taskInfo;
+	/**
+	 * That of the request that timed out, or {@link Correlated#NONE} if its
+	 * message was not {@link Correlated}
+	 */
+	private final long correlationId;
+
+	public TimeoutMsg(Object taskInfo)
+	{
+		this(taskInfo, NONE);
+	}
+
+	public TimeoutMsg(Object taskInfo, long correlationId)
+	{
+		this.taskInfo = taskInfo;
+		this.correlationId = correlationId;
+	}
 }
@@ -0,0 +1,109 @@
+package javactor.spring;
+
+import java.util.Arrays;
+
+import javactor.JavactorContext.JavactorPreparer;
+import javactor.JavactorFactory;
+import javactor.NoArgConstructorJavactorFactory;
+
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Gets javactors from a Spring {@link ApplicationContext}. A javactor class
+ * with a bean definition must be prototype scoped, and is got by its bean
+ * name. Any other javactor class is constructed with its public no arg
+ * constructor, then autowired and initialized as a bean named after the class,
+ * e.g., its <code>@Autowired</code> fields are injected and its
+ * <code>@PostConstruct</code> methods called. How to get the javactors of a
+ * class is looked up once, the first time one is needed, rather than on every
+ * creation, so bean definitions must not be added for javactor classes
+ * already in use. Spring itself caches the autowiring metadata per class.
+ */
+public class SpringJavactorFactory implements JavactorFactory
+{
+	private static final NoArgConstructorJavactorFactory constructors = 
+		new NoArgConstructorJavactorFactory();
+
+	static private abstract class Resolution
+	{
+		abstract Object create(Class<?> javactorClass);
+	}
+
+	private final ApplicationContext applicationContext;
+	private final AutowireCapableBeanFactory beanFactory;
+	private final ClassValue<Resolution> resolutions = new ClassValue<Resolution>()
+	{
+		@Override
+		protected Resolution computeValue(Class<?> javactorClass)
+		{
+			return resolve(javactorClass);
+		}
+	};
+	private final Resolution autowiring = new Resolution()
+	{
+		@Override
+		Object create(Class<?> javactorClass)
+		{
+			return autowire(constructors.get(javactorClass));
+		}
+	};
+
+	public SpringJavactorFactory(ApplicationContext applicationContext)
+	{
+		this.applicationContext = applicationContext;
+		this.beanFactory = applicationContext.getAutowireCapableBeanFactory();
+	}
+
+	@Override
+	public Object get(Class<?> aClass)
+	{
+		return resolutions.get(aClass).create(aClass);
+	}
+
+	/**
+	 * Autowires and initializes javactors created by other factories, e.g.,
+	 * a {@link javactor.PooledJavactorFactory}
+	 */
+	public <T> JavactorPreparer<T> autowiringPreparer()
+	{
+		return new JavactorPreparer<T>()
+		{
+			@Override
+			public void prepare(T javactor)
+			{
+				autowire(javactor);
+			}
+		};
+	}
+
+	private Object autowire(Object javactor)
+	{
+		beanFactory.autowireBean(javactor);
+		return beanFactory.initializeBean(javactor, javactor.getClass().getName());
+	}
+
+	private Resolution resolve(Class<?> javactorClass)
+	{
+		final String[] beanNames = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(
+			applicationContext, javactorClass);
+		if ( beanNames.length == 0 )
+			return autowiring;
+		if ( beanNames.length > 1 )
+			throw new IllegalStateException("Javactor "+javactorClass+" has more than "
+				+ "one bean definition: "+Arrays.toString(beanNames));
+		final String beanName = beanNames[0];
+		if ( !applicationContext.isPrototype(beanName) )
+			throw new IllegalStateException("Javactor bean "+beanName+" must be "
+				+ "prototype scoped, as each actor needs its own javactor.");
+		return new Resolution()
+		{
+			@Override
+			Object create(Class<?> aClass)
+			{
+				return applicationContext.getBean(beanName, aClass);
+			}
+		};
+	}
+}
@@ -0,0 +1,135 @@
+package javactor.util;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext.OverflowPolicy;
+import lombok.Data;
+
+/**
+ * A bounded mailbox queue, applying its {@link OverflowPolicy} when full.
+ * Thread safe.
+ */
+public class BoundedQueue<E> extends AbstractQueue<E>
+{
+	/**
+	 * How a mailbox is bounded
+	 */
+	@Data
+	static public class Bounds {
+		private final int capacity;
+		private final OverflowPolicy overflowPolicy;
+		/**
+		 * How long {@link OverflowPolicy#BLOCK} blocks
+		 */
+		private final long pushTimeoutNanos;
+	}
+
+	/**
+	 * Gets the elements that did not fit. Kept by the producer, e.g., one per
+	 * mailbox, so that pushing does not allocate.
+	 */
+	public interface OverflowSink<E> {
+		void overflowed(E e);
+	}
+
+	private static final OverflowSink<Object> DROP = new OverflowSink<Object>()
+	{
+		@Override
+		public void overflowed(Object e)
+		{
+		}
+	};
+
+	private final LinkedBlockingQueue<E> queue;
+	private final OverflowPolicy overflowPolicy;
+	private final long pushTimeoutNanos;
+
+	public BoundedQueue(Bounds bounds)
+	{
+		if ( bounds.getCapacity() < 1 )
+			throw new IllegalArgumentException("Capacity must be positive: "
+				+bounds.getCapacity());
+		this.queue = new LinkedBlockingQueue<>(bounds.getCapacity());
+		this.overflowPolicy = bounds.getOverflowPolicy();
+		this.pushTimeoutNanos = bounds.getPushTimeoutNanos();
+	}
+
+	public OverflowPolicy getOverflowPolicy()
+	{
+		return overflowPolicy;
+	}
+
+	/**
+	 * Adds the element, blocking for {@link OverflowPolicy#BLOCK}
+	 *
+	 * @param overflowed gets the elements that did not fit: the given one, or
+	 * the oldest ones dropped for {@link OverflowPolicy#DROP_OLDEST}, of which
+	 * there may be more than one when racing other producers
+	 * @return whether the element was added
+	 */
+	public boolean push(E e, OverflowSink<? super E> overflowed)
+	{
+		if ( queue.offer(e) )
+			return true;
+		switch ( overflowPolicy ) {
+		case DROP_OLDEST:
+			while (!queue.offer(e))
+			{
+				final E oldest = queue.poll();
+				if ( oldest != null )
+					overflowed.overflowed(oldest);
+			}
+			return true;
+		case BLOCK:
+			try
+			{
+				if ( queue.offer(e, pushTimeoutNanos, TimeUnit.NANOSECONDS) )
+					return true;
+			} catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			overflowed.overflowed(e);
+			return false;
+		default:
+			overflowed.overflowed(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Drops what overflows
+	 */
+	@Override
+	public boolean offer(E e)
+	{
+		return push(e, DROP);
+	}
+
+	@Override
+	public E poll()
+	{
+		return queue.poll();
+	}
+
+	@Override
+	public E peek()
+	{
+		return queue.peek();
+	}
+
+	@Override
+	public int size()
+	{
+		return queue.size();
+	}
+
+	@Override
+	public Iterator<E> iterator()
+	{
+		return queue.iterator();
+	}
+}
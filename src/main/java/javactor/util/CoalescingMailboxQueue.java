@@ -0,0 +1,149 @@
+package javactor.util;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Iterators;
+
+/**
+ * A lock free mailbox queue keeping only the latest of the waiting messages
+ * with the same {@link MessageCoalescing} key, in the place of the first, so
+ * that under bursts it holds at most one message per key, and the actor
+ * handles each key once. Messages that are not coalesced are queued as
+ * usual. Thread safe.
+ *
+ * @param <E> the type of the envelopes of the messages
+ */
+public abstract class CoalescingMailboxQueue<E> extends AbstractQueue<E>
+{
+	/**
+	 * Holds the latest envelope for its key until taken, after which it is
+	 * empty and no longer in {@link #slots}
+	 */
+	@SuppressWarnings("serial")
+	static private final class Slot<E> extends AtomicReference<E>
+	{
+		private final Object key;
+
+		private Slot(Object key, E envelope)
+		{
+			super(envelope);
+			this.key = key;
+		}
+	}
+
+	private final MessageCoalescing coalescing;
+	/**
+	 * Holds envelopes, and slots for coalesced ones
+	 */
+	private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+	/**
+	 * The slots in the queue, by key
+	 */
+	private final ConcurrentHashMap<Object, Slot<E>> slots = new ConcurrentHashMap<>();
+
+	public CoalescingMailboxQueue(MessageCoalescing coalescing)
+	{
+		this.coalescing = coalescing;
+	}
+
+	/**
+	 * @return the message in the envelope
+	 */
+	protected abstract Object message(E envelope);
+
+	/**
+	 * Called when a waiting envelope is replaced by a later one with the same
+	 * key, e.g., to keep count of the waiting messages
+	 */
+	protected void coalesced(E replaced)
+	{
+	}
+
+	@Override
+	public boolean offer(E envelope)
+	{
+		final Object key = coalescing.keyOf(message(envelope));
+		if ( key == null )
+			return queue.offer(envelope);
+		for (;;)
+		{
+			final Slot<E> slot = slots.get(key);
+			if ( slot != null ) {
+				final E replaced = slot.get();
+				if ( replaced != null && slot.compareAndSet(replaced, envelope) ) {
+					coalesced(replaced);
+					return true;
+				}
+				/* Replaced concurrently, or being taken and so leaving the slots */
+				continue;
+			}
+			final Slot<E> created = new Slot<>(key, envelope);
+			if ( slots.putIfAbsent(key, created) == null )
+				return queue.offer(created);
+		}
+	}
+
+	@Override
+	public E poll()
+	{
+		final Object head = queue.poll();
+		if ( !(head instanceof Slot) ) {
+			@SuppressWarnings("unchecked")
+			final E envelope = (E) head;
+			return envelope;
+		}
+		@SuppressWarnings("unchecked")
+		final Slot<E> slot = (Slot<E>) head;
+		/* Removed first, so later messages for the key get a new slot */
+		slots.remove(slot.key, slot);
+		return slot.getAndSet(null);
+	}
+
+	@Override
+	public E peek()
+	{
+		return unwrap(queue.peek());
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return queue.isEmpty();
+	}
+
+	/**
+	 * Takes time proportional to the number of waiting messages, i.e., at
+	 * most one per key
+	 */
+	@Override
+	public int size()
+	{
+		return queue.size();
+	}
+
+	@Override
+	public Iterator<E> iterator()
+	{
+		return Iterators.filter(Iterators.transform(queue.iterator(), new Function<Object, E>()
+		{
+			@Override
+			public E apply(Object entry)
+			{
+				return unwrap(entry);
+			}
+		}), Predicates.notNull());
+	}
+
+	@SuppressWarnings("unchecked")
+	private E unwrap(Object entry)
+	{
+		return entry instanceof Slot ? ((Slot<E>) entry).get() : (E) entry;
+	}
+}
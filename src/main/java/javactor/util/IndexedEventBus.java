@@ -0,0 +1,167 @@
+package javactor.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An event bus for subscribers that subscribe to whole sets of message classes
+ * at once, e.g., all the classes a javactor class handles. Subscribers with
+ * the same set of classes share a group, and each published message class is
+ * resolved, once, to the groups with a class it is an instance of. Group
+ * members are held in copy-on-write arrays, so publishing neither locks nor
+ * allocates, and subscribers joining existing groups do not invalidate the
+ * index. Each subscriber receives a message once, however many of its classes
+ * the message is an instance of. Thread safe.
+ */
+public abstract class IndexedEventBus<S>
+{
+	private static final Object[] NO_SUBSCRIBERS = new Object[0];
+
+	static private final class Group
+	{
+		private final Class<?>[] msgClasses;
+		private volatile Object[] subscribers = NO_SUBSCRIBERS;
+
+		private Group(Set<Class<?>> msgClasses)
+		{
+			this.msgClasses = msgClasses.toArray(new Class<?>[msgClasses.size()]);
+		}
+
+		private boolean matches(Class<?> msgClass)
+		{
+			for (Class<?> groupMsgClass : msgClasses)
+			{
+				if ( groupMsgClass.isAssignableFrom(msgClass) )
+					return true;
+			}
+			return false;
+		}
+
+		private synchronized void add(Object subscriber)
+		{
+			final Object[] current = subscribers;
+			final Object[] updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = subscriber;
+			subscribers = updated;
+		}
+
+		private synchronized void remove(Object subscriber)
+		{
+			final Object[] current = subscribers;
+			for (int i = 0; i < current.length; i++)
+			{
+				if ( current[i].equals(subscriber) ) {
+					final Object[] updated = new Object[current.length - 1];
+					System.arraycopy(current, 0, updated, 0, i);
+					System.arraycopy(current, i + 1, updated, i, updated.length - i);
+					subscribers = updated;
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaced as a whole when a group is added, so a lookup never caches a
+	 * resolution made against older groups
+	 */
+	static private final class Index
+	{
+		private final Group[] groups;
+		/**
+		 * Unbounded, as there are only as many keys as published classes
+		 */
+		private final ConcurrentHashMap<Class<?>, Group[]> groupsByMsgClass =
+			new ConcurrentHashMap<>();
+
+		private Index(Group[] groups)
+		{
+			this.groups = groups;
+		}
+
+		private Group[] get(Class<?> msgClass)
+		{
+			Group[] result = groupsByMsgClass.get(msgClass);
+			if ( result == null ) {
+				final List<Group> matching = new ArrayList<>();
+				for (Group group : groups)
+				{
+					if ( group.matches(msgClass) )
+						matching.add(group);
+				}
+				result = matching.toArray(new Group[matching.size()]);
+				groupsByMsgClass.put(msgClass, result);
+			}
+			return result;
+		}
+	}
+
+	private final ConcurrentHashMap<Set<Class<?>>, Group> groupsByMsgClasses =
+		new ConcurrentHashMap<>();
+	private volatile Index index = new Index(new Group[0]);
+
+	/**
+	 * Delivers a published message to one of its subscribers
+	 */
+	protected abstract void deliver(S subscriber, Object msg);
+
+	public void subscribe(S subscriber, Set<Class<?>> msgClasses)
+	{
+		if ( msgClasses.isEmpty() )
+			return;
+		Group group = groupsByMsgClasses.get(msgClasses);
+		if ( group == null )
+			group = addGroup(msgClasses);
+		group.add(subscriber);
+	}
+
+	private synchronized Group addGroup(Set<Class<?>> msgClasses)
+	{
+		Group group = groupsByMsgClasses.get(msgClasses);
+		if ( group == null ) {
+			group = new Group(msgClasses);
+			final Group[] groups = index.groups;
+			final Group[] updated = Arrays.copyOf(groups, groups.length + 1);
+			updated[groups.length] = group;
+			index = new Index(updated);
+			groupsByMsgClasses.put(msgClasses, group);
+		}
+		return group;
+	}
+
+	/**
+	 * @param msgClasses the classes the subscriber subscribed to
+	 */
+	public void unsubscribe(S subscriber, Set<Class<?>> msgClasses)
+	{
+		final Group group = groupsByMsgClasses.get(msgClasses);
+		if ( group != null )
+			group.remove(subscriber);
+	}
+
+	/**
+	 * @return whether a message of the class would be delivered to anyone
+	 */
+	public boolean hasSubscribers(Class<?> msgClass)
+	{
+		for (Group group : index.get(msgClass))
+		{
+			if ( group.subscribers.length > 0 )
+				return true;
+		}
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void publish(Object msg)
+	{
+		for (Group group : index.get(msg.getClass()))
+		{
+			for (Object subscriber : group.subscribers)
+				deliver((S) subscriber, msg);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package javactor.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javactor.JavactorFuture;
+
+/**
+ * {@link JavactorFuture} completed by whoever creates it. Only the first
+ * completion counts.
+ */
+public class JavactorPromise<R> implements JavactorFuture<R>
+{
+	private boolean done;
+	private R result;
+	private Throwable failure;
+	private List<Callback<? super R>> callbacks;
+
+	/**
+	 * @return false if already completed
+	 */
+	public boolean succeed(R result)
+	{
+		return complete(result, null);
+	}
+
+	/**
+	 * @return false if already completed
+	 */
+	public boolean fail(Throwable failure)
+	{
+		return complete(null, failure);
+	}
+
+	@Override
+	public void onComplete(Callback<? super R> callback)
+	{
+		synchronized (this)
+		{
+			if ( !done ) {
+				if ( callbacks == null )
+					callbacks = new ArrayList<>(1);
+				callbacks.add(callback);
+				return;
+			}
+		}
+		call(callback);
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning)
+	{
+		return false;
+	}
+
+	@Override
+	public boolean isCancelled()
+	{
+		return false;
+	}
+
+	@Override
+	public synchronized boolean isDone()
+	{
+		return done;
+	}
+
+	@Override
+	public synchronized R get() throws InterruptedException, ExecutionException
+	{
+		while (!done)
+			wait();
+		return result();
+	}
+
+	@Override
+	public synchronized R get(long timeout, TimeUnit unit) throws InterruptedException,
+		ExecutionException, TimeoutException
+	{
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!done)
+		{
+			final long remaining = deadline - System.nanoTime();
+			if ( remaining <= 0 )
+				throw new TimeoutException();
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return result();
+	}
+
+	private R result() throws ExecutionException
+	{
+		if ( failure instanceof CancellationException )
+			throw (CancellationException) failure;
+		if ( failure != null )
+			throw new ExecutionException(failure);
+		return result;
+	}
+
+	private boolean complete(R result, Throwable failure)
+	{
+		final List<Callback<? super R>> toNotify;
+		synchronized (this)
+		{
+			if ( done )
+				return false;
+			this.done = true;
+			this.result = result;
+			this.failure = failure;
+			toNotify = callbacks;
+			callbacks = null;
+			notifyAll();
+		}
+		if ( toNotify != null )
+			for (Callback<? super R> callback : toNotify)
+				call(callback);
+		return true;
+	}
+
+	private void call(Callback<? super R> callback)
+	{
+		if ( failure != null )
+			callback.onFailure(failure);
+		else
+			callback.onSuccess(result);
+	}
+}
@@ -0,0 +1,180 @@
+package javactor.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javactor.Cancellable;
+import javactor.JavactorContext;
+import javactor.JavactorContext.ScheduleBuilder;
+import javactor.JavactorContext.Timers;
+
+/**
+ * The {@link Timers} of an actor, scheduled as {@link Fired} messages to
+ * itself, which the actor passes to {@link #fired(Fired)} to get the message
+ * to handle. Each scheduling of a timer has a new generation, and fired
+ * messages of earlier generations are stale, so replaced and cancelled timers
+ * are filtered out on delivery rather than relying on cancelling their tasks
+ * in time.
+ * <p>
+ * Pushing back a single timer only moves its deadline: when its task fires
+ * before the deadline, it is scheduled again for the rest of the delay. So
+ * re-arming a key on every message, e.g., for an idle timeout, costs one
+ * scheduler task per delay rather than one per message. Not thread safe.
+ */
+public class KeyedTimers implements Timers
+{
+	/**
+	 * Sent to the actor when a timer's task fires
+	 */
+	static public final class Fired
+	{
+		private final Timer timer;
+		private final int generation;
+
+		private Fired(Timer timer, int generation)
+		{
+			this.timer = timer;
+			this.generation = generation;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Fired("+timer.key+")";
+		}
+	}
+
+	static private final class Timer
+	{
+		private final Object key;
+		private Object msg;
+		/**
+		 * 0 for single timers
+		 */
+		private long periodNanos;
+		private long deadlineNanos;
+		private int generation;
+		/**
+		 * Null if not scheduled
+		 */
+		private Cancellable task;
+		private long taskDeadlineNanos;
+
+		private Timer(Object key)
+		{
+			this.key = key;
+		}
+	}
+
+	private final JavactorContext context;
+	private final Map<Object, Timer> timers = new HashMap<>();
+
+	public KeyedTimers(JavactorContext context)
+	{
+		this.context = context;
+	}
+
+	@Override
+	public void startSingle(Object key, Object msg, long delay, TimeUnit timeUnit)
+	{
+		start(key, msg, Math.max(timeUnit.toNanos(delay), 0), 0);
+	}
+
+	@Override
+	public void startPeriodic(Object key, Object msg, long period, TimeUnit timeUnit)
+	{
+		final long periodNanos = timeUnit.toNanos(period);
+		if ( periodNanos <= 0 )
+			throw new IllegalArgumentException("Period must be positive: "+period);
+		start(key, msg, periodNanos, periodNanos);
+	}
+
+	private void start(Object key, Object msg, long delayNanos, long periodNanos)
+	{
+		final long now = System.nanoTime();
+		Timer timer = timers.get(key);
+		if ( timer == null ) {
+			timer = new Timer(key);
+			timers.put(key, timer);
+		}
+		timer.msg = msg;
+		timer.deadlineNanos = now + delayNanos;
+		/* Its task fires first, and finds the new deadline */
+		if ( periodNanos == 0 && timer.periodNanos == 0 && timer.task != null
+			&& timer.taskDeadlineNanos - timer.deadlineNanos <= 0 )
+		{
+			return;
+		}
+		timer.periodNanos = periodNanos;
+		schedule(timer, delayNanos, now);
+	}
+
+	private void schedule(Timer timer, long delayNanos, long now)
+	{
+		if ( timer.task != null )
+			timer.task.cancel();
+		timer.generation++;
+		final ScheduleBuilder builder = context.schedule(new Fired(timer, timer.generation))
+			.toSelf().delay(delayNanos, TimeUnit.NANOSECONDS);
+		if ( timer.periodNanos > 0 )
+			builder.period(timer.periodNanos, TimeUnit.NANOSECONDS).firstOnTime();
+		timer.task = builder.go();
+		timer.taskDeadlineNanos = now + delayNanos;
+	}
+
+	@Override
+	public boolean cancel(Object key)
+	{
+		final Timer timer = timers.remove(key);
+		if ( timer == null )
+			return false;
+		stop(timer);
+		return true;
+	}
+
+	@Override
+	public boolean isActive(Object key)
+	{
+		return timers.containsKey(key);
+	}
+
+	@Override
+	public void cancelAll()
+	{
+		for (Timer timer : timers.values())
+			stop(timer);
+		timers.clear();
+	}
+
+	private static void stop(Timer timer)
+	{
+		if ( timer.task != null ) {
+			timer.task.cancel();
+			timer.task = null;
+		}
+		timer.generation++;
+	}
+
+	/**
+	 * @return the message of the timer, or null if the fired message is stale
+	 * or came before a pushed back deadline
+	 */
+	public Object fired(Fired fired)
+	{
+		final Timer timer = fired.timer;
+		if ( fired.generation != timer.generation || timers.get(timer.key) != timer )
+			return null;
+		if ( timer.periodNanos > 0 )
+			return timer.msg;
+		timer.task = null;
+		final long now = System.nanoTime();
+		final long remaining = timer.deadlineNanos - now;
+		if ( remaining > 0 ) {
+			schedule(timer, remaining, now);
+			return null;
+		}
+		timers.remove(timer.key);
+		return timer.msg;
+	}
+}
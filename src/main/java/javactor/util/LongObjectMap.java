@@ -0,0 +1,154 @@
+package javactor.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive longs to non null values, using open addressing, so
+ * lookups neither box the key nor allocate an entry. Not thread safe.
+ */
+public class LongObjectMap<V>
+{
+	private static final int MIN_CAPACITY = 8;
+
+	private long[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+
+	public LongObjectMap()
+	{
+		this(MIN_CAPACITY);
+	}
+
+	public LongObjectMap(int expectedSize)
+	{
+		allocate(capacityFor(expectedSize));
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(long key)
+	{
+		for (int i = indexOf(key); values[i] != null; i = (i + 1) & mask)
+		{
+			if ( keys[i] == key )
+				return (V) values[i];
+		}
+		return null;
+	}
+
+	/**
+	 * @return the previous value, or null if none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value)
+	{
+		if ( value == null )
+			throw new NullPointerException("Null value for key "+key);
+		int i = indexOf(key);
+		for (; values[i] != null; i = (i + 1) & mask)
+		{
+			if ( keys[i] == key ) {
+				final V previous = (V) values[i];
+				values[i] = value;
+				return previous;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		if ( ++size > (mask + 1) >> 1 )
+			rehash((mask + 1) << 1);
+		return null;
+	}
+
+	/**
+	 * @return the removed value, or null if none
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key)
+	{
+		for (int i = indexOf(key); values[i] != null; i = (i + 1) & mask)
+		{
+			if ( keys[i] == key ) {
+				final V removed = (V) values[i];
+				values[i] = null;
+				size--;
+				shiftBack(i);
+				return removed;
+			}
+		}
+		return null;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * Moves entries following the freed slot back, so that no probe sequence
+	 * passes over an empty slot
+	 */
+	private void shiftBack(int free)
+	{
+		for (int i = (free + 1) & mask; values[i] != null; i = (i + 1) & mask)
+		{
+			final int home = indexOf(keys[i]);
+			/* Move it if its home is not cyclically within (free, i] */
+			if ( ((i - home) & mask) >= ((i - free) & mask) ) {
+				keys[free] = keys[i];
+				values[free] = values[i];
+				values[i] = null;
+				free = i;
+			}
+		}
+	}
+
+	private int indexOf(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private void rehash(int capacity)
+	{
+		final long[] oldKeys = keys;
+		final Object[] oldValues = values;
+		allocate(capacity);
+		for (int j = 0; j < oldValues.length; j++)
+		{
+			if ( oldValues[j] == null )
+				continue;
+			int i = indexOf(oldKeys[j]);
+			while (values[i] != null)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+		}
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	private static int capacityFor(int expectedSize)
+	{
+		int capacity = MIN_CAPACITY;
+		while (capacity >> 1 < expectedSize)
+			capacity <<= 1;
+		return capacity;
+	}
+}
@@ -0,0 +1,219 @@
+package javactor.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javactor.annot.Coalesce;
+import javactor.dispatch.JavactorDispatcher;
+import javactor.dispatch.JavactorMethod;
+import javactor.msg.Correlated;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Which messages are {@link Coalesce}d, and their keys. A message class is
+ * coalesced as its closest coalesced superclass is, or else as the first
+ * coalesced interface it implements. Resolved once per class. Thread safe.
+ */
+public class MessageCoalescing
+{
+	private static final Object NOT_COALESCED = new Object();
+
+	private static final ClassValue<MessageCoalescing> byJavactorClass =
+		new ClassValue<MessageCoalescing>()
+	{
+		@Override
+		protected MessageCoalescing computeValue(Class<?> javactorClass)
+		{
+			final Map<Class<?>, String> keyProperties = new HashMap<>();
+			for (JavactorMethod method :
+				JavactorDispatcher.forClass(javactorClass).methods())
+			{
+				if ( method.getCoalesceKey() != null && method.getParameterType() != null )
+					keyProperties.put(method.getParameterType(), method.getCoalesceKey());
+			}
+			return keyProperties.isEmpty() ? null : new MessageCoalescing(keyProperties);
+		}
+	};
+
+	/**
+	 * The coalescing of a message class: the class messages are keyed by, and
+	 * the getter of their key property, if any
+	 */
+	static private final class Coalesced
+	{
+		private final Class<?> keyClass;
+		/**
+		 * Null to key messages by their class alone
+		 */
+		private final MethodHandle keyGetter;
+
+		private Coalesced(Class<?> keyClass, MethodHandle keyGetter)
+		{
+			this.keyClass = keyClass;
+			this.keyGetter = keyGetter;
+		}
+	}
+
+	static private final class Key
+	{
+		private final Class<?> keyClass;
+		private final Object value;
+
+		private Key(Class<?> keyClass, Object value)
+		{
+			this.keyClass = keyClass;
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if ( !(obj instanceof Key) )
+				return false;
+			final Key other = (Key) obj;
+			return keyClass == other.keyClass
+				&& (value == null ? other.value == null : value.equals(other.value));
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * keyClass.hashCode() + (value == null ? 0 : value.hashCode());
+		}
+	}
+
+	private final ImmutableMap<Class<?>, Coalesced> coalesced;
+	/**
+	 * Unbounded, as there are only as many keys as message classes. Holds
+	 * {@link #NOT_COALESCED} for classes that are not.
+	 */
+	private final ConcurrentHashMap<Class<?>, Object> resolved = new ConcurrentHashMap<>();
+
+	/**
+	 * @param keyProperties by message class, the property messages are
+	 * coalesced by, or empty to coalesce all messages of the class
+	 * @throws IllegalArgumentException if a message class does not have a
+	 * getter for its key property
+	 */
+	public MessageCoalescing(Map<Class<?>, String> keyProperties)
+	{
+		final ImmutableMap.Builder<Class<?>, Coalesced> coalesced = ImmutableMap.builder();
+		for (Entry<Class<?>, String> entry : keyProperties.entrySet())
+		{
+			final Class<?> msgClass = entry.getKey();
+			coalesced.put(msgClass, new Coalesced(msgClass, entry.getValue().isEmpty() ?
+				null : keyGetter(msgClass, entry.getValue())));
+		}
+		this.coalesced = coalesced.build();
+	}
+
+	/**
+	 * @return the coalescing of the {@link Coalesce} methods of the javactor
+	 * class, or null if it has none
+	 */
+	public static MessageCoalescing forJavactorClass(Class<?> javactorClass)
+	{
+		return byJavactorClass.get(javactorClass);
+	}
+
+	/**
+	 * @return the key the message is coalesced by, or null if it is not
+	 */
+	public Object keyOf(Object message)
+	{
+		if ( message instanceof Correlated
+			&& ((Correlated) message).getCorrelationId() != Correlated.NONE )
+		{
+			return null;
+		}
+		final Class<?> msgClass = message.getClass();
+		Object result = resolved.get(msgClass);
+		if ( result == null ) {
+			result = resolve(msgClass);
+			resolved.put(msgClass, result);
+		}
+		if ( result == NOT_COALESCED )
+			return null;
+		final Coalesced coalescing = (Coalesced) result;
+		if ( coalescing.keyGetter == null )
+			return coalescing.keyClass;
+		try
+		{
+			return new Key(coalescing.keyClass, coalescing.keyGetter.invoke(message));
+		} catch (Throwable t)
+		{
+			throw new RuntimeException("Could not get the coalescing key of "+message, t);
+		}
+	}
+
+	private Object resolve(Class<?> msgClass)
+	{
+		for (Class<?> c = msgClass; c != null; c = c.getSuperclass())
+		{
+			final Coalesced result = coalesced.get(c);
+			if ( result != null )
+				return result;
+		}
+		for (Entry<Class<?>, Coalesced> entry : coalesced.entrySet())
+		{
+			if ( entry.getKey().isAssignableFrom(msgClass) )
+				return entry.getValue();
+		}
+		return NOT_COALESCED;
+	}
+
+	private static MethodHandle keyGetter(Class<?> msgClass, String property)
+	{
+		final String capitalized = Character.toUpperCase(property.charAt(0))
+			+ property.substring(1);
+		for (String name : new String[] { "get"+capitalized, "is"+capitalized, property })
+		{
+			final Method getter = findGetter(msgClass, name);
+			if ( getter != null ) {
+				try
+				{
+					getter.setAccessible(true);
+					return MethodHandles.lookup().unreflect(getter)
+						.asType(MethodType.methodType(Object.class, Object.class));
+				} catch (ReflectiveOperationException | SecurityException e)
+				{
+					throw new IllegalArgumentException("Could not access "+getter, e);
+				}
+			}
+		}
+		throw new IllegalArgumentException(msgClass+" does not have a getter for "
+			+ "coalescing key "+property);
+	}
+
+	/**
+	 * @return null if there is no such method without parameters returning
+	 * a value
+	 */
+	private static Method findGetter(Class<?> msgClass, String name)
+	{
+		Method result = null;
+		try
+		{
+			result = msgClass.getMethod(name);
+		} catch (NoSuchMethodException e)
+		{
+			for (Class<?> c = msgClass; c != null && result == null; c = c.getSuperclass())
+			{
+				try
+				{
+					result = c.getDeclaredMethod(name);
+				} catch (NoSuchMethodException e2)
+				{
+				}
+			}
+		}
+		return result == null || result.getReturnType() == void.class ? null : result;
+	}
+}
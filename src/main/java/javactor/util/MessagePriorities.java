@@ -0,0 +1,65 @@
+package javactor.util;
+
+import java.lang.annotation.Annotation;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javactor.annot.Priority;
+import javactor.annot.Priority.Level;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The priorities of message classes: those set for a class or its closest
+ * superclass, first by the overrides and then by {@link Priority}, or else the
+ * first override for an interface of the class, or else
+ * {@link Level#NORMAL}. Resolved once per class. Thread safe.
+ */
+public class MessagePriorities
+{
+	public static final MessagePriorities DEFAULT = 
+		new MessagePriorities(ImmutableMap.<Class<?>, Level>of());
+
+	private final ImmutableMap<Class<?>, Level> overrides;
+	/**
+	 * Unbounded, as there are only as many keys as message classes
+	 */
+	private final ConcurrentHashMap<Class<?>, Level> levels = new ConcurrentHashMap<>();
+
+	public MessagePriorities(Map<Class<?>, Level> overrides)
+	{
+		this.overrides = ImmutableMap.copyOf(overrides);
+	}
+
+	public Level of(Class<?> msgClass)
+	{
+		Level level = levels.get(msgClass);
+		if ( level == null ) {
+			level = resolve(msgClass);
+			levels.put(msgClass, level);
+		}
+		return level;
+	}
+
+	private Level resolve(Class<?> msgClass)
+	{
+		for (Class<?> c = msgClass; c != null; c = c.getSuperclass())
+		{
+			final Level override = overrides.get(c);
+			if ( override != null )
+				return override;
+			for (Annotation annotation : c.getDeclaredAnnotations())
+			{
+				if ( annotation instanceof Priority )
+					return ((Priority) annotation).value();
+			}
+		}
+		for (Entry<Class<?>, Level> entry : overrides.entrySet())
+		{
+			if ( entry.getKey().isAssignableFrom(msgClass) )
+				return entry.getValue();
+		}
+		return Level.NORMAL;
+	}
+}
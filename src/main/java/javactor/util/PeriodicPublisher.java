@@ -0,0 +1,32 @@
+package javactor.util;
+
+import javactor.Cancellable;
+
+/**
+ * Publishes messages periodically, with all publications of the same period
+ * sharing one timer, as {@link TickService} does for its registrations, and
+ * spread over the period as they are. Thread safe.
+ *
+ * @param <T> the type of the timers of the underlying scheduler
+ */
+public abstract class PeriodicPublisher<T> extends TickService<T>
+{
+	protected abstract void publish(Object msg);
+
+	@Override
+	protected final void deliver(Object msg, Object to, Object from)
+	{
+		publish(msg);
+	}
+
+	public Cancellable schedule(Object msg, long delayNanos, long periodNanos)
+	{
+		return schedule(msg, delayNanos, periodNanos, false);
+	}
+
+	public Cancellable schedule(Object msg, long delayNanos, long periodNanos,
+		boolean firstOnTime)
+	{
+		return schedule(msg, null, null, delayNanos, periodNanos, firstOnTime);
+	}
+}
@@ -0,0 +1,92 @@
+package javactor.util;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javactor.annot.Priority.Level;
+
+import com.google.common.collect.Iterators;
+
+/**
+ * A lock free mailbox queue with a FIFO per {@link Level}, highest first, so
+ * queuing and taking cost about as much as with a single FIFO. Thread safe.
+ *
+ * @param <E> the type of the envelopes of the messages
+ */
+public abstract class PriorityMailboxQueue<E> extends AbstractQueue<E>
+{
+	private final MessagePriorities priorities;
+	private final Queue<E> high = new ConcurrentLinkedQueue<>();
+	private final Queue<E> normal = new ConcurrentLinkedQueue<>();
+	private final Queue<E> low = new ConcurrentLinkedQueue<>();
+
+	public PriorityMailboxQueue(MessagePriorities priorities)
+	{
+		this.priorities = priorities;
+	}
+
+	/**
+	 * @return the message in the envelope
+	 */
+	protected abstract Object message(E envelope);
+
+	@Override
+	public boolean offer(E envelope)
+	{
+		switch ( priorities.of(message(envelope).getClass()) ) {
+		case HIGH:
+			return high.offer(envelope);
+		case LOW:
+			return low.offer(envelope);
+		default:
+			return normal.offer(envelope);
+		}
+	}
+
+	@Override
+	public E poll()
+	{
+		E envelope = high.poll();
+		if ( envelope == null ) {
+			envelope = normal.poll();
+			if ( envelope == null )
+				envelope = low.poll();
+		}
+		return envelope;
+	}
+
+	@Override
+	public E peek()
+	{
+		E envelope = high.peek();
+		if ( envelope == null ) {
+			envelope = normal.peek();
+			if ( envelope == null )
+				envelope = low.peek();
+		}
+		return envelope;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return high.isEmpty() && normal.isEmpty() && low.isEmpty();
+	}
+
+	/**
+	 * Takes time proportional to the number of messages
+	 */
+	@Override
+	public int size()
+	{
+		return high.size() + normal.size() + low.size();
+	}
+
+	@Override
+	public Iterator<E> iterator()
+	{
+		return Iterators.concat(high.iterator(), normal.iterator(), low.iterator());
+	}
+}
@@ -0,0 +1,147 @@
+package javactor.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javactor.msg.Correlated;
+import javactor.msg.TimeoutMsg;
+
+/**
+ * The pending requests of an actor, and their timeouts, on a
+ * {@link TimingWheel} to be ticked by the actor. Requests whose messages are
+ * {@link Correlated} are completed only by a reply of the requested type with
+ * the same correlation ID. Other requests are completed by messages of their
+ * response class, oldest first. Not thread safe.
+ */
+public class RequestTracker
+{
+	/**
+	 * Compared by identity
+	 */
+	static private class PendingRequest {
+		private final Class<?> response;
+		private final Object taskInfo;
+		private final long correlationId;
+		private TimingWheel.Timeout<PendingRequest> timeout;
+
+		private PendingRequest(Class<?> response, Object taskInfo, long correlationId)
+		{
+			this.response = response;
+			this.taskInfo = taskInfo;
+			this.correlationId = correlationId;
+		}
+	}
+
+	private final TimingWheel<PendingRequest> timeouts;
+	/**
+	 * Null until a correlated request is made
+	 */
+	private LongObjectMap<PendingRequest> correlatedRequests;
+	private final Map<Class<?>, ArrayDeque<PendingRequest>> requests =
+		new HashMap<>(4);
+	private final List<PendingRequest> expired = new ArrayList<>();
+	private long latestDeadlineMillis;
+
+	public RequestTracker(long tickMillis, int ticksPerWheel, long nowMillis)
+	{
+		timeouts = new TimingWheel<>(tickMillis, ticksPerWheel, nowMillis);
+	}
+
+	/**
+	 * @return the correlation ID of the request, or {@link Correlated#NONE} if
+	 * its message is not {@link Correlated}
+	 */
+	public long start(Object msg, Class<?> response, Object taskInfo, long timeoutMillis,
+		long nowMillis)
+	{
+		final long correlationId = msg instanceof Correlated ?
+			((Correlated) msg).getCorrelationId() : Correlated.NONE;
+		final PendingRequest request = new PendingRequest(response, taskInfo,
+			correlationId);
+		if ( correlationId != Correlated.NONE ) {
+			if ( correlatedRequests == null )
+				correlatedRequests = new LongObjectMap<>();
+			final PendingRequest previous = correlatedRequests.put(correlationId, request);
+			if ( previous != null ) {
+				correlatedRequests.put(correlationId, previous);
+				throw new IllegalStateException("A request with correlation ID "
+					+correlationId+" is already pending.");
+			}
+		} else {
+			ArrayDeque<PendingRequest> pending = requests.get(response);
+			if ( pending == null ) {
+				pending = new ArrayDeque<>();
+				requests.put(response, pending);
+			}
+			pending.addLast(request);
+		}
+		request.timeout = timeouts.schedule(request, nowMillis + timeoutMillis, nowMillis);
+		latestDeadlineMillis = Math.max(latestDeadlineMillis, nowMillis + timeoutMillis);
+		return correlationId;
+	}
+
+	/**
+	 * Completes the request the message is a reply to, if any
+	 *
+	 * @return whether a request was completed
+	 */
+	public boolean done(Object message)
+	{
+		if ( timeouts.isEmpty() )
+			return false;
+		if ( message instanceof Correlated && correlatedRequests != null ) {
+			final long correlationId = ((Correlated) message).getCorrelationId();
+			final PendingRequest request = correlatedRequests.get(correlationId);
+			if ( request != null && request.response.isInstance(message) ) {
+				correlatedRequests.remove(correlationId);
+				request.timeout.cancel();
+				return true;
+			}
+		}
+		final ArrayDeque<PendingRequest> pending = requests.get(message.getClass());
+		if ( pending != null ) {
+			final PendingRequest request = pending.pollFirst();
+			if ( request != null ) {
+				request.timeout.cancel();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a {@link TimeoutMsg} to timeoutMsgs for each request that has timed
+	 * out, which is then no longer pending
+	 */
+	public void expire(long nowMillis, Collection<? super TimeoutMsg> timeoutMsgs)
+	{
+		timeouts.advance(nowMillis, expired);
+		for (PendingRequest request : expired)
+		{
+			if ( request.correlationId != Correlated.NONE )
+				correlatedRequests.remove(request.correlationId);
+			else
+				requests.get(request.response).removeFirstOccurrence(request);
+			timeoutMsgs.add(new TimeoutMsg(request.taskInfo, request.correlationId));
+		}
+		expired.clear();
+	}
+
+	public boolean isEmpty()
+	{
+		return timeouts.isEmpty();
+	}
+
+	/**
+	 * @return the latest deadline of the requests started, by when none of
+	 * them is pending any more
+	 */
+	public long getLatestDeadlineMillis()
+	{
+		return latestDeadlineMillis;
+	}
+}
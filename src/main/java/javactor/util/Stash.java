@@ -0,0 +1,68 @@
+package javactor.util;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+
+import javactor.StashOverflowException;
+
+/**
+ * The messages an actor has stashed, and those it has unstashed but not yet
+ * handled again, which it must handle before its mailbox. Unstashed messages
+ * are handled in the order they were stashed, and messages unstashed while
+ * handling unstashed messages are handled first, as if each unstash put the
+ * messages back at the head of the mailbox. Not thread safe.
+ */
+public class Stash<E>
+{
+	private final int capacity;
+	private final ArrayDeque<E> stashed = new ArrayDeque<>();
+	private final ArrayDeque<E> unstashed = new ArrayDeque<>();
+
+	public Stash(int capacity)
+	{
+		if ( capacity < 1 )
+			throw new IllegalArgumentException("Capacity must be positive: "+capacity);
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @throws StashOverflowException if capacity messages are already stashed
+	 */
+	public void stash(E e)
+	{
+		if ( stashed.size() >= capacity )
+			throw new StashOverflowException("Cannot stash more than "+capacity
+				+" messages.");
+		stashed.addLast(e);
+	}
+
+	public void unstashAll()
+	{
+		for (E e = stashed.pollLast(); e != null; e = stashed.pollLast())
+			unstashed.addFirst(e);
+	}
+
+	/**
+	 * @return null if none are left
+	 */
+	public E pollUnstashed()
+	{
+		return unstashed.pollFirst();
+	}
+
+	public boolean hasUnstashed()
+	{
+		return !unstashed.isEmpty();
+	}
+
+	/**
+	 * Removes all messages, unstashed ones first
+	 */
+	public void drainTo(Collection<? super E> drained)
+	{
+		drained.addAll(unstashed);
+		drained.addAll(stashed);
+		unstashed.clear();
+		stashed.clear();
+	}
+}
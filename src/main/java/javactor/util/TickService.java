@@ -0,0 +1,247 @@
+package javactor.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javactor.Cancellable;
+
+/**
+ * Delivers periodic messages, with all registrations of the same period
+ * sharing one timer, so many actors' ticks cost one scheduled task per period
+ * rather than one each. A period is split into up to {@link #MAX_SLOTS} slots
+ * of at least {@link #MIN_SLOT_NANOS}, the timer firing once per slot. Each
+ * registration goes to the least loaded slot from the first firing at or after
+ * its delay to a period less a slot later, so registrations are spread over
+ * the period rather than all landing on the dispatcher at once, even if made
+ * together with the same delay. Those that must first be delivered on time
+ * go to the slot of the first firing at or after their delay, so are at most a
+ * slot late. Thread safe.
+ *
+ * @param <T> the type of the timers of the underlying scheduler
+ */
+public abstract class TickService<T>
+{
+	public static final int MAX_SLOTS = 16;
+	public static final long MIN_SLOT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private static final Registration[] NO_REGISTRATIONS = new Registration[0];
+
+	static private final class Registration implements Cancellable
+	{
+		private final Object msg;
+		/**
+		 * Null for publications
+		 */
+		private final Object to;
+		private final Object from;
+		private final long firstNanos;
+		private final TickService<?>.Period period;
+		/**
+		 * Guarded by the period
+		 */
+		private int slot;
+		/**
+		 * Of the period's timer, counting from 1, set before it is added to
+		 * its slot
+		 */
+		private long firstTick;
+
+		private Registration(Object msg, Object to, Object from, long firstNanos,
+			TickService<?>.Period period)
+		{
+			this.msg = msg;
+			this.to = to;
+			this.from = from;
+			this.firstNanos = firstNanos;
+			this.period = period;
+		}
+
+		@Override
+		public boolean cancel()
+		{
+			return period.remove(this);
+		}
+	}
+
+	/**
+	 * Runs the slots of a period in turn, from the start of its timer
+	 */
+	private final class Ticker implements Runnable
+	{
+		private final Period period;
+		private final long startNanos;
+		/**
+		 * Only touched by the ticks
+		 */
+		private long ticks;
+
+		private Ticker(Period period, long startNanos)
+		{
+			this.period = period;
+			this.startNanos = startNanos;
+		}
+
+		@Override
+		public void run()
+		{
+			final Registration[][] current = period.slots;
+			final long tick = ++ticks;
+			final long now = System.nanoTime();
+			for (Registration registration : current[period.slotOf(tick, current)])
+			{
+				/* Either, so a late timer still delivers once past the time */
+				if ( tick >= registration.firstTick || now - registration.firstNanos >= 0 )
+					deliver(registration.msg, registration.to, registration.from);
+			}
+		}
+	}
+
+	private final class Period
+	{
+		private final long tickNanos;
+		/**
+		 * Copied on write, by slot
+		 */
+		private volatile Registration[][] slots;
+		private int size;
+		private T timer;
+		private Ticker ticker;
+
+		private Period(long periodNanos)
+		{
+			final Registration[][] slots = new Registration[(int) Math.max(1,
+				Math.min(MAX_SLOTS, periodNanos / MIN_SLOT_NANOS))][];
+			Arrays.fill(slots, NO_REGISTRATIONS);
+			this.slots = slots;
+			this.tickNanos = periodNanos / slots.length;
+		}
+
+		private synchronized void add(Registration registration, boolean firstOnTime)
+		{
+			if ( size++ == 0 ) {
+				ticker = new Ticker(this, System.nanoTime());
+				timer = startTimer(tickNanos, ticker);
+			}
+			/* The timer fires at its start plus a multiple of tickNanos */
+			final long sinceStart = registration.firstNanos - ticker.startNanos;
+			final long eligible = sinceStart <= tickNanos ? 1 :
+				(sinceStart + tickNanos - 1) / tickNanos;
+			final Registration[][] current = slots;
+			/*
+			 * The least loaded slot up to a period less a slot later, the
+			 * earliest of those as loaded, so a burst of registrations with the
+			 * same delay still spreads over the period
+			 */
+			long firstTick = eligible;
+			if ( !firstOnTime ) {
+				for (long tick = eligible + 1; tick < eligible + current.length - 1; tick++)
+				{
+					if ( current[slotOf(tick, current)].length
+						< current[slotOf(firstTick, current)].length )
+					{
+						firstTick = tick;
+					}
+				}
+			}
+			registration.firstTick = firstTick;
+			final int slot = slotOf(firstTick, current);
+			final Registration[] inSlot = current[slot];
+			final Registration[] updated = Arrays.copyOf(inSlot, inSlot.length + 1);
+			updated[inSlot.length] = registration;
+			registration.slot = slot;
+			update(current, slot, updated);
+		}
+
+		private synchronized boolean remove(Registration registration)
+		{
+			final Registration[][] current = slots;
+			final Registration[] inSlot = current[registration.slot];
+			for (int i = 0; i < inSlot.length; i++)
+			{
+				if ( inSlot[i] == registration ) {
+					final Registration[] updated = new Registration[inSlot.length - 1];
+					System.arraycopy(inSlot, 0, updated, 0, i);
+					System.arraycopy(inSlot, i + 1, updated, i, updated.length - i);
+					update(current, registration.slot, updated.length == 0 ?
+						NO_REGISTRATIONS : updated);
+					if ( --size == 0 ) {
+						stopTimer(timer);
+						timer = null;
+						ticker = null;
+					}
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private int slotOf(long tick, Registration[][] current)
+		{
+			return (int) ((tick - 1) % current.length);
+		}
+
+		private void update(Registration[][] current, int slot, Registration[] inSlot)
+		{
+			final Registration[][] updated = current.clone();
+			updated[slot] = inSlot;
+			slots = updated;
+		}
+	}
+
+	/**
+	 * Periods are kept once created, as there are usually only a few
+	 */
+	private final ConcurrentHashMap<Long, Period> periods = new ConcurrentHashMap<>();
+
+	/**
+	 * Starts a timer that runs tick every tickNanos, from tickNanos from now,
+	 * at a fixed rate, as the slots are told apart by counting its runs
+	 */
+	protected abstract T startTimer(long tickNanos, Runnable tick);
+
+	protected abstract void stopTimer(T timer);
+
+	/**
+	 * Called on the timer's thread
+	 *
+	 * @param to null to publish the message
+	 */
+	protected abstract void deliver(Object msg, Object to, Object from);
+
+	/**
+	 * Spreads the registration over the period, its first delivery up to a
+	 * period less a slot after its delay
+	 *
+	 * @param to null to publish the message
+	 */
+	public Cancellable schedule(Object msg, Object to, Object from, long delayNanos,
+		long periodNanos)
+	{
+		return schedule(msg, to, from, delayNanos, periodNanos, false);
+	}
+
+	/**
+	 * @param to null to publish the message
+	 * @param firstOnTime to deliver first on the first firing at or after the
+	 * delay, i.e., at most a slot late, rather than spreading the registration
+	 * over the period
+	 */
+	public Cancellable schedule(Object msg, Object to, Object from, long delayNanos,
+		long periodNanos, boolean firstOnTime)
+	{
+		if ( periodNanos <= 0 )
+			throw new IllegalArgumentException("Period must be positive: "+periodNanos);
+		Period period = periods.get(periodNanos);
+		if ( period == null ) {
+			final Period created = new Period(periodNanos);
+			period = periods.putIfAbsent(periodNanos, created);
+			if ( period == null )
+				period = created;
+		}
+		final Registration registration = new Registration(msg, to, from,
+			System.nanoTime() + delayNanos, period);
+		period.add(registration, firstOnTime);
+		return registration;
+	}
+}
@@ -2,13 +2,21 @@ package javactor.util;
 
 import java.util.concurrent.TimeUnit;
 
-import javactor.Cancellable;
 import javactor.JavactorContext;
 import javactor.msg.TimeoutMsg;
 
+/**
+ * Times out waiting for something, with a {@link TimeoutMsg} to the actor.
+ * Keyed by itself on the actor's {@link JavactorContext#timers()}, so
+ * starting to wait again pushes back the timeout in place, and a timeout
+ * already in the mailbox when done waiting is not handled.
+ */
 public class Timeouter
 {
-	private Cancellable timeoutCancellable;
+	/**
+	 * Null until waiting starts
+	 */
+	private JavactorContext ctx;
 	private long timeout = 2;
 	private TimeUnit timeoutTimeUnit = TimeUnit.SECONDS;
 
@@ -19,16 +27,15 @@ public class Timeouter
 	
 	public void startWaiting(JavactorContext ctx, Object taskInfo)
 	{
-		doneWaiting();
-		timeoutCancellable = ctx.schedule(new TimeoutMsg(taskInfo))
-			.toSelf().delay(timeout, timeoutTimeUnit).go();
+		this.ctx = ctx;
+		ctx.timers().startSingle(this, new TimeoutMsg(taskInfo), timeout, 
+			timeoutTimeUnit);
 	}
 
 	public void doneWaiting()
 	{
-		if ( timeoutCancellable != null )
-			timeoutCancellable.cancel();
-		timeoutCancellable = null;
+		if ( ctx != null )
+			ctx.timers().cancel(this);
 	}
 
 }
@@ -0,0 +1,177 @@
+package javactor.util;
+
+import java.util.Collection;
+
+/**
+ * Hashed timing wheel, for tracking large numbers of timeouts that are mostly
+ * cancelled before they expire. Scheduling and cancelling are O(1) and
+ * allocate only the returned {@link Timeout}. Time only moves when
+ * {@link #advance(long, Collection)} is called, so the wheel can be driven by
+ * a single coarse periodic tick, and timeouts expire up to one tick late,
+ * never early.
+ * <p>
+ * Times are in whatever unit the tick duration is given in, typically
+ * milliseconds of {@link System#nanoTime()}. Not thread safe.
+ */
+public class TimingWheel<T>
+{
+	/**
+	 * A scheduled timeout. Cancel it when whatever it times out completes.
+	 */
+	public static final class Timeout<T>
+	{
+		private final TimingWheel<T> wheel;
+		private final T payload;
+		private long remainingRounds;
+		/**
+		 * -1 once expired or cancelled
+		 */
+		private int bucket;
+		private Timeout<T> prev;
+		private Timeout<T> next;
+
+		private Timeout(TimingWheel<T> wheel, T payload)
+		{
+			this.wheel = wheel;
+			this.payload = payload;
+		}
+
+		public T getPayload()
+		{
+			return payload;
+		}
+
+		public boolean isPending()
+		{
+			return bucket >= 0;
+		}
+
+		/**
+		 * @return false if it had already expired or been cancelled
+		 */
+		public boolean cancel()
+		{
+			if ( bucket < 0 )
+				return false;
+			wheel.remove(this);
+			return true;
+		}
+	}
+
+	private final long tickDuration;
+	private final long startTime;
+	private final int mask;
+	private final Timeout<T>[] buckets;
+	/**
+	 * Ticks up to and including this one have been processed
+	 */
+	private long lastTick;
+	private int size;
+
+	/**
+	 * @param ticksPerWheel rounded up to a power of two
+	 */
+	@SuppressWarnings("unchecked")
+	public TimingWheel(long tickDuration, int ticksPerWheel, long now)
+	{
+		if ( tickDuration <= 0 )
+			throw new IllegalArgumentException("Tick duration must be positive: "
+				+tickDuration);
+		if ( ticksPerWheel <= 0 || ticksPerWheel > 1 << 30 )
+			throw new IllegalArgumentException("Ticks per wheel out of range: "
+				+ticksPerWheel);
+		final int numBuckets = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+		this.tickDuration = tickDuration;
+		this.startTime = now;
+		this.mask = Math.max(numBuckets, 1) - 1;
+		this.buckets = new Timeout[mask + 1];
+	}
+
+	/**
+	 * @param deadline the payload expires on the first
+	 * {@link #advance(long, Collection)} at or after this time
+	 * @param now current time, used to catch up the wheel when it is empty
+	 */
+	public Timeout<T> schedule(T payload, long deadline, long now)
+	{
+		if ( size == 0 )
+			lastTick = Math.max(lastTick, tickOf(now));
+		final long elapsed = deadline - startTime;
+		final long tick = Math.max(elapsed <= 0 ? 0 : (elapsed + tickDuration - 1) / tickDuration,
+			lastTick + 1);
+		final Timeout<T> timeout = new Timeout<>(this, payload);
+		timeout.remainingRounds = (tick - lastTick - 1) / buckets.length;
+		timeout.bucket = (int) (tick & mask);
+		final Timeout<T> head = buckets[timeout.bucket];
+		timeout.next = head;
+		if ( head != null )
+			head.prev = timeout;
+		buckets[timeout.bucket] = timeout;
+		size++;
+		return timeout;
+	}
+
+	/**
+	 * Processes all ticks up to now, adding the payloads of expired timeouts
+	 * to expired, in no particular order.
+	 *
+	 * @return number of timeouts that expired
+	 */
+	public int advance(long now, Collection<? super T> expired)
+	{
+		final long nowTick = tickOf(now);
+		if ( size == 0 ) {
+			lastTick = Math.max(lastTick, nowTick);
+			return 0;
+		}
+		int numExpired = 0;
+		while (lastTick < nowTick && size > 0)
+		{
+			lastTick++;
+			Timeout<T> timeout = buckets[(int) (lastTick & mask)];
+			while (timeout != null)
+			{
+				final Timeout<T> next = timeout.next;
+				if ( timeout.remainingRounds == 0 ) {
+					remove(timeout);
+					expired.add(timeout.payload);
+					numExpired++;
+				} else
+					timeout.remainingRounds--;
+				timeout = next;
+			}
+		}
+		lastTick = Math.max(lastTick, nowTick);
+		return numExpired;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	private long tickOf(long time)
+	{
+		final long elapsed = time - startTime;
+		return elapsed <= 0 ? 0 : elapsed / tickDuration;
+	}
+
+	private void remove(Timeout<T> timeout)
+	{
+		if ( timeout.prev != null )
+			timeout.prev.next = timeout.next;
+		else
+			buckets[timeout.bucket] = timeout.next;
+		if ( timeout.next != null )
+			timeout.next.prev = timeout.prev;
+		timeout.prev = null;
+		timeout.next = null;
+		timeout.bucket = -1;
+		size--;
+	}
+}
@@ -0,0 +1,68 @@
+package javactor;
+
+import static org.junit.Assert.*;
+
+import javactor.annot.Reset;
+
+import org.junit.Test;
+
+public class PooledJavactorFactoryTest
+{
+	static public class ResettableJavactor {
+		int handled;
+		boolean reset;
+		@Reset
+		public void reset() {
+			handled = 0;
+			reset = true;
+		}
+	}
+	static public class SubclassJavactor extends ResettableJavactor {
+	}
+	static public class PlainJavactor {
+	}
+
+	private final PooledJavactorFactory factory = new PooledJavactorFactory(
+		new NoArgConstructorJavactorFactory(), 2);
+
+	@Test
+	public void reusesResetJavactors()
+	{
+		final ResettableJavactor javactor = 
+			(ResettableJavactor) factory.get(ResettableJavactor.class);
+		assertFalse(javactor.reset);
+		javactor.handled = 3;
+		factory.release(javactor);
+		assertEquals(1, factory.getNumPooled(ResettableJavactor.class));
+		assertSame(javactor, factory.get(ResettableJavactor.class));
+		assertTrue(javactor.reset);
+		assertEquals(0, javactor.handled);
+		assertEquals(0, factory.getNumPooled(ResettableJavactor.class));
+		assertNotSame(javactor, factory.get(ResettableJavactor.class));
+	}
+
+	@Test
+	public void inheritsResetMethod()
+	{
+		final Object javactor = factory.get(SubclassJavactor.class);
+		factory.release(javactor);
+		assertSame(javactor, factory.get(SubclassJavactor.class));
+	}
+
+	@Test
+	public void doesNotPoolJavactorsWithoutResetMethod()
+	{
+		final Object javactor = factory.get(PlainJavactor.class);
+		factory.release(javactor);
+		assertEquals(0, factory.getNumPooled(PlainJavactor.class));
+		assertNotSame(javactor, factory.get(PlainJavactor.class));
+	}
+
+	@Test
+	public void poolsUpToMax()
+	{
+		for (int i = 0; i < 3; i++)
+			factory.release(new ResettableJavactor());
+		assertEquals(2, factory.getNumPooled(ResettableJavactor.class));
+	}
+}
@@ -3,19 +3,36 @@ package javactor.akka;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javactor.Cancellable;
 import javactor.JavactorContext;
 import javactor.JavactorFactory;
+import javactor.JavactorFuture;
+import javactor.JavactorContext.JavactorPreparer;
+import javactor.JavactorContext.OverflowPolicy;
+import javactor.JavactorContext.Routing;
+import javactor.JavactorContext.SendBuilder;
 import javactor.JavactorContext.SupervisorDirective;
 import javactor.akka.JavactorUntypedActor;
+import javactor.annot.Coalesce;
 import javactor.annot.Handle;
+import javactor.annot.HandleBatch;
 import javactor.annot.OnException;
 import javactor.annot.PreRestart;
 import javactor.annot.PreStart;
+import javactor.annot.Priority.Level;
 import javactor.msg.AReplyMsg;
+import javactor.msg.CorrelatedReply;
+import javactor.msg.CorrelatedRequest;
 import javactor.msg.Failed;
+import javactor.msg.KeyedMsg;
+import javactor.msg.MailboxOverflow;
 import javactor.msg.Restarted;
 import javactor.msg.Success;
 import javactor.msg.TestMsg;
@@ -24,7 +41,6 @@ import javactor.msg.TestMsgSubtype;
 import javactor.msg.TestMsgSubtypeSubtype;
 import javactor.msg.TimeoutMsg;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -39,6 +55,8 @@ import akka.actor.SupervisorStrategy;
 import akka.actor.Terminated;
 import akka.japi.Creator;
 import akka.pattern.Patterns;
+import akka.routing.GetRoutees;
+import akka.routing.Routees;
 import akka.testkit.JavaTestKit;
 import akka.testkit.TestActorRef;
 
@@ -101,6 +119,233 @@ public class JavactorUntypedActorTest
 		public void handle(TimeoutMsg msg) {
 		}
 	}
+	static private class RestartedRequestingJavactor {
+		JavactorContext ctx;
+		Object replyTo;
+		@Handle
+		public void handle(TestMsg msg) {
+			replyTo = ctx.sender();
+			ctx.msg(new TestMsg2()).to(replyTo).timeout(300, TimeUnit.MILLISECONDS)
+				.request(AReplyMsg.class, "pending across restart");
+		}
+		@Handle
+		public void handle(Success msg) {
+			throw new IllegalStateException("Boom");
+		}
+		@Handle
+		public void handle(AReplyMsg msg) {
+		}
+		@Handle
+		public void handle(TimeoutMsg msg) {
+			ctx.msg(msg).to(replyTo).fireAndForget();
+		}
+	}
+	static private class StashingRestartedJavactor {
+		JavactorContext ctx;
+		boolean open;
+		@Handle
+		public void handle(TestMsg msg) {
+			if ( open )
+				ctx.msg(msg).replyToSender().fireAndForget();
+			else
+				ctx.stash();
+		}
+		@Handle
+		public void handle(TestMsg2 msg) {
+			open = true;
+			ctx.unstashAll();
+		}
+		@Handle
+		public void handle(Success msg) {
+			throw new IllegalStateException("Boom");
+		}
+	}
+	static private class TimerJavactor {
+		JavactorContext ctx;
+		Object replyTo;
+		int ticks;
+		@Handle
+		public void handle(TestMsg msg) {
+			replyTo = ctx.sender();
+			ctx.timers().startSingle("idle", "idle", 200, TimeUnit.MILLISECONDS);
+		}
+		@Handle
+		public void handle(TestMsg2 msg) {
+			replyTo = ctx.sender();
+			ctx.timers().startSingle("cancelled", "cancelled", 10, TimeUnit.MILLISECONDS);
+			ctx.timers().startPeriodic("tick", "tick", 50, TimeUnit.MILLISECONDS);
+			ctx.timers().cancel("cancelled");
+		}
+		@Handle
+		public void handle(String msg) {
+			ctx.msg(msg).to(replyTo).fireAndForget();
+			if ( msg.equals("tick") && ++ticks == 3 )
+				ctx.timers().cancel("tick");
+		}
+	}
+	static private class CorrelatedRequestsJavactor {
+		JavactorContext ctx;
+		Object replyTo;
+		@Handle
+		public void handle(TestMsg msg) {
+			replyTo = ctx.sender();
+			for (int i = 0; i < 2; i++)
+				ctx.msg(new CorrelatedRequest(ctx.newCorrelationId())).to(replyTo)
+					.timeout(500, TimeUnit.MILLISECONDS)
+					.request(CorrelatedReply.class, "request "+i);
+		}
+		@Handle
+		public void handle(CorrelatedReply msg) {
+			ctx.msg(msg).to(replyTo).fireAndForget();
+		}
+		@Handle
+		public void handle(TimeoutMsg msg) {
+			ctx.msg(msg).to(replyTo).fireAndForget();
+		}
+	}
+	static private class BatchingJavactor {
+		JavactorContext ctx;
+		final List<Integer> batchSizes = new ArrayList<>();
+		@HandleBatch(maxSize = 2)
+		public void handle(List<TestMsg2> batch) {
+			batchSizes.add(batch.size());
+		}
+		@Handle
+		public void handle(TestMsg msg) {
+			ctx.msg(new ArrayList<>(batchSizes)).replyToSender().fireAndForget();
+		}
+	}
+	static private class AbandonedBuilderJavactor {
+		JavactorContext ctx;
+		SendBuilder abandoned;
+		@Handle
+		public void handle(TestMsg msg) {
+			/* Never sent */
+			abandoned = ctx.msg(msg).to(ctx.sender());
+			ctx.msg(msg).replyToSender().fireAndForget();
+		}
+		@Handle
+		public void handle(TestMsg2 msg) {
+			final SendBuilder builder = ctx.msg(abandoned == ctx.msg(msg));
+			builder.replyToSender().fireAndForget();
+		}
+	}
+	static private class SendFromCallbackJavactor {
+		static final int COUNT = 10000;
+		JavactorContext ctx;
+		Object replyTo;
+		int received;
+		@Handle
+		public void handle(TestMsg msg) {
+			replyTo = ctx.sender();
+			ctx.msg(new TestMsg2()).to(replyTo).timeout(5, TimeUnit.SECONDS)
+				.ask(AReplyMsg.class).onComplete(new JavactorFuture.Callback<AReplyMsg>()
+				{
+					@Override
+					public void onSuccess(AReplyMsg result) {
+						for (int i = 0; i < COUNT; i++)
+							ctx.msg(i).to(ctx.self()).fireAndForget();
+					}
+					@Override
+					public void onFailure(Throwable failure) {
+					}
+				});
+		}
+		@Handle
+		public void handle(Success msg) {
+			for (long i = 0; i < COUNT; i++)
+				ctx.msg(i).to(replyTo).fireAndForget();
+		}
+		@Handle
+		public void handle(Integer msg) {
+			if ( ++received == COUNT )
+				ctx.msg(Restarted.class).to(replyTo).fireAndForget();
+		}
+	}
+	static private class EventSubscriberJavactor {
+		JavactorContext ctx;
+		Object probe;
+		@Handle
+		public void handle(Success msg) {
+			ctx.msg(msg).replyToSender().fireAndForget();
+		}
+		@Handle
+		public void handle(TestMsgSubtype msg) {
+			ctx.msg(msg).to(probe).fireAndForget();
+		}
+	}
+	static public class EasyPublisher extends EasyUntypedActor {
+		@EasySubscribe
+		public void handle(TestMsg2 msg) {
+			publish(new TestMsgSubtype());
+		}
+	}
+	/**
+	 * Builds a child of {@link ParentJavactor}, with its context
+	 */
+	static abstract private class BuildChild {
+		abstract Object build(JavactorContext ctx);
+	}
+	static private class ParentJavactor {
+		JavactorContext ctx;
+		@Handle
+		public void handle(BuildChild msg) {
+			ctx.msg(msg.build(ctx)).replyToSender().fireAndForget();
+		}
+	}
+	static public class BlockedChildJavactor {
+		JavactorContext ctx;
+		ActorRef probe;
+		CountDownLatch release;
+		@Handle
+		public void handle(TestMsg2 msg) throws InterruptedException {
+			ctx.msg("blocked").to(probe).fireAndForget();
+			release.await(5, TimeUnit.SECONDS);
+		}
+		@Handle
+		public void handle(TestMsg msg) {
+			ctx.msg(msg).replyToSender().fireAndForget();
+		}
+		@Handle
+		public void handle(Success msg) {
+			ctx.msg(msg).to(probe).fireAndForget();
+		}
+	}
+	static public class CoalescingChildJavactor extends BlockedChildJavactor {
+		@Handle
+		@Coalesce(key = "hashKey")
+		public void handle(KeyedMsg msg) {
+			ctx.msg(msg).to(probe).fireAndForget();
+		}
+	}
+	static public class PoolWorkerJavactor {
+		JavactorContext ctx;
+		@Handle
+		public void handle(KeyedMsg msg) {
+			final TestMsg reply = new TestMsg();
+			reply.setTestData(ctx.self());
+			ctx.msg(reply).replyToSender().fireAndForget();
+		}
+	}
+	static private class ChildPreparer<T extends BlockedChildJavactor>
+		implements JavactorPreparer<T>
+	{
+		private final ActorRef probe;
+		private final CountDownLatch release;
+
+		private ChildPreparer(ActorRef probe, CountDownLatch release)
+		{
+			this.probe = probe;
+			this.release = release;
+		}
+
+		@Override
+		public void prepare(T javactor)
+		{
+			javactor.probe = probe;
+			javactor.release = release;
+		}
+	}
 	@Data
 	static private class ScheduleTestData {
 //		private final long startTime;
@@ -185,10 +430,19 @@ public class JavactorUntypedActorTest
 		}
 	}
 	
-	@RequiredArgsConstructor
 	static private final class MyCreator implements Creator<JavactorUntypedActor>
 	{
 		private final Object javactor;
+		private final boolean subscribeToEventStream;
+		MyCreator(Object javactor)
+		{
+			this(javactor, false);
+		}
+		MyCreator(Object javactor, boolean subscribeToEventStream)
+		{
+			this.javactor = javactor;
+			this.subscribeToEventStream = subscribeToEventStream;
+		}
 		@Override
 		public JavactorUntypedActor create() throws Exception
 		{
@@ -205,7 +459,7 @@ public class JavactorUntypedActorTest
 						throw new RuntimeException(e);
 					}
 				}
-			}, false);
+			}, subscribeToEventStream);
 		}
 	}
 
@@ -404,6 +658,537 @@ public class JavactorUntypedActorTest
 		};
 	}
 
+	@Test
+	public void test_request_timeout_after_restart() throws Exception
+	{
+		javactor = new RestartedRequestingJavactor();
+		final Props props = Props.create(new MyCreator(javactor));
+		final ActorRef target = system.actorOf(props);
+		
+		new JavaTestKit(system)
+		{
+			{
+				final JavaTestKit probe = new JavaTestKit(system);
+				target.tell(new TestMsg(), probe.getRef());
+				probe.expectMsgClass(TestMsg2.class);
+				target.tell(new Success(), probe.getRef());
+				final TimeoutMsg timeoutMsg = probe.expectMsgClass(
+					Duration.create(3, TimeUnit.SECONDS), TimeoutMsg.class);
+				assertEquals("pending across restart", timeoutMsg.getTaskInfo());
+			}
+		};
+	}
+
+	@Test
+	public void test_stash_across_restart() throws Exception
+	{
+		javactor = new StashingRestartedJavactor();
+		final Props props = Props.create(new MyCreator(javactor));
+		final ActorRef target = system.actorOf(props);
+		
+		new JavaTestKit(system)
+		{
+			{
+				final JavaTestKit probe = new JavaTestKit(system);
+				final TestMsg first = new TestMsg(), second = new TestMsg();
+				target.tell(first, probe.getRef());
+				target.tell(second, probe.getRef());
+				/* The stashed messages are sent to the restarted actor, which 
+				 * stashes them again until opened */
+				target.tell(new Success(), probe.getRef());
+				probe.expectNoMsg(Duration.create(200, TimeUnit.MILLISECONDS));
+				target.tell(new TestMsg2(), probe.getRef());
+				assertSame(first, probe.expectMsgClass(TestMsg.class));
+				assertSame(second, probe.expectMsgClass(TestMsg.class));
+				probe.expectNoMsg(Duration.create(200, TimeUnit.MILLISECONDS));
+			}
+		};
+	}
+
+	@Test
+	public void test_concurrent_correlated_requests() throws Exception
+	{
+		javactor = new CorrelatedRequestsJavactor();
+		final Props props = Props.create(new MyCreator(javactor));
+		final ActorRef target = system.actorOf(props);
+		
+		new JavaTestKit(system)
+		{
+			{
+				final JavaTestKit probe = new JavaTestKit(system);
+				target.tell(new TestMsg(), probe.getRef());
+				final CorrelatedRequest first = probe.expectMsgClass(CorrelatedRequest.class);
+				final CorrelatedRequest second = probe.expectMsgClass(CorrelatedRequest.class);
+				assertTrue(first.getCorrelationId() != second.getCorrelationId());
+				target.tell(new CorrelatedReply(second.getCorrelationId()), probe.getRef());
+				assertEquals(second.getCorrelationId(), 
+					probe.expectMsgClass(CorrelatedReply.class).getCorrelationId());
+				final TimeoutMsg timeoutMsg = probe.expectMsgClass(
+					Duration.create(3, TimeUnit.SECONDS), TimeoutMsg.class);
+				assertEquals(first.getCorrelationId(), timeoutMsg.getCorrelationId());
+				assertEquals("request 0", timeoutMsg.getTaskInfo());
+				probe.expectNoMsg(Duration.create(1, TimeUnit.SECONDS));
+			}
+		};
+	}
+
+	@Test
+	public void test_ask_from_outside_actor() throws Exception
+	{
+		javactor = new HandleSubtypeDeclaredFirstJavactor();
+		final Props props = Props.create(new MyCreator(javactor));
+		final ActorRef target = system.actorOf(props);
+		final AkkaJavactorClient client = new AkkaJavactorClient(system);
+		
+		final TestMsgSubtype reply = client.msg(new TestMsgSubtype()).to(target)
+			.timeout(5, TimeUnit.SECONDS).ask(TestMsgSubtype.class)
+			.get(5, TimeUnit.SECONDS);
+		assertNotNull(reply);
+		assertEquals(0, client.askMetrics().getOutstanding());
+		assertEquals(1, client.askMetrics().getSucceeded());
+	}
+
+	@Test
+	public void test_ask_timeout() throws Exception
+	{
+		final AkkaJavactorClient client = new AkkaJavactorClient(system);
+		final JavaTestKit silent = new JavaTestKit(system);
+		
+		final JavactorFuture<AReplyMsg> future = client.msg(new TestMsg())
+			.to(silent.getRef()).timeout(100, TimeUnit.MILLISECONDS)
+			.ask(AReplyMsg.class);
+		try
+		{
+			future.get(5, TimeUnit.SECONDS);
+			fail("Expected the ask to time out");
+		} catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		assertEquals(1, client.askMetrics().getTimedOut());
+	}
+
+	@Test
+	public void test_abandoned_send_builder_reused() throws Exception
+	{
+		javactor = new AbandonedBuilderJavactor();
+		final ActorRef target = system.actorOf(Props.create(new MyCreator(javactor)));
+		final JavaTestKit probe = new JavaTestKit(system);
+		target.tell(new TestMsg(), probe.getRef());
+		probe.expectMsgClass(TestMsg.class);
+		/* Released at the start of the next message */
+		target.tell(new TestMsg2(), probe.getRef());
+		probe.expectMsgEquals(Boolean.TRUE);
+	}
+
+	@Test
+	public void test_send_from_ask_callback_while_sending() throws Exception
+	{
+		javactor = new SendFromCallbackJavactor();
+		final Props props = Props.create(new MyCreator(javactor));
+		final ActorRef target = system.actorOf(props);
+		
+		new JavaTestKit(system)
+		{
+			{
+				final JavaTestKit probe = new JavaTestKit(system);
+				target.tell(new TestMsg(), probe.getRef());
+				probe.expectMsgClass(TestMsg2.class);
+				/* The callback sends to self while the actor sends to the probe */
+				probe.reply(new AReplyMsg());
+				target.tell(new Success(), probe.getRef());
+				final Object[] received = probe.receiveN(SendFromCallbackJavactor.COUNT + 1,
+					Duration.create(10, TimeUnit.SECONDS));
+				long next = 0;
+				boolean allReceivedBySelf = false;
+				for (Object msg : received)
+				{
+					if ( msg == Restarted.class )
+						allReceivedBySelf = true;
+					else
+						assertEquals(Long.valueOf(next++), msg);
+				}
+				assertTrue(allReceivedBySelf);
+				assertEquals(SendFromCallbackJavactor.COUNT, next);
+				probe.expectNoMsg(Duration.create(100, TimeUnit.MILLISECONDS));
+			}
+		};
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_client_fire_and_forget_with_timeout() throws Exception
+	{
+		final AkkaJavactorClient client = new AkkaJavactorClient(system);
+		final JavaTestKit probe = new JavaTestKit(system);
+		client.msg(new TestMsg()).to(probe.getRef()).timeout(1, TimeUnit.SECONDS)
+			.fireAndForget();
+	}
+
+	@Test
+	public void test_easy_actor_publishes_to_javactors() throws Exception
+	{
+		final EventSubscriberJavactor subscriber = new EventSubscriberJavactor();
+		javactor = subscriber;
+		final ActorRef target = system.actorOf(Props.create(new MyCreator(javactor, true)));
+		final ActorRef publisher = system.actorOf(Props.create(EasyPublisher.class));
+		
+		new JavaTestKit(system)
+		{
+			{
+				final JavaTestKit probe = new JavaTestKit(system);
+				subscriber.probe = probe.getRef();
+				/* Subscribed once started */
+				target.tell(new Success(), probe.getRef());
+				probe.expectMsgClass(Success.class);
+				publisher.tell(new TestMsg2(), ActorRef.noSender());
+				probe.expectMsgClass(TestMsgSubtype.class);
+			}
+		};
+	}
+
+	@Test
+	public void test_akka_event_stream_reaches_javactors() throws Exception
+	{
+		final EventSubscriberJavactor subscriber = new EventSubscriberJavactor();
+		javactor = subscriber;
+		final ActorRef target = system.actorOf(Props.create(new MyCreator(javactor, true)));
+		final JavaTestKit probe = new JavaTestKit(system);
+		subscriber.probe = probe.getRef();
+		target.tell(new Success(), probe.getRef());
+		probe.expectMsgClass(Success.class);
+		system.eventStream().publish(new TestMsgSubtype());
+		probe.expectMsgClass(TestMsgSubtype.class);
+		probe.expectNoMsg(Duration.create(100, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void test_plain_subscriber_gets_javactor_posts_once() throws Exception
+	{
+		final EventSubscriberJavactor subscriber = new EventSubscriberJavactor();
+		javactor = subscriber;
+		final ActorRef target = system.actorOf(Props.create(new MyCreator(javactor, true)));
+		final JavaTestKit probe = new JavaTestKit(system);
+		final JavaTestKit plain = new JavaTestKit(system);
+		subscriber.probe = probe.getRef();
+		target.tell(new Success(), probe.getRef());
+		probe.expectMsgClass(Success.class);
+		final JavactorEventBus eventBus = JavactorEventBus.get(system);
+		eventBus.subscribe(plain.getRef(), TestMsg.class);
+		eventBus.publish(new TestMsgSubtype());
+		probe.expectMsgClass(TestMsgSubtype.class);
+		plain.expectMsgClass(TestMsgSubtype.class);
+		probe.expectNoMsg(Duration.create(100, TimeUnit.MILLISECONDS));
+		plain.expectNoMsg(Duration.create(100, TimeUnit.MILLISECONDS));
+		eventBus.unsubscribe(plain.getRef(), TestMsg.class);
+		eventBus.publish(new TestMsgSubtype());
+		probe.expectMsgClass(TestMsgSubtype.class);
+		plain.expectNoMsg(Duration.create(100, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void test_batch_handler() throws Exception
+	{
+		javactor = new BatchingJavactor();
+		final Props props = Props.create(new MyCreator(javactor));
+		final ActorRef target = system.actorOf(props);
+		
+		new JavaTestKit(system)
+		{
+			{
+				final JavaTestKit probe = new JavaTestKit(system);
+				for (int i = 0; i < 5; i++)
+					target.tell(new TestMsg2(), probe.getRef());
+				target.tell(new TestMsg(), probe.getRef());
+				@SuppressWarnings("unchecked")
+				final List<Integer> batchSizes = probe.expectMsgClass(ArrayList.class);
+				int total = 0;
+				for (int size : batchSizes)
+				{
+					assertTrue(size >= 1 && size <= 2);
+					total += size;
+				}
+				assertEquals(5, total);
+			}
+		};
+	}
+
+	/**
+	 * Has a new {@link ParentJavactor} build a child
+	 */
+	private ActorRef buildChild(BuildChild buildChild) throws Exception
+	{
+		final ActorRef parent = system.actorOf(Props.create(
+			new MyCreator(new ParentJavactor())));
+		return (ActorRef) Await.result(Patterns.ask(parent, buildChild, 5000),
+			Duration.create(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void test_coalescing_mailbox() throws Exception
+	{
+		final JavaTestKit probe = new JavaTestKit(system);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ActorRef child = buildChild(new BuildChild()
+		{
+			@Override
+			Object build(JavactorContext ctx)
+			{
+				return ctx.actorBuilder(CoalescingChildJavactor.class, "coalescing")
+					.preparer(new ChildPreparer<CoalescingChildJavactor>(
+						probe.getRef(), release)).build();
+			}
+		});
+		try
+		{
+			child.tell(new TestMsg2(), probe.getRef());
+			probe.expectMsgEquals("blocked");
+			final KeyedMsg latestA = new KeyedMsg("a"), latestB = new KeyedMsg("b");
+			for (KeyedMsg msg : Arrays.asList(new KeyedMsg("a"), new KeyedMsg("b"),
+				new KeyedMsg("a"), latestA, latestB))
+			{
+				child.tell(msg, probe.getRef());
+			}
+			release.countDown();
+			/* Only the latest of each key, in the place of the first */
+			assertSame(latestA, probe.expectMsgClass(KeyedMsg.class));
+			assertSame(latestB, probe.expectMsgClass(KeyedMsg.class));
+			probe.expectNoMsg(Duration.create(200, TimeUnit.MILLISECONDS));
+		} finally
+		{
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void test_bounded_mailbox_rejects_to_sender() throws Exception
+	{
+		final JavaTestKit probe = new JavaTestKit(system);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ActorRef child = buildChild(new BuildChild()
+		{
+			@Override
+			Object build(JavactorContext ctx)
+			{
+				return ctx.actorBuilder(BlockedChildJavactor.class, "bounded")
+					.preparer(new ChildPreparer<BlockedChildJavactor>(
+						probe.getRef(), release))
+					.boundedMailbox(1, OverflowPolicy.REJECT).build();
+			}
+		});
+		try
+		{
+			child.tell(new TestMsg2(), probe.getRef());
+			probe.expectMsgEquals("blocked");
+			final TestMsg queued = new TestMsg(), rejected = new TestMsg();
+			child.tell(queued, probe.getRef());
+			child.tell(rejected, probe.getRef());
+			final MailboxOverflow overflow = probe.expectMsgClass(MailboxOverflow.class);
+			assertSame(rejected, overflow.getMsg());
+			assertEquals(child, overflow.getRecipient());
+			release.countDown();
+			assertSame(queued, probe.expectMsgClass(TestMsg.class));
+			probe.expectNoMsg(Duration.create(200, TimeUnit.MILLISECONDS));
+		} finally
+		{
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void test_priority_mailbox() throws Exception
+	{
+		final JavaTestKit probe = new JavaTestKit(system);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ActorRef child = buildChild(new BuildChild()
+		{
+			@Override
+			Object build(JavactorContext ctx)
+			{
+				return ctx.actorBuilder(BlockedChildJavactor.class, "prioritized")
+					.preparer(new ChildPreparer<BlockedChildJavactor>(
+						probe.getRef(), release))
+					.priority(TestMsg.class, Level.HIGH).build();
+			}
+		});
+		try
+		{
+			child.tell(new TestMsg2(), probe.getRef());
+			probe.expectMsgEquals("blocked");
+			child.tell(new Success(), probe.getRef());
+			child.tell(new TestMsg(), probe.getRef());
+			release.countDown();
+			/* Sent last, but handled first */
+			probe.expectMsgClass(TestMsg.class);
+			probe.expectMsgClass(Success.class);
+		} finally
+		{
+			release.countDown();
+		}
+	}
+
+	/**
+	 * @return the routee of the pool that handled a message with the key
+	 */
+	private static Object routee(ActorRef pool, Object hashKey) throws Exception
+	{
+		final TestMsg reply = (TestMsg) Await.result(Patterns.ask(pool,
+			new KeyedMsg(hashKey), 5000), Duration.create(5, TimeUnit.SECONDS));
+		return reply.getTestData();
+	}
+
+	@Test
+	public void test_round_robin_pool() throws Exception
+	{
+		final ActorRef pool = buildChild(new BuildChild()
+		{
+			@Override
+			Object build(JavactorContext ctx)
+			{
+				return ctx.poolBuilder(PoolWorkerJavactor.class, "workers", 2).build();
+			}
+		});
+		final Object first = routee(pool, "a");
+		final Object second = routee(pool, "a");
+		assertFalse(first.equals(second));
+		assertEquals(first, routee(pool, "a"));
+		assertEquals(second, routee(pool, "a"));
+	}
+
+	@Test
+	public void test_consistent_hashing_pool() throws Exception
+	{
+		final ActorRef pool = buildChild(new BuildChild()
+		{
+			@Override
+			Object build(JavactorContext ctx)
+			{
+				return ctx.poolBuilder(PoolWorkerJavactor.class, "workers", 4)
+					.routing(Routing.CONSISTENT_HASHING).build();
+			}
+		});
+		for (int key = 0; key < 8; key++)
+			assertEquals(routee(pool, key), routee(pool, key));
+	}
+
+	@Test
+	public void test_resizable_pool() throws Exception
+	{
+		final JavaTestKit probe = new JavaTestKit(system);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ActorRef pool = buildChild(new BuildChild()
+		{
+			@Override
+			Object build(JavactorContext ctx)
+			{
+				return ctx.poolBuilder(BlockedChildJavactor.class, "workers", 1)
+					.resizer(1, 3)
+					.preparer(new ChildPreparer<BlockedChildJavactor>(
+						probe.getRef(), release)).build();
+			}
+		});
+		try
+		{
+			pool.tell(new TestMsg2(), probe.getRef());
+			probe.expectMsgEquals("blocked");
+			/* Its only routee is busy when the resizer next looks */
+			for (int i = 0; i < 10; i++)
+				pool.tell(new TestMsg(), probe.getRef());
+			new JavaTestKit(system)
+			{
+				{
+					new AwaitCond(duration("5 seconds"))
+					{
+						@Override
+						protected boolean cond()
+						{
+							try
+							{
+								final Routees routees = (Routees) Await.result(
+									Patterns.ask(pool, GetRoutees.getInstance(), 1000),
+									Duration.create(1, TimeUnit.SECONDS));
+								return routees.getRoutees().size() == 2;
+							} catch (Exception e)
+							{
+								throw new RuntimeException(e);
+							}
+						}
+					};
+				}
+			};
+		} finally
+		{
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void test_single_timer_pushed_back() throws Exception
+	{
+		javactor = new TimerJavactor();
+		final ActorRef target = system.actorOf(Props.create(new MyCreator(javactor)));
+		
+		new JavaTestKit(system)
+		{
+			{
+				final JavaTestKit probe = new JavaTestKit(system);
+				long lastSent = 0;
+				for (int i = 0; i < 5; i++)
+				{
+					lastSent = System.nanoTime();
+					target.tell(new TestMsg(), probe.getRef());
+					Thread.sleep(50);
+				}
+				probe.expectMsgEquals(Duration.create(5, TimeUnit.SECONDS), "idle");
+				assertTrue(System.nanoTime() - lastSent >= TimeUnit.MILLISECONDS.toNanos(200));
+				probe.expectNoMsg(Duration.create(400, TimeUnit.MILLISECONDS));
+			}
+		};
+	}
+
+	@Test
+	public void test_periodic_timer_and_cancel() throws Exception
+	{
+		javactor = new TimerJavactor();
+		final ActorRef target = system.actorOf(Props.create(new MyCreator(javactor)));
+		
+		new JavaTestKit(system)
+		{
+			{
+				final JavaTestKit probe = new JavaTestKit(system);
+				target.tell(new TestMsg2(), probe.getRef());
+				/* Not the cancelled single timer's message */
+				for (int i = 0; i < 3; i++)
+					probe.expectMsgEquals("tick");
+				probe.expectNoMsg(Duration.create(300, TimeUnit.MILLISECONDS));
+			}
+		};
+	}
+
+	@Test
+	public void test_tick_service() throws Exception
+	{
+		final AkkaTickService tickService = AkkaTickService.get(system);
+		final JavaTestKit probe = new JavaTestKit(system);
+		final long periodNanos = TimeUnit.MILLISECONDS.toNanos(200);
+		final long start = System.nanoTime();
+		final Cancellable a = tickService.schedule("a", probe.getRef(), null, 0,
+			periodNanos);
+		final Cancellable b = tickService.schedule("b", probe.getRef(), null,
+			TimeUnit.MILLISECONDS.toNanos(100), periodNanos, true);
+		probe.expectMsgEquals("a");
+		probe.expectMsgEquals("b");
+		/* On the first firing at or after its delay, not up to a period late */
+		final long firstB = System.nanoTime() - start;
+		assertTrue(firstB >= TimeUnit.MILLISECONDS.toNanos(100));
+		assertTrue(firstB < TimeUnit.MILLISECONDS.toNanos(200));
+		probe.expectMsgEquals("a");
+		probe.expectMsgEquals("b");
+		assertTrue(a.cancel());
+		assertFalse(a.cancel());
+		assertTrue(b.cancel());
+		probe.expectNoMsg(Duration.create(300, TimeUnit.MILLISECONDS));
+	}
+
 	@Test
 	public void test_scheduling() throws Exception
 	{
@@ -0,0 +1,97 @@
+package javactor.dispatch;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+
+import javactor.msg.TestMsg;
+import javactor.msg.TestMsgSubtype;
+import javactor.msg.TestMsgSubtypeSubtype;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class HandlerTableTest
+{
+	static private interface Marked {}
+	static private interface AlsoMarked {}
+	static private class MarkedMsg extends TestMsgSubtype implements Marked, AlsoMarked {}
+
+	static private class NamedInvoker extends MethodInvoker
+	{
+		@Override
+		public Object invoke(Object target)
+		{
+			return null;
+		}
+
+		@Override
+		public Object invoke(Object target, Object arg)
+		{
+			return null;
+		}
+	}
+
+	private final MethodInvoker testMsgHandler = new NamedInvoker();
+	private final MethodInvoker subtypeHandler = new NamedInvoker();
+	private final MethodInvoker markedHandler = new NamedInvoker();
+	private final MethodInvoker alsoMarkedHandler = new NamedInvoker();
+
+	@Test
+	public void test_exact_match()
+	{
+		HandlerTable table = new HandlerTable(ImmutableMap.<Class<?>, MethodInvoker>of(
+			TestMsg.class, testMsgHandler, TestMsgSubtype.class, subtypeHandler));
+		assertSame(testMsgHandler, table.get(TestMsg.class));
+		assertSame(subtypeHandler, table.get(TestMsgSubtype.class));
+	}
+
+	@Test
+	public void test_most_specific_supertype_regardless_of_declaration_order()
+	{
+		HandlerTable supertypeFirst = new HandlerTable(ImmutableMap.<Class<?>, MethodInvoker>of(
+			TestMsg.class, testMsgHandler, TestMsgSubtype.class, subtypeHandler));
+		HandlerTable subtypeFirst = new HandlerTable(ImmutableMap.<Class<?>, MethodInvoker>of(
+			TestMsgSubtype.class, subtypeHandler, TestMsg.class, testMsgHandler));
+		assertSame(subtypeHandler, supertypeFirst.get(TestMsgSubtypeSubtype.class));
+		assertSame(subtypeHandler, subtypeFirst.get(TestMsgSubtypeSubtype.class));
+		assertSame(subtypeHandler, subtypeFirst.get(TestMsgSubtypeSubtype.class));
+	}
+
+	@Test
+	public void test_class_preferred_over_unrelated_interface()
+	{
+		HandlerTable table = new HandlerTable(ImmutableMap.<Class<?>, MethodInvoker>of(
+			Marked.class, markedHandler, TestMsg.class, testMsgHandler));
+		assertSame(testMsgHandler, table.get(MarkedMsg.class));
+	}
+
+	@Test
+	public void test_unrelated_interfaces_resolved_by_name()
+	{
+		HandlerTable table = new HandlerTable(ImmutableMap.<Class<?>, MethodInvoker>of(
+			Marked.class, markedHandler, AlsoMarked.class, alsoMarkedHandler));
+		assertSame(alsoMarkedHandler, table.get(MarkedMsg.class));
+	}
+
+	@Test
+	public void test_no_handler()
+	{
+		HandlerTable table = new HandlerTable(ImmutableMap.<Class<?>, MethodInvoker>of(
+			TestMsgSubtype.class, subtypeHandler));
+		assertNull(table.get(TestMsg.class));
+		assertNull(table.get(TestMsg.class));
+		assertNull(table.get(Serializable.class));
+	}
+
+	@Test
+	public void test_resolves_past_cache_capacity()
+	{
+		HandlerTable table = new HandlerTable(ImmutableMap.<Class<?>, MethodInvoker>of(
+			TestMsg.class, testMsgHandler), 1);
+		assertSame(testMsgHandler, table.get(TestMsgSubtype.class));
+		assertSame(testMsgHandler, table.get(TestMsgSubtypeSubtype.class));
+		assertSame(testMsgHandler, table.get(MarkedMsg.class));
+	}
+}
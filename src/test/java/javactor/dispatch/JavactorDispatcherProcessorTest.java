@@ -0,0 +1,323 @@
+package javactor.dispatch;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javactor.JavactorContext;
+import javactor.JavactorContext.SupervisorStrategyInfo;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Compiles sample javactors with the {@link JavactorDispatcherProcessor}
+ */
+public class JavactorDispatcherProcessorTest
+{
+	private static final String HEADER = "package sample;\n"
+		+ "import java.util.*;\n"
+		+ "import javactor.JavactorContext;\n"
+		+ "import javactor.JavactorContext.*;\n"
+		+ "import javactor.annot.*;\n";
+
+	private static final String SAMPLE = HEADER
+		+ "public class Sample {\n"
+		+ "	JavactorContext ctx;\n"
+		+ "	public final List<Object> calls = new ArrayList<>();\n"
+		+ "	@Handle public void handle(String msg) { calls.add(\"handle \"+msg); }\n"
+		+ "	@Handle(state = \"busy\") public void busy(String msg) { calls.add(\"busy \"+msg); }\n"
+		+ "	@Handle @Coalesce public void coalesced(Integer msg) { calls.add(\"coalesced \"+msg); }\n"
+		+ "	@Handle public String primitive(long msg) { calls.add(\"primitive \"+msg); return \"r\"+msg; }\n"
+		+ "	@Handle public static void staticHandle(Double msg) { }\n"
+		+ "	@HandleBatch(maxSize = 3) public void batch(List<Character> batch) { calls.add(\"batch \"+batch); }\n"
+		+ "	@OnException public SupervisorDirective on(IllegalStateException e) { calls.add(\"on \"+e.getMessage()); return SupervisorDirective.STOP; }\n"
+		+ "	@PreStart public void preStart() { calls.add(\"preStart \"+(ctx != null)); }\n"
+		+ "	@PostStop public void postStop() throws java.io.IOException { calls.add(\"postStop\"); }\n"
+		+ "	@PostStop public void alsoPostStop() { calls.add(\"alsoPostStop\"); }\n"
+		+ "	public SupervisorStrategyInfo info() { return SupervisorStrategyInfo.builder()\n"
+		+ "		.type(SupervisorStrategyType.ALL_FOR_ONE).build(); }\n"
+		+ "}\n";
+
+	private static final Map<Class<?>, Object> ARGS = new HashMap<>();
+	static
+	{
+		ARGS.put(String.class, "s");
+		ARGS.put(Integer.class, 1);
+		ARGS.put(long.class, 2L);
+		ARGS.put(Double.class, 3.0);
+		ARGS.put(Character.class, Arrays.asList('a', 'b'));
+		ARGS.put(IllegalStateException.class, new IllegalStateException("boom"));
+	}
+
+	static private class Source extends SimpleJavaFileObject
+	{
+		private final String code;
+
+		private Source(String className, String code)
+		{
+			super(URI.create("string:///sample/"+className+Kind.SOURCE.extension), Kind.SOURCE);
+			this.code = code;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors)
+		{
+			return code;
+		}
+	}
+
+	private JavaCompiler compiler;
+	private File out;
+	private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+	@Before
+	public void setUp() throws Exception
+	{
+		compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeNotNull(compiler);
+		out = Files.createTempDirectory("javactor-processor").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		if ( out != null )
+			delete(out);
+	}
+
+	private static String classpath(Class<?>... classes) throws Exception
+	{
+		final StringBuilder result = new StringBuilder();
+		for (Class<?> aClass : classes)
+		{
+			if ( result.length() > 0 )
+				result.append(File.pathSeparator);
+			result.append(new File(aClass.getProtectionDomain().getCodeSource()
+				.getLocation().toURI()).getPath());
+		}
+		return result.toString();
+	}
+
+	private boolean compile(String className, String code) throws Exception
+	{
+		final CompilationTask task = compiler.getTask(null, null, diagnostics,
+			Arrays.asList("-d", out.getPath(), "-classpath",
+				classpath(JavactorDispatcher.class, ImmutableList.class)),
+			null, Arrays.asList(new Source(className, code)));
+		task.setProcessors(Arrays.asList(new JavactorDispatcherProcessor()));
+		return task.call();
+	}
+
+	private List<String> messages(Diagnostic.Kind kind)
+	{
+		final List<String> result = new ArrayList<>();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+		{
+			if ( diagnostic.getKind() == kind )
+				result.add(diagnostic.getMessage(Locale.ROOT));
+		}
+		return result;
+	}
+
+	private void assertError(String code, String expected) throws Exception
+	{
+		assertFalse(compile("Invalid", code));
+		final List<String> errors = messages(Diagnostic.Kind.ERROR);
+		assertEquals(errors.toString(), 1, errors.size());
+		assertTrue(errors.toString(), errors.get(0).contains(expected));
+		assertFalse(new File(out, "sample/Invalid$$JavactorDispatcher.class").exists());
+	}
+
+	@Test
+	public void test_duplicate_handler() throws Exception
+	{
+		assertError(HEADER + "public class Invalid {\n"
+			+ "	@Handle public void a(String msg) {}\n"
+			+ "	@Handle public void b(String msg) {}\n"
+			+ "}\n", "More than one @Handle method for java.lang.String");
+	}
+
+	@Test
+	public void test_same_type_in_different_states() throws Exception
+	{
+		assertTrue(messages(Diagnostic.Kind.ERROR).toString(), compile("Valid", HEADER
+			+ "public class Valid {\n"
+			+ "	@Handle public void a(String msg) {}\n"
+			+ "	@Handle(state = \"other\") public void b(String msg) {}\n"
+			+ "}\n"));
+		assertTrue(new File(out, "sample/Valid$$JavactorDispatcher.class").exists());
+	}
+
+	@Test
+	public void test_handle_wrong_arity() throws Exception
+	{
+		assertError(HEADER + "public class Invalid {\n"
+			+ "	@Handle public void a(String msg, String other) {}\n"
+			+ "}\n", "@Handle method must have exactly one parameter");
+	}
+
+	@Test
+	public void test_lifecycle_with_parameter() throws Exception
+	{
+		assertError(HEADER + "public class Invalid {\n"
+			+ "	@PreStart public void a(String msg) {}\n"
+			+ "}\n", "@PreStart method must not have parameters");
+	}
+
+	@Test
+	public void test_handle_batch_not_list() throws Exception
+	{
+		assertError(HEADER + "public class Invalid {\n"
+			+ "	@HandleBatch public void a(Collection<String> batch) {}\n"
+			+ "}\n", "@HandleBatch method must have exactly one parameter, a List");
+	}
+
+	@Test
+	public void test_handle_batch_max_size() throws Exception
+	{
+		assertError(HEADER + "public class Invalid {\n"
+			+ "	@HandleBatch(maxSize = 0) public void a(List<String> batch) {}\n"
+			+ "}\n", "@HandleBatch maxSize must be positive");
+	}
+
+	@Test
+	public void test_coalesce_on_handle_batch() throws Exception
+	{
+		assertError(HEADER + "public class Invalid {\n"
+			+ "	@HandleBatch @Coalesce public void a(List<String> batch) {}\n"
+			+ "}\n", "@Coalesce only applies to @Handle methods");
+	}
+
+	@Test
+	public void test_on_exception_return_type() throws Exception
+	{
+		assertError(HEADER + "public class Invalid {\n"
+			+ "	@OnException public void a(Exception e) {}\n"
+			+ "}\n", "@OnException method must accept an exception");
+	}
+
+	@Test
+	public void test_inaccessible_falls_back_to_reflection() throws Exception
+	{
+		assertTrue(compile("Private", HEADER + "public class Private {\n"
+			+ "	private JavactorContext ctx;\n"
+			+ "	@Handle public void a(String msg) {}\n"
+			+ "}\n"));
+		assertEquals(1, messages(Diagnostic.Kind.WARNING).size());
+		assertFalse(new File(out, "sample/Private$$JavactorDispatcher.class").exists());
+	}
+
+	@Test
+	public void test_generated_dispatches_as_reflective() throws Exception
+	{
+		assertTrue(messages(Diagnostic.Kind.ERROR).toString(), compile("Sample", SAMPLE));
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { out.toURI().toURL() },
+			getClass().getClassLoader()))
+		{
+			final Class<?> sampleClass = loader.loadClass("sample.Sample");
+			final JavactorDispatcher generated = JavactorDispatcher.forClass(sampleClass);
+			final JavactorDispatcher reflective = new ReflectiveJavactorDispatcher(sampleClass);
+			assertTrue(generated instanceof GeneratedJavactorDispatcher);
+
+			final Map<String, List<String>> generatedCalls = calls(sampleClass, generated);
+			assertEquals(calls(sampleClass, reflective), generatedCalls);
+			assertEquals(10, generated.methods().size());
+
+			final Object sample = sampleClass.newInstance();
+			assertEquals(reflective.supervisorStrategyInfo(sample),
+				generated.supervisorStrategyInfo(sample));
+			assertNotNull(generated.supervisorStrategyInfo(sample));
+		}
+	}
+
+	/**
+	 * @return by description of each method, what calling it on a new sample
+	 * does, sorted as methods with the same description come in no particular
+	 * order
+	 */
+	private static Map<String, List<String>> calls(Class<?> sampleClass,
+		JavactorDispatcher dispatcher) throws Exception
+	{
+		final Map<String, List<String>> result = new HashMap<>();
+		for (JavactorMethod method : dispatcher.methods())
+		{
+			final String description = method.getAnnotationType().getSimpleName()+" "
+				+method.getParameterType()+" "+method.getMaxBatchSize()+" "
+				+method.getState()+" "+method.getCoalesceKey();
+			List<String> calls = result.get(description);
+			if ( calls == null ) {
+				calls = new ArrayList<>();
+				result.put(description, calls);
+			}
+			calls.add(call(sampleClass, dispatcher, method));
+			Collections.sort(calls);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the calls recorded by a new sample and the result, after
+	 * injecting a context and invoking the method
+	 */
+	private static String call(Class<?> sampleClass, JavactorDispatcher dispatcher,
+		JavactorMethod method) throws Exception
+	{
+		final Object sample = sampleClass.newInstance();
+		dispatcher.injectContext(sample, context());
+		final Object result = method.getParameterType() == null ?
+			method.getInvoker().invoke(sample) :
+			method.getInvoker().invoke(sample, ARGS.get(method.getParameterType()));
+		return sampleClass.getField("calls").get(sample)+" "+result;
+	}
+
+	private static JavactorContext context()
+	{
+		return (JavactorContext) Proxy.newProxyInstance(
+			JavactorContext.class.getClassLoader(), new Class<?>[] { JavactorContext.class },
+			new InvocationHandler()
+			{
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args)
+				{
+					throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+
+	private static void delete(File file) throws IOException
+	{
+		final File[] children = file.listFiles();
+		if ( children != null )
+			for (File child : children)
+				delete(child);
+		Files.deleteIfExists(file.toPath());
+	}
+}
@@ -0,0 +1,196 @@
+package javactor.dispatch;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext.SupervisorStrategyInfo;
+import javactor.JavactorContext.SupervisorStrategyType;
+import javactor.annot.Handle;
+import javactor.annot.PostStop;
+import javactor.msg.TestMsg;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JavactorInfoTest
+{
+	static public class StrategyJavactor
+	{
+		private final SupervisorStrategyType type;
+
+		public StrategyJavactor(SupervisorStrategyType type)
+		{
+			this.type = type;
+		}
+
+		@Handle
+		public void handle(TestMsg msg)
+		{
+		}
+
+		public SupervisorStrategyInfo supervisorStrategyInfo()
+		{
+			return SupervisorStrategyInfo.builder().type(type).build();
+		}
+	}
+
+	static public class PostStopJavactor
+	{
+		final List<String> stopped = new ArrayList<>();
+
+		@PostStop
+		public void first()
+		{
+			stopped.add("first");
+		}
+
+		@PostStop
+		public void second()
+		{
+			stopped.add("second");
+		}
+	}
+
+	static public class BlockingJavactor
+	{
+		/* Fresh for each test, as the tear down releases them */
+		static CountDownLatch building;
+		static CountDownLatch release;
+
+		@Handle
+		public void handle(TestMsg msg)
+		{
+		}
+
+		public SupervisorStrategyInfo supervisorStrategyInfo() throws InterruptedException
+		{
+			building.countDown();
+			release.await();
+			return null;
+		}
+	}
+
+	static public class OtherJavactor
+	{
+		@Handle
+		public void handle(TestMsg msg)
+		{
+		}
+	}
+
+	static public class FailingOnceJavactor
+	{
+		static int calls;
+
+		@Handle
+		public void handle(TestMsg msg)
+		{
+		}
+
+		public SupervisorStrategyInfo supervisorStrategyInfo()
+		{
+			if ( calls++ == 0 )
+				throw new IllegalStateException("first");
+			return null;
+		}
+	}
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@Before
+	public void setUp()
+	{
+		BlockingJavactor.building = new CountDownLatch(1);
+		BlockingJavactor.release = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown()
+	{
+		BlockingJavactor.release.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void test_supervisor_strategy_from_first_instance()
+	{
+		final JavactorInfo first = JavactorInfo.of(
+			new StrategyJavactor(SupervisorStrategyType.ALL_FOR_ONE));
+		final JavactorInfo second = JavactorInfo.of(
+			new StrategyJavactor(SupervisorStrategyType.ONE_FOR_ONE));
+		assertSame(first, second);
+		assertEquals(SupervisorStrategyType.ALL_FOR_ONE,
+			second.getSupervisorStrategyInfo().getType());
+	}
+
+	@Test
+	public void test_default_supervisor_strategy()
+	{
+		assertEquals(new SupervisorStrategyInfo(),
+			JavactorInfo.of(new OtherJavactor()).getSupervisorStrategyInfo());
+	}
+
+	@Test
+	public void test_all_post_stop_methods() throws Exception
+	{
+		final PostStopJavactor javactor = new PostStopJavactor();
+		final JavactorInfo info = JavactorInfo.of(javactor);
+		assertEquals(2, info.getPostStop().size());
+		for (MethodInvoker invoker : info.getPostStop())
+			invoker.invoke(javactor);
+		assertEquals(2, javactor.stopped.size());
+		assertTrue(javactor.stopped.contains("first"));
+		assertTrue(javactor.stopped.contains("second"));
+	}
+
+	@Test
+	public void test_other_classes_not_blocked_while_building() throws Exception
+	{
+		final Future<JavactorInfo> blocked = executor.submit(new Callable<JavactorInfo>()
+		{
+			@Override
+			public JavactorInfo call()
+			{
+				return JavactorInfo.of(new BlockingJavactor());
+			}
+		});
+		assertTrue(BlockingJavactor.building.await(5, TimeUnit.SECONDS));
+		final Future<JavactorInfo> sameClass = executor.submit(new Callable<JavactorInfo>()
+		{
+			@Override
+			public JavactorInfo call()
+			{
+				return JavactorInfo.of(new BlockingJavactor());
+			}
+		});
+		/* Would wait for the blocked build if all classes shared a lock */
+		assertNotNull(JavactorInfo.of(new OtherJavactor()));
+		assertFalse(sameClass.isDone());
+		BlockingJavactor.release.countDown();
+		assertSame(blocked.get(5, TimeUnit.SECONDS), sameClass.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void test_failed_build_retried()
+	{
+		try
+		{
+			JavactorInfo.of(new FailingOnceJavactor());
+			fail();
+		} catch (RuntimeException e)
+		{
+			/* Wrapped by the reflective dispatcher */
+		}
+		assertEquals(1, FailingOnceJavactor.calls);
+		assertNotNull(JavactorInfo.of(new FailingOnceJavactor()));
+	}
+}
@@ -0,0 +1,206 @@
+package javactor.dispatch;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import javactor.msg.TestMsg;
+
+import org.junit.Test;
+
+public class MethodInvokerTest
+{
+	static private class Target
+	{
+		static Object staticArg;
+		Object arg;
+
+		@SuppressWarnings("unused")
+		private void privateHandle(TestMsg msg)
+		{
+			arg = msg;
+		}
+
+		public static void staticHandle(TestMsg msg)
+		{
+			staticArg = msg;
+		}
+
+		public int primitive()
+		{
+			return 42;
+		}
+
+		public boolean primitiveArg(int i)
+		{
+			return i > 0;
+		}
+
+		public String echo(String s)
+		{
+			return s;
+		}
+
+		public void checked() throws IOException
+		{
+			throw new IOException("checked");
+		}
+
+		public void unchecked(TestMsg msg)
+		{
+			throw new IllegalStateException("unchecked");
+		}
+
+		public void error()
+		{
+			throw new AssertionError("error");
+		}
+
+		public void throwable() throws Throwable
+		{
+			throw new Throwable("throwable");
+		}
+
+		public void twoParams(Object a, Object b)
+		{
+		}
+	}
+
+	static private interface Factory
+	{
+		MethodInvoker of(Method method);
+	}
+
+	private static final Factory HANDLE = new Factory()
+	{
+		@Override
+		public MethodInvoker of(Method method)
+		{
+			return MethodInvoker.of(method);
+		}
+	};
+
+	private static final Factory REFLECTIVE = new Factory()
+	{
+		@Override
+		public MethodInvoker of(Method method)
+		{
+			return MethodInvoker.reflective(method);
+		}
+	};
+
+	private static Method method(String name, Class<?>... parameterTypes) throws Exception
+	{
+		return Target.class.getDeclaredMethod(name, parameterTypes);
+	}
+
+	@Test
+	public void test_method_handle_unless_unavailable() throws Exception
+	{
+		final Method method = method("privateHandle", TestMsg.class);
+		assertNotSame(MethodInvoker.reflective(method).getClass(),
+			MethodInvoker.of(method).getClass());
+	}
+
+	@Test
+	public void test_non_public_method() throws Exception
+	{
+		for (Factory factory : new Factory[] { HANDLE, REFLECTIVE })
+		{
+			final Target target = new Target();
+			final TestMsg msg = new TestMsg();
+			assertNull(factory.of(method("privateHandle", TestMsg.class)).invoke(target, msg));
+			assertSame(msg, target.arg);
+		}
+	}
+
+	@Test
+	public void test_static_method() throws Exception
+	{
+		for (Factory factory : new Factory[] { HANDLE, REFLECTIVE })
+		{
+			final TestMsg msg = new TestMsg();
+			factory.of(method("staticHandle", TestMsg.class)).invoke(new Target(), msg);
+			assertSame(msg, Target.staticArg);
+		}
+	}
+
+	@Test
+	public void test_return_values() throws Exception
+	{
+		for (Factory factory : new Factory[] { HANDLE, REFLECTIVE })
+		{
+			final Target target = new Target();
+			assertEquals(Integer.valueOf(42), factory.of(method("primitive")).invoke(target));
+			assertEquals(Boolean.TRUE,
+				factory.of(method("primitiveArg", int.class)).invoke(target, 1));
+			assertEquals("echo", factory.of(method("echo", String.class)).invoke(target, "echo"));
+		}
+	}
+
+	@Test
+	public void test_exceptions_rethrown_as_is() throws Exception
+	{
+		for (Factory factory : new Factory[] { HANDLE, REFLECTIVE })
+		{
+			final Target target = new Target();
+			try
+			{
+				factory.of(method("checked")).invoke(target);
+				fail();
+			} catch (IOException e)
+			{
+				assertEquals("checked", e.getMessage());
+			}
+			try
+			{
+				factory.of(method("unchecked", TestMsg.class)).invoke(target, new TestMsg());
+				fail();
+			} catch (IllegalStateException e)
+			{
+				assertEquals("unchecked", e.getMessage());
+			}
+			try
+			{
+				factory.of(method("error")).invoke(target);
+				fail();
+			} catch (AssertionError e)
+			{
+				assertEquals("error", e.getMessage());
+			}
+			try
+			{
+				factory.of(method("throwable")).invoke(target);
+				fail();
+			} catch (UndeclaredThrowableException e)
+			{
+				assertEquals("throwable", e.getCause().getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void test_wrong_argument_type() throws Exception
+	{
+		for (Factory factory : new Factory[] { HANDLE, REFLECTIVE })
+		{
+			try
+			{
+				factory.of(method("echo", String.class)).invoke(new Target(), new TestMsg());
+				fail();
+			} catch (RuntimeException e)
+			{
+				/* ClassCastException from the handle, IllegalArgumentException
+				 * from reflection */
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_more_than_one_parameter() throws Exception
+	{
+		MethodInvoker.of(method("twoParams", Object.class, Object.class));
+	}
+}
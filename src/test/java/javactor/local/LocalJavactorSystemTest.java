@@ -0,0 +1,807 @@
+package javactor.local;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javactor.JavactorContext;
+import javactor.JavactorFuture;
+import javactor.JavactorContext.JavactorPreparer;
+import javactor.JavactorContext.OverflowPolicy;
+import javactor.JavactorContext.Routing;
+import javactor.JavactorContext.SupervisorDirective;
+import javactor.annot.Coalesce;
+import javactor.annot.Handle;
+import javactor.annot.OnException;
+import javactor.annot.PostRestart;
+import javactor.annot.PostStop;
+import javactor.annot.PreRestart;
+import javactor.annot.PreStart;
+import javactor.dispatch.JavactorInfo;
+import javactor.metrics.InMemoryJavactorMetrics;
+import javactor.metrics.InMemoryJavactorMetrics.ClassMetrics;
+import javactor.msg.AReplyMsg;
+import javactor.msg.KeyedMsg;
+import javactor.msg.MailboxOverflow;
+import javactor.msg.Restarted;
+import javactor.msg.Terminated;
+import javactor.msg.TestMsg;
+import javactor.msg.TestMsg2;
+import javactor.msg.TimeoutMsg;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalJavactorSystemTest
+{
+	/**
+	 * Base of the test javactors, which report to the test on events
+	 */
+	static public class ReportingJavactor {
+		JavactorContext ctx;
+		BlockingQueue<Object> events;
+		@Handle
+		public void handle(TestMsg msg) {
+			ctx.msg(msg).replyToSender().fireAndForget();
+		}
+	}
+	static public class SilentJavactor {
+		@Handle
+		public void handle(TestMsg2 msg) {
+		}
+	}
+	static public class RequestingJavactor extends ReportingJavactor {
+		Object silent;
+		@PreStart
+		public void preStart() {
+			silent = ctx.actorBuilder(SilentJavactor.class, "silent").build();
+		}
+		@Override
+		@Handle
+		public void handle(TestMsg msg) {
+			ctx.msg(new TestMsg2()).to(silent).timeout(100, TimeUnit.MILLISECONDS)
+				.request(AReplyMsg.class, "task");
+		}
+		@Handle
+		public void handle(AReplyMsg msg) {
+		}
+		@Handle
+		public void handle(TimeoutMsg msg) {
+			events.add(msg);
+		}
+	}
+	static public class UnsendableRequestJavactor extends RequestingJavactor {
+		@Override
+		@Handle
+		public void handle(TestMsg msg) {
+			try {
+				ctx.msg(new TestMsg2()).from(ctx.self()).timeout(100, TimeUnit.MILLISECONDS)
+					.request(AReplyMsg.class, "unsendable");
+			} catch (IllegalArgumentException e) {
+				events.add(e);
+			}
+		}
+	}
+	static public class RestartedRequestingJavactor extends RequestingJavactor {
+		@Handle
+		public void handle(TestMsg2 msg) {
+			throw new IllegalStateException("Boom");
+		}
+		@PostRestart
+		public void postRestart() {
+			events.add(new Restarted());
+		}
+	}
+	static public class BoomJavactor extends ReportingJavactor {
+		@Handle
+		public void handle(TestMsg2 msg) {
+			throw new IllegalStateException("Boom");
+		}
+		@PreRestart
+		public void preRestart() {
+			events.add("preRestart");
+		}
+		@PostRestart
+		public void postRestart() {
+			events.add(new Restarted());
+		}
+	}
+	static public class SubscriberJavactor extends ReportingJavactor {
+		@Handle
+		public void handle(TestMsg2 msg) {
+			events.add(msg);
+		}
+	}
+	static public class ParentJavactor extends ReportingJavactor {
+		Object child;
+		@PreStart
+		public void preStart() {
+			child = ctx.actorBuilder(ChildJavactor.class, "child")
+				.preparer(new EventsPreparer<ChildJavactor>(events)).build();
+			ctx.watch(child);
+		}
+		@Handle
+		public void handle(TestMsg2 msg) {
+			ctx.stop(child);
+		}
+		@Handle
+		public void handle(Terminated msg) {
+			events.add(msg);
+		}
+	}
+	static public class SupervisingJavactor extends ParentJavactor {
+		@Override
+		@PreStart
+		public void preStart() {
+			child = ctx.actorBuilder(BoomJavactor.class, "child")
+				.preparer(new EventsPreparer<BoomJavactor>(events)).build();
+		}
+		@Override
+		@Handle
+		public void handle(TestMsg2 msg) {
+			ctx.msg(msg).to(child).fireAndForget();
+		}
+		@OnException
+		public SupervisorDirective onException(Exception e) {
+			events.add(Exception.class);
+			return SupervisorDirective.RESTART;
+		}
+		@OnException
+		public SupervisorDirective onIllegalState(IllegalStateException e) {
+			events.add(IllegalStateException.class);
+			return SupervisorDirective.RESUME;
+		}
+		@OnException
+		public SupervisorDirective onRuntimeException(RuntimeException e) {
+			events.add(RuntimeException.class);
+			return SupervisorDirective.RESTART;
+		}
+	}
+	static public class StashingJavactor extends ReportingJavactor {
+		boolean open;
+		@Override
+		@Handle
+		public void handle(TestMsg msg) {
+			if ( open )
+				ctx.msg(msg).replyToSender().fireAndForget();
+			else
+				ctx.stash();
+		}
+		@Handle
+		public void handle(TestMsg2 msg) {
+			open = true;
+			ctx.unstashAll();
+		}
+	}
+	static public class StatefulJavactor extends ReportingJavactor {
+		@Override
+		@Handle
+		public void handle(TestMsg msg) {
+			events.add("default");
+		}
+		@Handle
+		public void handle(TestMsg2 msg) {
+			ctx.become("connected");
+		}
+		@Handle(state = "connected")
+		public void connected(TestMsg msg) {
+			events.add("connected");
+			ctx.unbecome();
+		}
+		@Handle(state = "connected")
+		public void connected(AReplyMsg msg) {
+			events.add("reply");
+		}
+	}
+	static public class TimerJavactor extends ReportingJavactor {
+		int ticks;
+		@Override
+		@Handle
+		public void handle(TestMsg msg) {
+			ctx.timers().startSingle("idle", "idle", 200, TimeUnit.MILLISECONDS);
+		}
+		@Handle
+		public void handle(TestMsg2 msg) {
+			ctx.timers().startSingle("cancelled", "cancelled", 10, TimeUnit.MILLISECONDS);
+			ctx.timers().startPeriodic("tick", "tick", 50, TimeUnit.MILLISECONDS);
+			ctx.timers().cancel("cancelled");
+		}
+		@Handle
+		public void handle(String msg) {
+			events.add(msg);
+			if ( msg.equals("tick") && ++ticks == 3 )
+				ctx.timers().cancel("tick");
+		}
+	}
+	static public class FirstTickJavactor extends ReportingJavactor {
+		long startNanos;
+		@Handle
+		public void handle(TestMsg2 msg) {
+			startNanos = System.nanoTime();
+			ctx.timers().startPeriodic("tick", "tick", 400, TimeUnit.MILLISECONDS);
+		}
+		@Handle
+		public void handle(String msg) {
+			events.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+			ctx.timers().cancel("tick");
+		}
+	}
+	static public class ChildJavactor extends ReportingJavactor {
+		@PostStop
+		public void postStop() {
+			events.add("childStopped");
+		}
+	}
+	static public class BlockedJavactor extends ReportingJavactor {
+		CountDownLatch release;
+		@Handle
+		public void handle(TestMsg2 msg) throws InterruptedException {
+			events.add("blocked");
+			release.await(5, TimeUnit.SECONDS);
+		}
+	}
+	static public class CoalescingJavactor extends BlockedJavactor {
+		@Handle
+		@Coalesce(key = "hashKey")
+		public void handle(KeyedMsg msg) {
+			events.add(msg);
+		}
+	}
+	static public class OverflowReportingJavactor extends ReportingJavactor {
+		@Handle
+		public void handle(MailboxOverflow msg) {
+			events.add(msg);
+		}
+	}
+	static public class PoolWorkerJavactor {
+		JavactorContext ctx;
+		@Handle
+		public void handle(KeyedMsg msg) {
+			final TestMsg reply = new TestMsg();
+			reply.setTestData(ctx.self());
+			ctx.msg(reply).replyToSender().fireAndForget();
+		}
+	}
+	static public class RoundRobinPoolJavactor extends ReportingJavactor {
+		@PreStart
+		public void preStart() {
+			events.add(ctx.poolBuilder(PoolWorkerJavactor.class, "workers", 2)
+				.build());
+		}
+	}
+	static public class ConsistentHashingPoolJavactor extends ReportingJavactor {
+		@PreStart
+		public void preStart() {
+			events.add(ctx.poolBuilder(PoolWorkerJavactor.class, "workers", 4)
+				.routing(Routing.CONSISTENT_HASHING).build());
+		}
+	}
+	static public class SmallestMailboxPoolJavactor extends ReportingJavactor {
+		CountDownLatch release;
+		@PreStart
+		public void preStart() {
+			events.add(ctx.poolBuilder(BlockedJavactor.class, "workers", 2)
+				.routing(Routing.SMALLEST_MAILBOX)
+				.preparer(new JavactorPreparer<BlockedJavactor>()
+				{
+					@Override
+					public void prepare(BlockedJavactor javactor)
+					{
+						javactor.events = events;
+						javactor.release = release;
+					}
+				}).build());
+		}
+	}
+	static public class ResizablePoolJavactor extends ReportingJavactor {
+		CountDownLatch release;
+		@PreStart
+		public void preStart() {
+			events.add(ctx.poolBuilder(BlockedJavactor.class, "workers", 1)
+				.resizer(1, 3)
+				.preparer(new JavactorPreparer<BlockedJavactor>()
+				{
+					@Override
+					public void prepare(BlockedJavactor javactor)
+					{
+						javactor.events = events;
+						javactor.release = release;
+					}
+				}).build());
+		}
+	}
+	static private class EventsPreparer<T extends ReportingJavactor>
+		implements JavactorPreparer<T>
+	{
+		private final BlockingQueue<Object> events;
+
+		private EventsPreparer(BlockingQueue<Object> events)
+		{
+			this.events = events;
+		}
+
+		@Override
+		public void prepare(T javactor)
+		{
+			javactor.events = events;
+		}
+	}
+
+	private LocalJavactorSystem system;
+	private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+
+	@Before
+	public void before()
+	{
+		/* Some tests block an actor's thread */
+		system = new LocalJavactorSystem(4, LocalJavactorSystem.DEFAULT_THROUGHPUT);
+	}
+
+	@After
+	public void after() throws InterruptedException
+	{
+		system.shutdown();
+		assertTrue(system.awaitTermination(5, TimeUnit.SECONDS));
+	}
+
+	private <T extends ReportingJavactor> Object actor(Class<T> javactorClass)
+	{
+		return system.actorBuilder(javactorClass, null)
+			.preparer(new EventsPreparer<T>(events)).build();
+	}
+
+	private Object nextEvent() throws InterruptedException
+	{
+		final Object event = events.poll(5, TimeUnit.SECONDS);
+		assertNotNull(event);
+		return event;
+	}
+
+	@Test
+	public void test_ask() throws Exception
+	{
+		final Object actor = actor(ReportingJavactor.class);
+		final TestMsg msg = new TestMsg();
+		assertEquals(msg, system.msg(msg).to(actor).ask(TestMsg.class)
+			.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void test_ask_timeout() throws Exception
+	{
+		final Object silent = system.actorBuilder(SilentJavactor.class, null).build();
+		try
+		{
+			system.msg(new TestMsg2()).to(silent).timeout(100, TimeUnit.MILLISECONDS)
+				.ask(AReplyMsg.class).get(5, TimeUnit.SECONDS);
+			fail("Expected the ask to time out");
+		} catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_fire_and_forget_with_timeout() throws Exception
+	{
+		final Object actor = actor(ReportingJavactor.class);
+		system.msg(new TestMsg()).to(actor).timeout(1, TimeUnit.SECONDS).fireAndForget();
+	}
+
+	@Test
+	public void test_request_timeout() throws Exception
+	{
+		final Object actor = actor(RequestingJavactor.class);
+		system.msg(new TestMsg()).to(actor).fireAndForget();
+		final TimeoutMsg timeoutMsg = (TimeoutMsg) nextEvent();
+		assertEquals("task", timeoutMsg.getTaskInfo());
+	}
+
+	@Test
+	public void test_unsendable_request_not_left_pending() throws Exception
+	{
+		final Object actor = actor(UnsendableRequestJavactor.class);
+		system.msg(new TestMsg()).to(actor).fireAndForget();
+		assertTrue(nextEvent() instanceof IllegalArgumentException);
+		assertNull(events.poll(400, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void test_request_timeout_after_restart() throws Exception
+	{
+		final Object actor = actor(RestartedRequestingJavactor.class);
+		system.msg(new TestMsg()).to(actor).fireAndForget();
+		system.msg(new TestMsg2()).to(actor).fireAndForget();
+		assertTrue(nextEvent() instanceof Restarted);
+		final TimeoutMsg timeoutMsg = (TimeoutMsg) nextEvent();
+		assertEquals("task", timeoutMsg.getTaskInfo());
+	}
+
+	@Test
+	public void test_restart_on_exception() throws Exception
+	{
+		final Object actor = actor(BoomJavactor.class);
+		system.msg(new TestMsg2()).to(actor).fireAndForget();
+		assertEquals("preRestart", nextEvent());
+		assertTrue(nextEvent() instanceof Restarted);
+		assertNotNull(system.msg(new TestMsg()).to(actor).ask(TestMsg.class)
+			.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void test_most_specific_on_exception_method() throws Exception
+	{
+		final Object supervisor = actor(SupervisingJavactor.class);
+		for (int i = 0; i < 3; i++)
+		{
+			system.msg(new TestMsg2()).to(supervisor).fireAndForget();
+			assertEquals(IllegalStateException.class, nextEvent());
+		}
+	}
+
+	@Test
+	public void test_stash() throws Exception
+	{
+		final Object actor = actor(StashingJavactor.class);
+		final JavactorFuture<TestMsg> first = system.msg(new TestMsg()).to(actor)
+			.ask(TestMsg.class);
+		final JavactorFuture<TestMsg> second = system.msg(new TestMsg()).to(actor)
+			.ask(TestMsg.class);
+		Thread.sleep(100);
+		assertFalse(first.isDone());
+		system.msg(new TestMsg2()).to(actor).fireAndForget();
+		assertNotNull(first.get(5, TimeUnit.SECONDS));
+		assertNotNull(second.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void test_become() throws Exception
+	{
+		final Object actor = actor(StatefulJavactor.class);
+		system.msg(new TestMsg()).to(actor).fireAndForget();
+		system.msg(new AReplyMsg()).to(actor).fireAndForget();
+		system.msg(new TestMsg2()).to(actor).fireAndForget();
+		system.msg(new AReplyMsg()).to(actor).fireAndForget();
+		system.msg(new TestMsg()).to(actor).fireAndForget();
+		system.msg(new TestMsg()).to(actor).fireAndForget();
+		assertEquals("default", nextEvent());
+		assertEquals("reply", nextEvent());
+		assertEquals("connected", nextEvent());
+		assertEquals("default", nextEvent());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_become_unknown_state()
+	{
+		JavactorInfo.of(new StatefulJavactor()).getHandlers("disconnected");
+	}
+
+	@Test
+	public void test_single_timer_pushed_back() throws Exception
+	{
+		final Object actor = actor(TimerJavactor.class);
+		long lastSent = 0;
+		for (int i = 0; i < 5; i++)
+		{
+			lastSent = System.nanoTime();
+			system.msg(new TestMsg()).to(actor).fireAndForget();
+			Thread.sleep(50);
+		}
+		assertEquals("idle", nextEvent());
+		assertTrue(System.nanoTime() - lastSent >= TimeUnit.MILLISECONDS.toNanos(200));
+		assertNull(events.poll(400, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void test_periodic_timer_and_cancel() throws Exception
+	{
+		final Object actor = actor(TimerJavactor.class);
+		system.msg(new TestMsg2()).to(actor).fireAndForget();
+		assertEquals("tick", nextEvent());
+		assertEquals("tick", nextEvent());
+		assertEquals("tick", nextEvent());
+		assertNull(events.poll(300, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void test_periodic_timer_first_tick_after_a_period() throws Exception
+	{
+		final Object actor = actor(FirstTickJavactor.class);
+		system.msg(new TestMsg2()).to(actor).fireAndForget();
+		/* At most a slot, a sixteenth of the period, late */
+		final long elapsedMillis = (Long) nextEvent();
+		assertTrue("first tick after "+elapsedMillis+" ms", elapsedMillis >= 400);
+		assertTrue("first tick after "+elapsedMillis+" ms", elapsedMillis < 600);
+	}
+
+	@Test
+	public void test_publish_to_subscriber() throws Exception
+	{
+		final Object actor = system.actorBuilder(SubscriberJavactor.class, null)
+			.preparer(new EventsPreparer<SubscriberJavactor>(events))
+			.subscribeToEventBus().build();
+		// Make sure it has subscribed
+		system.msg(new TestMsg()).to(actor).ask(TestMsg.class).get(5, TimeUnit.SECONDS);
+		final TestMsg2 msg = new TestMsg2();
+		system.publish(msg);
+		assertSame(msg, nextEvent());
+	}
+
+	@Test
+	public void test_watch_stopped_child() throws Exception
+	{
+		final Object parent = actor(ParentJavactor.class);
+		system.msg(new TestMsg2()).to(parent).fireAndForget();
+		assertEquals("childStopped", nextEvent());
+		assertTrue(nextEvent() instanceof Terminated);
+	}
+
+	@Test
+	public void test_bounded_mailbox_rejects_to_sender() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final Object blocked = system.actorBuilder(BlockedJavactor.class, null)
+			.preparer(new JavactorPreparer<BlockedJavactor>()
+			{
+				@Override
+				public void prepare(BlockedJavactor javactor)
+				{
+					javactor.events = events;
+					javactor.release = release;
+				}
+			}).boundedMailbox(1, OverflowPolicy.REJECT).build();
+		final Object sender = actor(OverflowReportingJavactor.class);
+		try
+		{
+			system.msg(new TestMsg2()).to(blocked).fireAndForget();
+			assertEquals("blocked", nextEvent());
+			system.msg(new TestMsg2()).to(blocked).from(sender).fireAndForget();
+			final TestMsg2 rejected = new TestMsg2();
+			system.msg(rejected).to(blocked).from(sender).fireAndForget();
+			final MailboxOverflow overflow = (MailboxOverflow) nextEvent();
+			assertSame(rejected, overflow.getMsg());
+			assertSame(blocked, overflow.getRecipient());
+		} finally
+		{
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void test_coalesce() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final Object actor = system.actorBuilder(CoalescingJavactor.class, null)
+			.preparer(new JavactorPreparer<CoalescingJavactor>()
+			{
+				@Override
+				public void prepare(CoalescingJavactor javactor)
+				{
+					javactor.events = events;
+					javactor.release = release;
+				}
+			}).build();
+		system.msg(new TestMsg2()).to(actor).fireAndForget();
+		assertEquals("blocked", nextEvent());
+		final KeyedMsg latestA = new KeyedMsg("a"), latestB = new KeyedMsg("b");
+		for (KeyedMsg msg : Arrays.asList(new KeyedMsg("a"), new KeyedMsg("b"),
+			new KeyedMsg("a"), latestA, latestB))
+		{
+			system.msg(msg).to(actor).fireAndForget();
+		}
+		assertEquals(2, mailboxSize(actor));
+		release.countDown();
+		assertSame(latestA, nextEvent());
+		assertSame(latestB, nextEvent());
+		system.msg(new TestMsg()).to(actor).ask(TestMsg.class).get(5, TimeUnit.SECONDS);
+		assertTrue(events.isEmpty());
+	}
+
+	private static int mailboxSize(Object actor)
+	{
+		return ((LocalActorRef) actor).getActor().getMailboxSize();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void test_coalescing_mailbox_cannot_be_bounded() throws Exception
+	{
+		system.actorBuilder(CoalescingJavactor.class, null)
+			.boundedMailbox(2, OverflowPolicy.DROP_NEWEST).build();
+	}
+
+	@Test
+	public void test_bounded_mailbox_drops_oldest() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final Object blocked = system.actorBuilder(BlockedJavactor.class, null)
+			.preparer(new JavactorPreparer<BlockedJavactor>()
+			{
+				@Override
+				public void prepare(BlockedJavactor javactor)
+				{
+					javactor.events = events;
+					javactor.release = release;
+				}
+			}).boundedMailbox(2, OverflowPolicy.DROP_OLDEST).build();
+		try
+		{
+			system.msg(new TestMsg2()).to(blocked).fireAndForget();
+			assertEquals("blocked", nextEvent());
+			for (int i = 0; i < 4; i++)
+				system.msg(new TestMsg()).to(blocked).fireAndForget();
+			assertEquals(2, mailboxSize(blocked));
+		} finally
+		{
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void test_smallest_mailbox_pool() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		system.actorBuilder(SmallestMailboxPoolJavactor.class, null)
+			.preparer(new JavactorPreparer<SmallestMailboxPoolJavactor>()
+			{
+				@Override
+				public void prepare(SmallestMailboxPoolJavactor javactor)
+				{
+					javactor.events = events;
+					javactor.release = release;
+				}
+			}).build();
+		final PoolRef pool = (PoolRef) nextEvent();
+		final LocalActorRef[] routees = pool.getRoutees();
+		/* Until created, a routee is busy, and may get both */
+		for (LocalActorRef routee : routees)
+		{
+			while ( !routee.getActor().isIdle() )
+				Thread.sleep(10);
+		}
+		try
+		{
+			/* Each goes to an idle routee */
+			system.msg(new TestMsg2()).to(pool).fireAndForget();
+			assertEquals("blocked", nextEvent());
+			system.msg(new TestMsg2()).to(pool).fireAndForget();
+			assertEquals("blocked", nextEvent());
+			for (int i = 0; i < 3; i++)
+				system.msg(new TestMsg()).to(pool).fireAndForget();
+			assertEquals(3, mailboxSize(routees[0]) + mailboxSize(routees[1]));
+			assertEquals(1, Math.abs(mailboxSize(routees[0]) - mailboxSize(routees[1])));
+		} finally
+		{
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void test_resizable_pool() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		system.actorBuilder(ResizablePoolJavactor.class, null)
+			.preparer(new JavactorPreparer<ResizablePoolJavactor>()
+			{
+				@Override
+				public void prepare(ResizablePoolJavactor javactor)
+				{
+					javactor.events = events;
+					javactor.release = release;
+				}
+			}).build();
+		final PoolRef pool = (PoolRef) nextEvent();
+		final LocalActorRef first = pool.getRoutees()[0];
+		try
+		{
+			system.msg(new TestMsg2()).to(pool).fireAndForget();
+			assertEquals("blocked", nextEvent());
+			/* Its only actor is busy, so it grows by one */
+			for (int i = 1; i < PoolRef.MESSAGES_PER_RESIZE; i++)
+				system.msg(new TestMsg()).to(pool).fireAndForget();
+			awaitRoutees(pool, 2);
+		} finally
+		{
+			release.countDown();
+		}
+		final LocalActorRef added = pool.getRoutees()[1];
+		/* Once they are idle, it shrinks back, stopping the added actor */
+		final long deadline = System.currentTimeMillis() + 5000;
+		while ( pool.getRoutees().length > 1 && System.currentTimeMillis() < deadline )
+		{
+			system.msg(new TestMsg()).to(pool).fireAndForget();
+			Thread.sleep(1);
+		}
+		assertArrayEquals(new LocalActorRef[] { first }, pool.getRoutees());
+		while ( !added.isTerminated() && System.currentTimeMillis() < deadline )
+			Thread.sleep(10);
+		assertTrue(added.isTerminated());
+	}
+
+	private static void awaitRoutees(PoolRef pool, int size) throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + 5000;
+		while ( pool.getRoutees().length != size && System.currentTimeMillis() < deadline )
+			Thread.sleep(10);
+		assertEquals(size, pool.getRoutees().length);
+	}
+
+	private Object routee(Object pool, Object hashKey) throws Exception
+	{
+		return system.msg(new KeyedMsg(hashKey)).to(pool).ask(TestMsg.class)
+			.get(5, TimeUnit.SECONDS).getTestData();
+	}
+
+	@Test
+	public void test_round_robin_pool() throws Exception
+	{
+		actor(RoundRobinPoolJavactor.class);
+		final Object pool = nextEvent();
+		final Object first = routee(pool, "a");
+		final Object second = routee(pool, "a");
+		assertNotSame(first, second);
+		assertSame(first, routee(pool, "a"));
+		assertSame(second, routee(pool, "a"));
+	}
+
+	@Test
+	public void test_consistent_hashing_pool() throws Exception
+	{
+		actor(ConsistentHashingPoolJavactor.class);
+		final Object pool = nextEvent();
+		for (int key = 0; key < 8; key++)
+			assertSame(routee(pool, key), routee(pool, key));
+	}
+
+	@Test
+	public void test_stopped_routee_removed_from_pool() throws Exception
+	{
+		actor(ConsistentHashingPoolJavactor.class);
+		final PoolRef pool = (PoolRef) nextEvent();
+		final LocalActorRef stopped = pool.getRoutees()[0];
+		stopped.getActor().stop();
+		awaitRoutees(pool, 3);
+		/* Each still reaches a live actor, rather than the dead letters */
+		for (int key = 0; key < 16; key++)
+			assertNotSame(stopped, routee(pool, key));
+	}
+
+	@Test
+	public void test_metrics() throws Exception
+	{
+		final InMemoryJavactorMetrics metrics = new InMemoryJavactorMetrics();
+		system.setMetrics(metrics);
+		final Object actor = actor(RequestingJavactor.class);
+		system.msg(new TestMsg()).to(actor).fireAndForget();
+		assertTrue(nextEvent() instanceof TimeoutMsg);
+		final ClassMetrics classMetrics =
+			metrics.getClassMetrics(RequestingJavactor.class);
+		assertEquals(Long.valueOf(1), classMetrics.getHandledCounts().get(
+			RequestingJavactor.class.getMethod("handle", TestMsg.class).toString()));
+		assertEquals(0, classMetrics.getPendingRequests());
+		assertEquals(0, classMetrics.getCompletedRequests());
+		assertEquals(1, classMetrics.getTimedOutRequests());
+		assertTrue(classMetrics.getQueueNanos().getCount() >= 2);
+		assertEquals(0, metrics.getClassMetrics(SilentJavactor.class)
+			.getUnhandledCount(TestMsg2.class));
+		system.msg(new TestMsg()).to(system.actorBuilder(SilentJavactor.class, null)
+			.build()).fireAndForget();
+		final ClassMetrics silentMetrics = metrics.getClassMetrics(SilentJavactor.class);
+		for (int i = 0; i < 50 && silentMetrics.getUnhandledCount(TestMsg.class) == 0; i++)
+			Thread.sleep(100);
+		assertEquals(1, silentMetrics.getUnhandledCount(TestMsg.class));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_duplicate_top_level_name()
+	{
+		system.actorBuilder(SilentJavactor.class, "same").build();
+		system.actorBuilder(SilentJavactor.class, "same").build();
+	}
+}
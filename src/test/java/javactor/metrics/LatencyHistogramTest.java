@@ -0,0 +1,52 @@
+package javactor.metrics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest
+{
+	@Test
+	public void bucketsCoverAllValuesInOrder()
+	{
+		long expectedLowest = 0;
+		for (int i = 0; i <= LatencyHistogram.index(Long.MAX_VALUE); i++)
+		{
+			assertEquals(i, LatencyHistogram.index(expectedLowest));
+			final long highest = LatencyHistogram.highestValue(i);
+			assertEquals(i, LatencyHistogram.index(highest));
+			expectedLowest = highest + 1;
+		}
+		assertEquals(Long.MIN_VALUE, expectedLowest);
+	}
+
+	@Test
+	public void percentiles()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		for (long value = 1; value <= 1000; value++)
+			histogram.record(value * 1000);
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1000 * 1000, histogram.getMax());
+		assertWithin(500 * 1000, histogram.getValueAtPercentile(50));
+		assertWithin(990 * 1000, histogram.getValueAtPercentile(99));
+		assertEquals(1000 * 1000, histogram.getValueAtPercentile(100));
+		assertWithin(1000, histogram.getValueAtPercentile(0));
+	}
+
+	private static void assertWithin(long expected, long actual)
+	{
+		assertTrue(actual >= expected);
+		assertTrue(actual <= expected + expected / LatencyHistogram.SUB_BUCKETS);
+	}
+
+	@Test
+	public void negativeValuesAreZero()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		assertEquals(0, histogram.getValueAtPercentile(100));
+		assertEquals(1, histogram.getCount());
+	}
+}
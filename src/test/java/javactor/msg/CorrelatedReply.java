@@ -0,0 +1,9 @@
+package javactor.msg;
+
+import lombok.Data;
+
+@Data
+public class CorrelatedReply implements Correlated
+{
+	private final long correlationId;
+}
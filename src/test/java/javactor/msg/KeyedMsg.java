@@ -0,0 +1,9 @@
+package javactor.msg;
+
+import lombok.Data;
+
+@Data
+public class KeyedMsg implements HashKeyed
+{
+	private final Object hashKey;
+}
@@ -0,0 +1,91 @@
+package javactor.spring;
+
+import static org.junit.Assert.*;
+
+import javactor.JavactorContext.JavactorPreparer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Scope;
+
+public class SpringJavactorFactoryTest
+{
+	static public class Greeting {
+	}
+	@Scope("prototype")
+	static public class PrototypeJavactor {
+		@Autowired
+		Greeting greeting;
+	}
+	static public class SingletonJavactor {
+	}
+	static public class UnregisteredJavactor implements InitializingBean {
+		@Autowired
+		Greeting greeting;
+		boolean initialized;
+		@Override
+		public void afterPropertiesSet() {
+			initialized = true;
+		}
+	}
+
+	private AnnotationConfigApplicationContext applicationContext;
+	private SpringJavactorFactory factory;
+
+	@Before
+	public void before()
+	{
+		applicationContext = new AnnotationConfigApplicationContext(Greeting.class, 
+			PrototypeJavactor.class, SingletonJavactor.class);
+		factory = new SpringJavactorFactory(applicationContext);
+	}
+
+	@After
+	public void after()
+	{
+		applicationContext.close();
+	}
+
+	@Test
+	public void getsPrototypeBeans()
+	{
+		final PrototypeJavactor first = 
+			(PrototypeJavactor) factory.get(PrototypeJavactor.class);
+		final PrototypeJavactor second = 
+			(PrototypeJavactor) factory.get(PrototypeJavactor.class);
+		assertNotSame(first, second);
+		assertSame(applicationContext.getBean(Greeting.class), first.greeting);
+		assertSame(first.greeting, second.greeting);
+	}
+
+	@Test
+	public void autowiresAndInitializesClassesWithoutBeanDefinitions()
+	{
+		final UnregisteredJavactor javactor = 
+			(UnregisteredJavactor) factory.get(UnregisteredJavactor.class);
+		assertSame(applicationContext.getBean(Greeting.class), javactor.greeting);
+		assertTrue(javactor.initialized);
+		assertNotSame(javactor, factory.get(UnregisteredJavactor.class));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsSingletonBeans()
+	{
+		factory.get(SingletonJavactor.class);
+	}
+
+	@Test
+	public void autowiringPreparer()
+	{
+		final UnregisteredJavactor javactor = new UnregisteredJavactor();
+		final JavactorPreparer<UnregisteredJavactor> preparer = 
+			factory.autowiringPreparer();
+		preparer.prepare(javactor);
+		assertSame(applicationContext.getBean(Greeting.class), javactor.greeting);
+		assertTrue(javactor.initialized);
+	}
+}
@@ -0,0 +1,96 @@
+package javactor.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javactor.JavactorContext.OverflowPolicy;
+import javactor.util.BoundedQueue.Bounds;
+import javactor.util.BoundedQueue.OverflowSink;
+
+import org.junit.Test;
+
+public class BoundedQueueTest
+{
+	private final List<String> overflowed = new ArrayList<>();
+	private final OverflowSink<String> sink = new OverflowSink<String>()
+	{
+		@Override
+		public void overflowed(String e)
+		{
+			overflowed.add(e);
+		}
+	};
+
+	private static BoundedQueue<String> full(OverflowPolicy overflowPolicy)
+	{
+		final BoundedQueue<String> queue = new BoundedQueue<>(new Bounds(2, 
+			overflowPolicy, TimeUnit.MILLISECONDS.toNanos(10)));
+		queue.add("a");
+		queue.add("b");
+		return queue;
+	}
+
+	@Test
+	public void dropNewest()
+	{
+		final BoundedQueue<String> queue = full(OverflowPolicy.DROP_NEWEST);
+		assertFalse(queue.push("c", sink));
+		assertEquals(Arrays.asList("c"), overflowed);
+		assertEquals(Arrays.asList("a", "b"), new ArrayList<>(queue));
+	}
+
+	@Test
+	public void dropOldest()
+	{
+		final BoundedQueue<String> queue = full(OverflowPolicy.DROP_OLDEST);
+		assertTrue(queue.push("c", sink));
+		assertEquals(Arrays.asList("a"), overflowed);
+		assertEquals(Arrays.asList("b", "c"), new ArrayList<>(queue));
+	}
+
+	@Test
+	public void reject()
+	{
+		final BoundedQueue<String> queue = full(OverflowPolicy.REJECT);
+		assertFalse(queue.push("c", sink));
+		assertEquals(Arrays.asList("c"), overflowed);
+	}
+
+	@Test
+	public void blockTimesOut()
+	{
+		final BoundedQueue<String> queue = full(OverflowPolicy.BLOCK);
+		final long start = System.nanoTime();
+		assertFalse(queue.push("c", sink));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+		assertEquals(Arrays.asList("c"), overflowed);
+	}
+
+	@Test
+	public void blockUntilRoom() throws InterruptedException
+	{
+		final BoundedQueue<String> queue = full(OverflowPolicy.BLOCK);
+		final Thread consumer = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				queue.poll();
+			}
+		};
+		consumer.start();
+		consumer.join();
+		assertTrue(queue.push("c", sink));
+		assertTrue(overflowed.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void capacityMustBePositive()
+	{
+		new BoundedQueue<String>(new Bounds(0, OverflowPolicy.BLOCK, 0));
+	}
+}
@@ -0,0 +1,95 @@
+package javactor.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javactor.msg.CorrelatedReply;
+import javactor.msg.KeyedMsg;
+import javactor.msg.TestMsg;
+import javactor.msg.TestMsg2;
+import javactor.msg.TestMsgSubtype;
+
+import org.junit.Test;
+
+public class CoalescingMailboxQueueTest
+{
+	private static CoalescingMailboxQueue<Object> queue(Map<Class<?>, String> keyProperties)
+	{
+		return new CoalescingMailboxQueue<Object>(new MessageCoalescing(keyProperties))
+		{
+			@Override
+			protected Object message(Object envelope)
+			{
+				return envelope;
+			}
+		};
+	}
+
+	private static List<Object> drain(CoalescingMailboxQueue<Object> queue)
+	{
+		final List<Object> result = new ArrayList<>();
+		for (Object msg = queue.poll(); msg != null; msg = queue.poll())
+			result.add(msg);
+		return result;
+	}
+
+	@Test
+	public void latestPerKeyInPlaceOfFirst()
+	{
+		final Map<Class<?>, String> keyProperties = new HashMap<>();
+		keyProperties.put(KeyedMsg.class, "hashKey");
+		final CoalescingMailboxQueue<Object> queue = queue(keyProperties);
+		final Object a1 = new KeyedMsg("a"), other = new TestMsg2(),
+			b = new KeyedMsg("b"), a2 = new KeyedMsg("a"), a3 = new KeyedMsg("a");
+		for (Object msg : Arrays.asList(a1, other, b, a2, a3))
+			queue.offer(msg);
+		assertEquals(3, queue.size());
+		assertSame(a3, queue.peek());
+		assertEquals(Arrays.asList(a3, other, b), drain(queue));
+		assertTrue(queue.isEmpty());
+		/* Once taken, the next message for the key is queued again */
+		final Object a4 = new KeyedMsg("a");
+		queue.offer(a4);
+		assertSame(a4, queue.poll());
+	}
+
+	@Test
+	public void byTypeIncludingSubtypes()
+	{
+		final Map<Class<?>, String> keyProperties = new HashMap<>();
+		keyProperties.put(TestMsg.class, "");
+		final CoalescingMailboxQueue<Object> queue = queue(keyProperties);
+		final Object msg1 = new TestMsg(), msg2 = new TestMsg(),
+			subtype1 = new TestMsgSubtype(), subtype2 = new TestMsgSubtype(),
+			other1 = new TestMsg2(), other2 = new TestMsg2();
+		for (Object msg : Arrays.asList(msg1, subtype1, other1, msg2, subtype2, other2))
+			queue.offer(msg);
+		/* Subtypes share the key of the coalesced type */
+		assertEquals(Arrays.asList(subtype2, other1, other2), drain(queue));
+	}
+
+	@Test
+	public void correlatedRepliesNotCoalesced()
+	{
+		final Map<Class<?>, String> keyProperties = new HashMap<>();
+		keyProperties.put(CorrelatedReply.class, "");
+		final CoalescingMailboxQueue<Object> queue = queue(keyProperties);
+		final Object reply1 = new CorrelatedReply(1), reply2 = new CorrelatedReply(2);
+		queue.offer(reply1);
+		queue.offer(reply2);
+		assertEquals(Arrays.asList(reply1, reply2), drain(queue));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void missingKeyProperty()
+	{
+		final Map<Class<?>, String> keyProperties = new HashMap<>();
+		keyProperties.put(TestMsg.class, "symbol");
+		new MessageCoalescing(keyProperties);
+	}
+}
@@ -0,0 +1,78 @@
+package javactor.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javactor.msg.TestMsg;
+import javactor.msg.TestMsg2;
+import javactor.msg.TestMsgSubtype;
+
+import org.junit.Test;
+
+public class IndexedEventBusTest
+{
+	private final List<String> delivered = new ArrayList<>();
+	private final IndexedEventBus<String> bus = new IndexedEventBus<String>()
+	{
+		@Override
+		protected void deliver(String subscriber, Object msg)
+		{
+			delivered.add(subscriber);
+		}
+	};
+
+	private static Set<Class<?>> classes(Class<?>... classes)
+	{
+		return new HashSet<Class<?>>(Arrays.asList(classes));
+	}
+
+	@Test
+	public void deliversToEachMatchingSubscriberOnce()
+	{
+		bus.subscribe("a", classes(TestMsg.class, TestMsgSubtype.class));
+		bus.subscribe("b", classes(TestMsg.class, TestMsgSubtype.class));
+		bus.subscribe("c", classes(TestMsg2.class));
+		bus.publish(new TestMsgSubtype());
+		assertEquals(Arrays.asList("a", "b"), delivered);
+	}
+
+	@Test
+	public void groupsAddedAfterPublishing()
+	{
+		bus.subscribe("a", classes(TestMsg2.class));
+		bus.publish(new TestMsg());
+		assertTrue(delivered.isEmpty());
+		bus.subscribe("b", classes(TestMsg.class));
+		bus.publish(new TestMsg());
+		assertEquals(Arrays.asList("b"), delivered);
+	}
+
+	@Test
+	public void unsubscribe()
+	{
+		final Set<Class<?>> classes = classes(TestMsg.class);
+		bus.subscribe("a", classes);
+		bus.subscribe("b", classes);
+		bus.unsubscribe("a", classes);
+		bus.unsubscribe("c", classes);
+		bus.publish(new TestMsg());
+		assertEquals(Arrays.asList("b"), delivered);
+	}
+
+	@Test
+	public void hasSubscribers()
+	{
+		final Set<Class<?>> classes = classes(TestMsg.class);
+		assertFalse(bus.hasSubscribers(TestMsgSubtype.class));
+		bus.subscribe("a", classes);
+		assertTrue(bus.hasSubscribers(TestMsgSubtype.class));
+		assertFalse(bus.hasSubscribers(TestMsg2.class));
+		bus.unsubscribe("a", classes);
+		assertFalse(bus.hasSubscribers(TestMsgSubtype.class));
+	}
+}
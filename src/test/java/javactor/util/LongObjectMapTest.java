@@ -0,0 +1,68 @@
+package javactor.util;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongObjectMapTest
+{
+	private final LongObjectMap<String> map = new LongObjectMap<>();
+
+	@Test
+	public void putGetRemove()
+	{
+		assertNull(map.put(1, "one"));
+		assertNull(map.put(-7, "minus seven"));
+		assertEquals("one", map.put(1, "uno"));
+		assertEquals(2, map.size());
+		assertEquals("uno", map.get(1));
+		assertEquals("minus seven", map.get(-7));
+		assertNull(map.get(2));
+		assertEquals("uno", map.remove(1));
+		assertNull(map.remove(1));
+		assertNull(map.get(1));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void collidingKeysSurviveRemoval()
+	{
+		/* Multiples of a large power of two tend to share probe sequences */
+		for (long k = 0; k < 100; k++)
+			map.put(k << 40, "v"+k);
+		for (long k = 0; k < 100; k += 2)
+			assertEquals("v"+k, map.remove(k << 40));
+		for (long k = 1; k < 100; k += 2)
+			assertEquals("v"+k, map.get(k << 40));
+		assertEquals(50, map.size());
+	}
+
+	@Test
+	public void agreesWithHashMap()
+	{
+		final Map<Long, String> expected = new HashMap<>();
+		final Random random = new Random(42);
+		for (int i = 0; i < 100000; i++)
+		{
+			final long key = random.nextInt(500);
+			if ( random.nextBoolean() ) {
+				assertEquals(expected.put(key, "v"+i), map.put(key, "v"+i));
+			} else {
+				assertEquals(expected.remove(key), map.remove(key));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		for (long key = 0; key < 500; key++)
+			assertEquals(expected.get(key), map.get(key));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void nullValuesRejected()
+	{
+		map.put(1, null);
+	}
+}
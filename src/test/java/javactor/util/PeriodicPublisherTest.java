@@ -0,0 +1,84 @@
+package javactor.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javactor.Cancellable;
+
+import org.junit.Test;
+
+public class PeriodicPublisherTest
+{
+	private final List<Runnable> timers = new ArrayList<>();
+	private final List<Runnable> stopped = new ArrayList<>();
+	private final List<Object> published = new ArrayList<>();
+	private final PeriodicPublisher<Runnable> publisher = new PeriodicPublisher<Runnable>()
+	{
+		@Override
+		protected Runnable startTimer(long periodNanos, Runnable tick)
+		{
+			timers.add(tick);
+			return tick;
+		}
+
+		@Override
+		protected void stopTimer(Runnable timer)
+		{
+			stopped.add(timer);
+		}
+
+		@Override
+		protected void publish(Object msg)
+		{
+			published.add(msg);
+		}
+	};
+
+	@Test
+	public void oneTimerPerPeriod()
+	{
+		publisher.schedule("a", 0, 10);
+		publisher.schedule("b", 0, 10);
+		assertEquals(1, timers.size());
+		publisher.schedule("c", 0, 20);
+		assertEquals(2, timers.size());
+		timers.get(0).run();
+		assertEquals(Arrays.asList("a", "b"), published);
+	}
+
+	@Test
+	public void notPublishedBeforeDelay()
+	{
+		publisher.schedule("now", 0, 10);
+		publisher.schedule("later", TimeUnit.HOURS.toNanos(1), 10);
+		timers.get(0).run();
+		timers.get(0).run();
+		assertEquals(Arrays.asList("now", "now"), published);
+	}
+
+	@Test
+	public void timerStoppedWithLastPublication()
+	{
+		final Cancellable a = publisher.schedule("a", 0, 10);
+		final Cancellable b = publisher.schedule("b", 0, 10);
+		assertTrue(a.cancel());
+		assertFalse(a.cancel());
+		assertTrue(stopped.isEmpty());
+		timers.get(0).run();
+		assertEquals(Arrays.asList("b"), published);
+		assertTrue(b.cancel());
+		assertEquals(timers, stopped);
+		publisher.schedule("c", 0, 10);
+		assertEquals(2, timers.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void periodMustBePositive()
+	{
+		publisher.schedule("a", 0, 0);
+	}
+}
@@ -0,0 +1,81 @@
+package javactor.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javactor.annot.Priority;
+import javactor.annot.Priority.Level;
+import javactor.msg.Correlated;
+import javactor.msg.CorrelatedRequest;
+import javactor.msg.Terminated;
+import javactor.msg.TestMsg;
+import javactor.msg.TestMsgSubtype;
+import javactor.msg.TimeoutMsg;
+
+import org.junit.Test;
+
+public class PriorityMailboxQueueTest
+{
+	@Priority(Level.LOW)
+	static public class Bulk {
+	}
+	static public class BulkSubtype extends Bulk {
+	}
+
+	private static PriorityMailboxQueue<Object> queue(MessagePriorities priorities)
+	{
+		return new PriorityMailboxQueue<Object>(priorities)
+		{
+			@Override
+			protected Object message(Object envelope)
+			{
+				return envelope;
+			}
+		};
+	}
+
+	private static List<Object> drain(PriorityMailboxQueue<Object> queue)
+	{
+		final List<Object> result = new ArrayList<>();
+		for (Object msg = queue.poll(); msg != null; msg = queue.poll())
+			result.add(msg);
+		return result;
+	}
+
+	@Test
+	public void controlMessagesFirstThenInArrivalOrder()
+	{
+		final PriorityMailboxQueue<Object> queue = queue(MessagePriorities.DEFAULT);
+		final Object bulk = new BulkSubtype(), data1 = new TestMsg(), 
+			timeout = new TimeoutMsg(null), data2 = new TestMsg(), 
+			terminated = new Terminated();
+		for (Object msg : Arrays.asList(bulk, data1, timeout, data2, terminated))
+			queue.offer(msg);
+		assertEquals(5, queue.size());
+		assertSame(timeout, queue.peek());
+		assertEquals(Arrays.asList(timeout, terminated, data1, data2, bulk),
+			drain(queue));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void overrides()
+	{
+		final Map<Class<?>, Level> overrides = new HashMap<>();
+		overrides.put(TestMsg.class, Level.HIGH);
+		overrides.put(Bulk.class, Level.NORMAL);
+		overrides.put(Correlated.class, Level.LOW);
+		final MessagePriorities priorities = new MessagePriorities(overrides);
+		assertEquals(Level.HIGH, priorities.of(TestMsgSubtype.class));
+		assertEquals(Level.NORMAL, priorities.of(BulkSubtype.class));
+		assertEquals(Level.LOW, priorities.of(CorrelatedRequest.class));
+		/* A class's own annotation wins over an interface override */
+		assertEquals(Level.HIGH, priorities.of(TimeoutMsg.class));
+		assertEquals(Level.NORMAL, priorities.of(Object.class));
+	}
+}
@@ -0,0 +1,68 @@
+package javactor.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javactor.StashOverflowException;
+
+import org.junit.Test;
+
+public class StashTest
+{
+	private final Stash<String> stash = new Stash<>(3);
+
+	private List<String> pollUnstashed()
+	{
+		final List<String> unstashed = new ArrayList<>();
+		for (String s = stash.pollUnstashed(); s != null; s = stash.pollUnstashed())
+			unstashed.add(s);
+		return unstashed;
+	}
+
+	@Test
+	public void unstashesInOrder()
+	{
+		stash.stash("a");
+		stash.stash("b");
+		assertFalse(stash.hasUnstashed());
+		stash.unstashAll();
+		assertTrue(stash.hasUnstashed());
+		assertEquals(Arrays.asList("a", "b"), pollUnstashed());
+	}
+
+	@Test
+	public void laterUnstashesGoFirst()
+	{
+		stash.stash("a");
+		stash.stash("b");
+		stash.unstashAll();
+		assertEquals("a", stash.pollUnstashed());
+		stash.stash("c");
+		stash.unstashAll();
+		assertEquals(Arrays.asList("c", "b"), pollUnstashed());
+	}
+
+	@Test(expected = StashOverflowException.class)
+	public void bounded()
+	{
+		for (int i = 0; i < 4; i++)
+			stash.stash("a");
+	}
+
+	@Test
+	public void drainsUnstashedFirst()
+	{
+		stash.stash("a");
+		stash.unstashAll();
+		stash.stash("b");
+		final List<String> drained = new ArrayList<>();
+		stash.drainTo(drained);
+		assertEquals(Arrays.asList("a", "b"), drained);
+		assertFalse(stash.hasUnstashed());
+		stash.unstashAll();
+		assertNull(stash.pollUnstashed());
+	}
+}
@@ -0,0 +1,143 @@
+package javactor.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javactor.Cancellable;
+
+import org.junit.Test;
+
+public class TickServiceTest
+{
+	private static final long PERIOD_NANOS = TickService.MAX_SLOTS * TickService.MIN_SLOT_NANOS;
+
+	private final List<Runnable> timers = new ArrayList<>();
+	private final List<Long> tickNanos = new ArrayList<>();
+	private final List<Runnable> stopped = new ArrayList<>();
+	private final List<Object> delivered = new ArrayList<>();
+	private final TickService<Runnable> service = new TickService<Runnable>()
+	{
+		@Override
+		protected Runnable startTimer(long tickNanos, Runnable tick)
+		{
+			TickServiceTest.this.tickNanos.add(tickNanos);
+			timers.add(tick);
+			return tick;
+		}
+
+		@Override
+		protected void stopTimer(Runnable timer)
+		{
+			stopped.add(timer);
+		}
+
+		@Override
+		protected void deliver(Object msg, Object to, Object from)
+		{
+			delivered.add(to);
+		}
+	};
+
+	@Test
+	public void firstOnTheFirstFiringAfterTheDelay()
+	{
+		final long slotNanos = TickService.MIN_SLOT_NANOS;
+		service.schedule("tick", "now", null, 0, PERIOD_NANOS, true);
+		/* Between firings, so not delivered early however long scheduling takes */
+		service.schedule("tick", "later", null, 3 * slotNanos + slotNanos / 2, PERIOD_NANOS,
+			true);
+		assertEquals(1, timers.size());
+		final List<List<Object>> perFiring = new ArrayList<>();
+		for (int i = 0; i < 2 * TickService.MAX_SLOTS; i++)
+		{
+			delivered.clear();
+			timers.get(0).run();
+			perFiring.add(new ArrayList<>(delivered));
+		}
+		for (int i = 0; i < perFiring.size(); i++)
+		{
+			final List<Object> expected = i % TickService.MAX_SLOTS == 0 ?
+				Arrays.<Object>asList("now") : i % TickService.MAX_SLOTS == 3 ?
+				Arrays.<Object>asList("later") : Arrays.asList();
+			assertEquals("firing "+i, expected, perFiring.get(i));
+		}
+	}
+
+	@Test
+	public void spreadOverThePeriod()
+	{
+		final long slotNanos = TickService.MIN_SLOT_NANOS;
+		final int numActors = 2 * TickService.MAX_SLOTS;
+		for (int i = 0; i < numActors; i++)
+			service.schedule("tick", i, null, i * slotNanos + slotNanos / 2, PERIOD_NANOS);
+		assertEquals(1, timers.size());
+		assertEquals(Arrays.asList(TickService.MIN_SLOT_NANOS), tickNanos);
+		for (int i = 0; i < TickService.MAX_SLOTS; i++)
+		{
+			timers.get(0).run();
+			assertEquals(i + 1, delivered.size());
+		}
+		/* Those of the second period share the slots with the first */
+		for (int i = 0; i < TickService.MAX_SLOTS; i++)
+		{
+			timers.get(0).run();
+			assertEquals(TickService.MAX_SLOTS + 2 * (i + 1), delivered.size());
+		}
+		assertEquals(numActors, new HashSet<>(delivered).size());
+	}
+
+	@Test
+	public void sameDelaySpreadOverThePeriod()
+	{
+		final int perSlot = 10;
+		final int numActors = perSlot * (TickService.MAX_SLOTS - 1);
+		for (int i = 0; i < numActors; i++)
+			service.schedule("tick", i, null, 0, PERIOD_NANOS);
+		/* Up to a period less a slot late, so all but the slot before the first */
+		for (int i = 0; i < TickService.MAX_SLOTS; i++)
+		{
+			delivered.clear();
+			timers.get(0).run();
+			assertEquals("firing "+i, i == TickService.MAX_SLOTS - 1 ? 0 : perSlot,
+				delivered.size());
+		}
+	}
+
+	@Test
+	public void firstOnTimeNotSpread()
+	{
+		for (int i = 0; i < 3; i++)
+			service.schedule("tick", i, null, 0, PERIOD_NANOS, true);
+		timers.get(0).run();
+		assertEquals(Arrays.<Object>asList(0, 1, 2), delivered);
+	}
+
+	@Test
+	public void shortPeriodsHaveFewerSlots()
+	{
+		service.schedule("tick", "a", null, 0, 3 * TickService.MIN_SLOT_NANOS);
+		service.schedule("tick", "b", null, 0, TimeUnit.MICROSECONDS.toNanos(1));
+		assertEquals(Arrays.asList(TickService.MIN_SLOT_NANOS,
+			TimeUnit.MICROSECONDS.toNanos(1)), tickNanos);
+	}
+
+	@Test
+	public void timerStoppedWithLastRegistration()
+	{
+		final Cancellable a = service.schedule("tick", "a", null, 0, PERIOD_NANOS);
+		final Cancellable b = service.schedule("tick", "b", null, 0, PERIOD_NANOS);
+		assertTrue(a.cancel());
+		assertFalse(a.cancel());
+		assertTrue(stopped.isEmpty());
+		for (int i = 0; i < TickService.MAX_SLOTS; i++)
+			timers.get(0).run();
+		assertEquals(Arrays.<Object>asList("b"), delivered);
+		assertTrue(b.cancel());
+		assertEquals(timers, stopped);
+	}
+}
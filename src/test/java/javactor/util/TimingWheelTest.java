@@ -0,0 +1,86 @@
+package javactor.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javactor.util.TimingWheel.Timeout;
+
+import org.junit.Test;
+
+public class TimingWheelTest
+{
+	private final TimingWheel<String> wheel = new TimingWheel<>(10, 8, 1000);
+	private final List<String> expired = new ArrayList<>();
+
+	@Test
+	public void expiresOnFirstTickAtOrAfterDeadline()
+	{
+		wheel.schedule("a", 1025, 1000);
+		assertEquals(0, wheel.advance(1029, expired));
+		assertTrue(expired.isEmpty());
+		assertEquals(1, wheel.advance(1030, expired));
+		assertEquals(list("a"), expired);
+		assertTrue(wheel.isEmpty());
+	}
+
+	@Test
+	public void neverExpiresEarly()
+	{
+		wheel.schedule("past", 900, 1000);
+		wheel.schedule("now", 1000, 1000);
+		assertEquals(0, wheel.advance(1009, expired));
+		assertEquals(2, wheel.advance(1010, expired));
+	}
+
+	@Test
+	public void deadlinesBeyondOneRotation()
+	{
+		wheel.schedule("near", 1030, 1000);
+		wheel.schedule("far", 1030 + 8 * 10, 1000);
+		wheel.schedule("farther", 1030 + 3 * 8 * 10, 1000);
+		wheel.advance(1030, expired);
+		assertEquals(list("near"), expired);
+		wheel.advance(1030 + 8 * 10 - 1, expired);
+		assertEquals(list("near"), expired);
+		wheel.advance(1030 + 8 * 10, expired);
+		assertEquals(list("near", "far"), expired);
+		wheel.advance(1030 + 3 * 8 * 10, expired);
+		assertEquals(list("near", "far", "farther"), expired);
+	}
+
+	@Test
+	public void cancelledNeverExpire()
+	{
+		final Timeout<String> a = wheel.schedule("a", 1020, 1000);
+		final Timeout<String> b = wheel.schedule("b", 1020, 1000);
+		final Timeout<String> c = wheel.schedule("c", 1020, 1000);
+		assertTrue(b.cancel());
+		assertFalse(b.cancel());
+		assertFalse(b.isPending());
+		assertEquals(2, wheel.size());
+		wheel.advance(1020, expired);
+		assertEquals(2, expired.size());
+		assertTrue(expired.containsAll(list("a", "c")));
+		assertFalse(a.isPending());
+		assertFalse(c.cancel());
+	}
+
+	@Test
+	public void catchesUpWhenIdle()
+	{
+		wheel.advance(1015, expired);
+		wheel.schedule("a", 50000 + 20, 50000);
+		assertEquals(0, wheel.advance(50019, expired));
+		assertEquals(1, wheel.advance(50020, expired));
+	}
+
+	private static List<String> list(String... strings)
+	{
+		final List<String> result = new ArrayList<>();
+		for (String s : strings)
+			result.add(s);
+		return result;
+	}
+}